@@ -0,0 +1,14 @@
+package org.igdevx.spring_boot_account_microservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the Spring cache abstraction. The cache provider and its eviction policy are
+ * configured through spring.cache.* so that each profile can switch caching on or off
+ * (spring.cache.type=none disables it).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
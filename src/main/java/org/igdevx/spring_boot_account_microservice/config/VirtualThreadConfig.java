@@ -0,0 +1,56 @@
+package org.igdevx.spring_boot_account_microservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Support for the opt-in virtual-thread execution mode (profile "virtual-threads", requires a Java 21 runtime).
+ *
+ * Spring Boot runs Tomcat request handling on virtual threads when spring.threads.virtual.enabled is set;
+ * the Stripe SDK calls are made synchronously from the request thread, so they run on virtual threads too.
+ * This configuration adds the guard against flooding the connection pool: the DataSource is wrapped in a
+ * {@link ConnectionLimitingDataSource} sized like the Hikari pool. Pinned virtual threads are reported by
+ * {@link VirtualThreadPinningMonitor}.
+ *
+ * A caller waits first for a permit, then (rarely, the permits match the pool size) inside Hikari while it opens a
+ * connection. Both waits share {@code account.datasource.connection-limit.max-wait}, which defaults to the pool's
+ * connection-timeout: the permit wait gets what the pool's own timeout leaves, so the two never add up past it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "account.datasource.connection-limit.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        int permits = environment.getProperty("account.datasource.connection-limit.permits", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        Duration poolTimeout = Duration.ofMillis(
+                environment.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30_000L));
+        Duration maxWait = environment.getProperty("account.datasource.connection-limit.max-wait",
+                Duration.class, poolTimeout);
+        // no time left for the permit: fail fast when all of them are taken
+        Duration acquireTimeout = maxWait.compareTo(poolTimeout) > 0 ? maxWait.minus(poolTimeout) : Duration.ZERO;
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    log.info("Limiting DataSource '{}' to {} concurrent connections (permit wait {} ms, pool wait {} ms)",
+                            beanName, permits, acquireTimeout.toMillis(), poolTimeout.toMillis());
+                    return new ConnectionLimitingDataSource(dataSource, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
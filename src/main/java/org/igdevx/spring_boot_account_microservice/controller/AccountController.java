@@ -1,26 +1,51 @@
 package org.igdevx.spring_boot_account_microservice.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.igdevx.spring_boot_account_microservice.dto.*;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.service.ProfileMergePatch;
+import org.igdevx.spring_boot_account_microservice.service.PublicProfileBodyCache;
 import org.igdevx.spring_boot_account_microservice.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("")
 @Tag(name = "Account", description = "Account management endpoints")
 public class AccountController {
 
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
     private final UserService userService;
+    private final PublicProfileBodyCache publicProfileBodies;
+    private final int producerPageMaxSize;
+    private final CacheControl publicProfileCacheControl;
 
-    public AccountController(UserService userService) {
+    public AccountController(UserService userService,
+                             PublicProfileBodyCache publicProfileBodies,
+                             @Value("${account.producers.page-max-size:100}") int producerPageMaxSize,
+                             @Value("${account.public-profiles.max-age:PT1M}") Duration publicProfileMaxAge) {
         this.userService = userService;
+        this.publicProfileBodies = publicProfileBodies;
+        this.producerPageMaxSize = producerPageMaxSize;
+        this.publicProfileCacheControl = CacheControl.maxAge(publicProfileMaxAge).cachePublic();
     }
 
     // ===== Personal Account Endpoints =====
@@ -28,89 +53,171 @@ public class AccountController {
     @GetMapping("/me")
     @Operation(summary = "Get connected user's full profile", description = "Retrieve the full profile of the currently authenticated user")
     public ResponseEntity<UserProfileResponse> getMyProfile(
-            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId) {
-        UserProfileResponse profile = userService.getUserProfile(UUID.fromString(keycloakId));
-        return ResponseEntity.ok(profile);
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            WebRequest webRequest) {
+        UUID uuid = UUID.fromString(keycloakId);
+        // Unchanged since the caller's copy: 304 from a version lookup, without loading the profile
+        if (ProfileETags.notModified(webRequest, () -> userService.getProfileVersion(uuid)
+                .map(version -> ProfileETags.of(version.id(), version.version())))) {
+            return null;
+        }
+        return withETag(ResponseEntity.ok(), userService.getUserProfile(uuid));
     }
 
     @PutMapping("/me")
     @Operation(summary = "Update personal information", description = "Update the personal information of the currently authenticated user")
     public ResponseEntity<UserProfileResponse> updatePersonalInfo(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @RequestBody UpdatePersonalInfoRequest request) {
-        UserProfileResponse profile = userService.updatePersonalInfo(UUID.fromString(keycloakId), request);
-        return ResponseEntity.ok(profile);
+            @RequestBody UpdatePersonalInfoRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.updatePersonalInfo(uuid, request,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
+    }
+
+    @PatchMapping(value = "/me", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch personal information", description = "JSON Merge Patch of the personal information: absent properties are kept, null clears a property. Nothing is written when nothing changes.")
+    public ResponseEntity<UserProfileResponse> patchPersonalInfo(
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        ProfileMergePatch mergePatch = ProfileMergePatch.personalInfo(patch);
+        UserProfileResponse profile = userService.patchPersonalInfo(uuid, mergePatch,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
     }
 
     // ===== Restaurant Endpoints =====
 
-    @GetMapping("/restaurant/{id}")
+    @GetMapping(value = "/restaurant/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get restaurant owner's public profile", description = "Retrieve the public profile of a restaurant by ID")
-    public ResponseEntity<RestaurantPublicProfileResponse> getRestaurantProfile(
-            @PathVariable @Parameter(description = "Restaurant user ID") Long id) {
-        RestaurantPublicProfileResponse profile = userService.getRestaurantProfile(id);
-        return ResponseEntity.ok(profile);
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = RestaurantPublicProfileResponse.class)))
+    public ResponseEntity<byte[]> getRestaurantProfile(
+            @PathVariable @Parameter(description = "Restaurant user ID") Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        return publicProfile(PublicProfileBodyCache.Kind.RESTAURANT, id, acceptEncoding, webRequest,
+                () -> userService.getRestaurantProfile(id));
     }
 
     @PostMapping("/restaurant")
     @Operation(summary = "Create/complete restaurant profile", description = "Create or complete a restaurant profile for the authenticated user")
     public ResponseEntity<UserProfileResponse> createRestaurantProfile(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @RequestBody RestaurantProfileRequest request) {
-        UserProfileResponse profile = userService.createOrUpdateRestaurantProfile(UUID.fromString(keycloakId), request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(profile);
+            @RequestBody RestaurantProfileRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.createOrUpdateRestaurantProfile(uuid, request,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.status(HttpStatus.CREATED), profile);
     }
 
     @PutMapping("/restaurant")
     @Operation(summary = "Update my restaurant profile", description = "Update the authenticated user's restaurant profile")
     public ResponseEntity<UserProfileResponse> updateMyRestaurantProfile(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @RequestBody RestaurantProfileRequest request) {
-        UserProfileResponse profile = userService.createOrUpdateRestaurantProfile(UUID.fromString(keycloakId), request);
-        return ResponseEntity.ok(profile);
+            @RequestBody RestaurantProfileRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.createOrUpdateRestaurantProfile(uuid, request,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
+    }
+
+    @PatchMapping(value = "/restaurant", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch my restaurant profile", description = "JSON Merge Patch of the authenticated restaurant's profile: absent properties are kept, null clears a property. Nothing is written when nothing changes.")
+    public ResponseEntity<UserProfileResponse> patchMyRestaurantProfile(
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        ProfileMergePatch mergePatch = ProfileMergePatch.restaurant(patch);
+        UserProfileResponse profile = userService.patchRestaurantProfile(uuid, mergePatch,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
     }
 
     @DeleteMapping("/restaurant")
     @Operation(summary = "Delete my restaurant profile", description = "Delete the authenticated user's restaurant profile")
     public ResponseEntity<Void> deleteMyRestaurantProfile(
-            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId) {
-        userService.deleteRestaurantProfileByKeycloakId(UUID.fromString(keycloakId));
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        userService.deleteRestaurantProfileByKeycloakId(uuid, ProfileETags.parseIfMatch(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
     // ===== Producer Endpoints =====
 
-    @GetMapping("/producer/{id}")
+    @GetMapping("/producer")
+    @Operation(summary = "List producers by profession", description = "List the public profiles of the producers having a profession, ordered by ID. Pass the returned nextCursor as 'after' to get the next page")
+    public ResponseEntity<ProducerPageResponse> getProducersByProfession(
+            @RequestParam @Parameter(description = "Profession ID") Long professionId,
+            @RequestParam(required = false) @Parameter(description = "Cursor: last producer ID of the previous page") Long after,
+            @RequestParam(defaultValue = "20") @Parameter(description = "Page size") int limit) {
+        if (limit < 1 || limit > producerPageMaxSize) {
+            throw new BadRequestException("limit must be between 1 and " + producerPageMaxSize);
+        }
+        return ResponseEntity.ok(userService.getProducersByProfession(professionId, after, limit));
+    }
+
+    @GetMapping(value = "/producer/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get producer's public profile", description = "Retrieve the public profile of a producer by ID")
-    public ResponseEntity<ProducerPublicProfileResponse> getProducerProfile(
-            @PathVariable @Parameter(description = "Producer user ID") Long id) {
-        ProducerPublicProfileResponse profile = userService.getProducerProfile(id);
-        return ResponseEntity.ok(profile);
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = ProducerPublicProfileResponse.class)))
+    public ResponseEntity<byte[]> getProducerProfile(
+            @PathVariable @Parameter(description = "Producer user ID") Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        return publicProfile(PublicProfileBodyCache.Kind.PRODUCER, id, acceptEncoding, webRequest,
+                () -> userService.getProducerProfile(id));
     }
 
     @PostMapping("/producer")
     @Operation(summary = "Create/complete producer profile", description = "Create or complete a producer profile for the authenticated user")
     public ResponseEntity<UserProfileResponse> createProducerProfile(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @RequestBody ProducerProfileRequest request) {
-        UserProfileResponse profile = userService.createOrUpdateProducerProfile(UUID.fromString(keycloakId), request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(profile);
+            @RequestBody ProducerProfileRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.createOrUpdateProducerProfile(uuid, request,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.status(HttpStatus.CREATED), profile);
     }
 
     @PutMapping("/producer")
     @Operation(summary = "Update my producer profile", description = "Update the authenticated user's producer profile")
     public ResponseEntity<UserProfileResponse> updateMyProducerProfile(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @RequestBody ProducerProfileRequest request) {
-        UserProfileResponse profile = userService.createOrUpdateProducerProfile(UUID.fromString(keycloakId), request);
-        return ResponseEntity.ok(profile);
+            @RequestBody ProducerProfileRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.createOrUpdateProducerProfile(uuid, request,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
+    }
+
+    @PatchMapping(value = "/producer", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch my producer profile", description = "JSON Merge Patch of the authenticated producer's profile (professionIds replaces the professions): absent properties are kept, null clears a property. Nothing is written when nothing changes.")
+    public ResponseEntity<UserProfileResponse> patchMyProducerProfile(
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        ProfileMergePatch mergePatch = ProfileMergePatch.producer(patch);
+        UserProfileResponse profile = userService.patchProducerProfile(uuid, mergePatch,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
     }
 
     @DeleteMapping("/producer")
     @Operation(summary = "Delete my producer profile", description = "Delete the authenticated user's producer profile")
     public ResponseEntity<Void> deleteMyProducerProfile(
-            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId) {
-        userService.deleteProducerProfileByKeycloakId(UUID.fromString(keycloakId));
+            @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        userService.deleteProducerProfileByKeycloakId(uuid, ProfileETags.parseIfMatch(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
@@ -120,17 +227,56 @@ public class AccountController {
     @Operation(summary = "Add profession to producer", description = "Add a profession to the authenticated producer's profile")
     public ResponseEntity<UserProfileResponse> addProfession(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @PathVariable @Parameter(description = "Profession ID to add") Long professionId) {
-        UserProfileResponse profile = userService.addProfessionToProducer(UUID.fromString(keycloakId), professionId);
-        return ResponseEntity.ok(profile);
+            @PathVariable @Parameter(description = "Profession ID to add") Long professionId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.addProfessionToProducer(uuid, professionId,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
     }
 
     @DeleteMapping("/producer/professions/{professionId}")
     @Operation(summary = "Remove profession from producer", description = "Remove a profession from the authenticated producer's profile")
     public ResponseEntity<UserProfileResponse> removeProfession(
             @RequestHeader("X-Keycloak-Id") @Parameter(description = "Keycloak user ID from authentication") String keycloakId,
-            @PathVariable @Parameter(description = "Profession ID to remove") Long professionId) {
-        UserProfileResponse profile = userService.removeProfessionFromProducer(UUID.fromString(keycloakId), professionId);
-        return ResponseEntity.ok(profile);
+            @PathVariable @Parameter(description = "Profession ID to remove") Long professionId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Parameter(description = "ETag of the profile being modified") String ifMatch) {
+        UUID uuid = UUID.fromString(keycloakId);
+        UserProfileResponse profile = userService.removeProfessionFromProducer(uuid, professionId,
+                ProfileETags.parseIfMatch(ifMatch));
+        return withETag(ResponseEntity.ok(), profile);
+    }
+
+    // Public profiles are served from their serialized body (JSON, or gzip when accepted), built on the first miss
+    private ResponseEntity<byte[]> publicProfile(PublicProfileBodyCache.Kind kind, Long id, String acceptEncoding,
+                                                 WebRequest webRequest,
+                                                 Supplier<? extends BasePublicProfileResponse> loader) {
+        // A miss is loaded before If-None-Match is compared: the loader checks that the user has this kind,
+        // and its body is cached for the next request anyway
+        PublicProfileBodyCache.Body body = publicProfileBodies.get(kind, id).orElseGet(() -> {
+            long token = publicProfileBodies.beginLoad();
+            BasePublicProfileResponse profile = loader.get();
+            return publicProfileBodies.put(kind, id, ProfileETags.of(profile.getId(), profile.getVersion()),
+                    profile, token);
+        });
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        if (ProfileETags.notModified(webRequest, body.etag(), gzip)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(gzip ? ProfileETags.gzip(body.etag()) : body.etag())
+                .cacheControl(publicProfileCacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? body.gzip() : body.json());
+    }
+
+    private static ResponseEntity<UserProfileResponse> withETag(ResponseEntity.BodyBuilder response,
+                                                                UserProfileResponse profile) {
+        return response.eTag(ProfileETags.of(profile.getId(), profile.getVersion())).body(profile);
     }
 }
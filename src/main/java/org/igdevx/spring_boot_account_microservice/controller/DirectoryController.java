@@ -0,0 +1,63 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryFacetsResponse;
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryPageResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.service.DirectoryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/directory")
+@Tag(name = "Directory", description = "Restaurant and producer directory")
+public class DirectoryController {
+
+    private final DirectoryService directoryService;
+    private final int pageMaxSize;
+
+    public DirectoryController(DirectoryService directoryService,
+                               @Value("${account.directory.page-max-size:100}") int pageMaxSize) {
+        this.directoryService = directoryService;
+        this.pageMaxSize = pageMaxSize;
+    }
+
+    @GetMapping("/restaurants")
+    @Operation(summary = "List restaurants", description = "List restaurants ordered by ID, optionally filtered. Pass the returned nextCursor as 'after' to get the next page")
+    public ResponseEntity<DirectoryPageResponse> getRestaurants(
+            @RequestParam(required = false) @Parameter(description = "Exact cuisine type") String cuisineType,
+            @RequestParam(required = false) @Parameter(description = "Exact service type") String serviceType,
+            @RequestParam(required = false) @Parameter(description = "Cursor: last ID of the previous page") Long after,
+            @RequestParam(defaultValue = "20") @Parameter(description = "Page size") int limit) {
+        validateLimit(limit);
+        return ResponseEntity.ok(directoryService.getRestaurants(cuisineType, serviceType, after, limit));
+    }
+
+    @GetMapping("/producers")
+    @Operation(summary = "List producers", description = "List producers ordered by ID, optionally filtered. Pass the returned nextCursor as 'after' to get the next page")
+    public ResponseEntity<DirectoryPageResponse> getProducers(
+            @RequestParam(required = false) @Parameter(description = "Exact organization type") String organizationType,
+            @RequestParam(required = false) @Parameter(description = "Cursor: last ID of the previous page") Long after,
+            @RequestParam(defaultValue = "20") @Parameter(description = "Page size") int limit) {
+        validateLimit(limit);
+        return ResponseEntity.ok(directoryService.getProducers(organizationType, after, limit));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Directory facet counts", description = "Number of restaurants per cuisine and service type, and of producers per organization type, profession and installation decade")
+    public ResponseEntity<DirectoryFacetsResponse> getFacets() {
+        return ResponseEntity.ok(directoryService.getFacets());
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > pageMaxSize) {
+            throw new BadRequestException("limit must be between 1 and " + pageMaxSize);
+        }
+    }
+}
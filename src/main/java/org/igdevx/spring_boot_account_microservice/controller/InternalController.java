@@ -2,14 +2,42 @@ package org.igdevx.spring_boot_account_microservice.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.igdevx.spring_boot_account_microservice.dto.BatchUserLookupRequest;
+import org.igdevx.spring_boot_account_microservice.dto.KeycloakIdBatchRequest;
 import org.igdevx.spring_boot_account_microservice.dto.KeycloakIdResponse;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileChangesResponse;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileImportResponse;
 import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.service.ProfileChangeFeedService;
+import org.igdevx.spring_boot_account_microservice.service.ProfileExportService;
+import org.igdevx.spring_boot_account_microservice.service.ProfileFields;
+import org.igdevx.spring_boot_account_microservice.service.ProfileImportService;
+import org.igdevx.spring_boot_account_microservice.service.UserProfileCoalescer;
 import org.igdevx.spring_boot_account_microservice.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/internal")
@@ -17,16 +45,99 @@ import java.util.UUID;
 public class InternalController {
 
     private final UserService userService;
+    private final UserProfileCoalescer userProfileCoalescer;
+    private final ProfileExportService profileExportService;
+    private final ProfileImportService profileImportService;
+    private final ProfileChangeFeedService profileChangeFeedService;
 
-    public InternalController(UserService userService) {
+    @Value("${account.internal.batch-max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${account.internal.keycloak-id-batch-max-size:1000}")
+    private int keycloakIdBatchMaxSize;
+
+    @Value("${account.changes.page-max-size:1000}")
+    private int changesPageMaxSize;
+
+    public InternalController(UserService userService, UserProfileCoalescer userProfileCoalescer,
+                              ProfileExportService profileExportService, ProfileImportService profileImportService,
+                              ProfileChangeFeedService profileChangeFeedService) {
         this.userService = userService;
+        this.userProfileCoalescer = userProfileCoalescer;
+        this.profileExportService = profileExportService;
+        this.profileImportService = profileImportService;
+        this.profileChangeFeedService = profileChangeFeedService;
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Retrieve profile changes since a cursor",
+               description = "Internal endpoint for services keeping a copy of the profiles: returns profiles changed and users deleted "
+                       + "after the cursor, oldest first. Start without a cursor and pass nextCursor on the next call.")
+    public ResponseEntity<ProfileChangesResponse> getProfileChanges(
+            @RequestParam(required = false) @Parameter(description = "nextCursor of the previous call (opaque)") String cursor,
+            @RequestParam(defaultValue = "100") @Parameter(description = "Maximum number of changes") int limit) {
+
+        if (limit < 1 || limit > changesPageMaxSize) {
+            throw new BadRequestException("limit must be between 1 and " + changesPageMaxSize);
+        }
+        return ResponseEntity.ok(profileChangeFeedService.getChanges(cursor, limit));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(summary = "Bulk import producer and restaurant profiles (CSV)",
+               description = "Internal endpoint creating or replacing profiles from a CSV upload with a header line "
+                       + "(keycloakId, siret, professions as |-separated codes, ...). Invalid rows are reported in the response "
+                       + "without aborting the import.")
+    public ResponseEntity<ProfileImportResponse> importProfilesCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(profileImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @Operation(summary = "Bulk import producer and restaurant profiles (NDJSON)",
+               description = "Internal endpoint creating or replacing profiles from one JSON object per line "
+                       + "(keycloakId, siret, professions as an array of codes, ...). Invalid rows are reported in the response "
+                       + "without aborting the import.")
+    public ResponseEntity<ProfileImportResponse> importProfilesNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(profileImportService.importNdjson(body));
+    }
+
+    @GetMapping(value = "/export.ndjson", produces = "application/x-ndjson")
+    @Operation(summary = "Export all user profiles",
+               description = "Internal endpoint streaming every user profile (with professions and Stripe status) as newline-delimited JSON, "
+                       + "ordered by user ID. The body is gzip-compressed when the client accepts it.")
+    public ResponseEntity<StreamingResponseBody> exportProfiles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Only export users updated at or after this date-time (ISO-8601)") LocalDateTime updatedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    profileExportService.exportNdjson(updatedSince, compressed);
+                }
+            } else {
+                profileExportService.exportNdjson(updatedSince, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/{keycloakId}")
     @Operation(summary = "Retrieve user info via Keycloak ID", 
                description = "Internal endpoint to retrieve user information by Keycloak ID for inter-service communication. Creates user if not exists.")
-    public ResponseEntity<UserProfileResponse> getUserByKeycloakId(
-            @PathVariable @Parameter(description = "Keycloak user ID (UUID format)") String keycloakId) {
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = UserProfileResponse.class)))
+    public ResponseEntity<?> getUserByKeycloakId(
+            @PathVariable @Parameter(description = "Keycloak user ID (UUID format)") String keycloakId,
+            @RequestParam(required = false) @Parameter(description = "Comma-separated properties to return (e.g. id,keycloakId,stripeOnboardingComplete); all when absent") String fields,
+            WebRequest webRequest) {
         
         UUID uuid;
         try {
@@ -37,9 +148,71 @@ public class InternalController {
             );
         }
         
-        // Use service method that handles race conditions properly
-        UserProfileResponse profile = userService.getOrCreateUserProfile(uuid);
-        return ResponseEntity.ok(profile);
+        // Sparse profile: only the requested columns are read, no ETag (it identifies the full representation)
+        ProfileFields profileFields = ProfileFields.parse(fields);
+        if (profileFields != null) {
+            Map<String, Object> profile = userService.getUserProfileFields(List.of(uuid), profileFields).get(uuid);
+            return ResponseEntity.ok(profile != null ? profile
+                    : profileFields.project(userProfileCoalescer.getOrCreateUserProfile(uuid)));
+        }
+
+        // Unchanged since the caller's copy: 304 from a version lookup, without loading the profile
+        if (ProfileETags.notModified(webRequest, () -> userService.getProfileVersion(uuid)
+                .map(version -> ProfileETags.of(version.id(), version.version())))) {
+            return null;
+        }
+
+        // Concurrent calls for the same user share a single get-or-create
+        UserProfileResponse profile = userProfileCoalescer.getOrCreateUserProfile(uuid);
+        return ResponseEntity.ok().eTag(ProfileETags.of(profile.getId(), profile.getVersion())).body(profile);
+    }
+
+    @PostMapping("/users:batch")
+    @Operation(summary = "Retrieve user info for several Keycloak IDs",
+               description = "Internal endpoint to resolve a batch of Keycloak IDs in a single call. Returns a map keyed by Keycloak ID. "
+                       + "Missing users are created when createMissing is true, otherwise they are omitted from the map.")
+    public ResponseEntity<Map<String, ?>> getUsersByKeycloakIds(
+            @RequestBody BatchUserLookupRequest request,
+            @RequestParam(required = false) @Parameter(description = "Comma-separated properties to return for each user; all when absent") String fields) {
+
+        if (request == null || request.getKeycloakIds() == null || request.getKeycloakIds().isEmpty()) {
+            throw new BadRequestException("keycloakIds must contain at least one ID");
+        }
+
+        Set<UUID> uuids = new LinkedHashSet<>();
+        for (String keycloakId : request.getKeycloakIds()) {
+            try {
+                uuids.add(UUID.fromString(keycloakId));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new BadRequestException("Invalid UUID format for keycloakId: " + keycloakId);
+            }
+        }
+
+        if (uuids.size() > batchMaxSize) {
+            throw new BadRequestException("Too many keycloakIds: " + uuids.size() + " (max " + batchMaxSize + ")");
+        }
+
+        boolean createMissing = Boolean.TRUE.equals(request.getCreateMissing());
+        ProfileFields profileFields = ProfileFields.parse(fields);
+        if (profileFields == null) {
+            return ResponseEntity.ok(userService.getUserProfiles(uuids, createMissing));
+        }
+
+        Map<UUID, Map<String, Object>> found = userService.getUserProfileFields(uuids, profileFields);
+        Map<String, UserProfileResponse> created = createMissing
+                ? userService.getUserProfiles(uuids.stream().filter(uuid -> !found.containsKey(uuid)).toList(), true)
+                : Map.of();
+        Map<String, Map<String, Object>> profiles = new LinkedHashMap<>();
+        for (UUID uuid : uuids) {
+            Map<String, Object> profile = found.get(uuid);
+            UserProfileResponse createdProfile = created.get(uuid.toString());
+            if (profile != null) {
+                profiles.put(uuid.toString(), profile);
+            } else if (createdProfile != null) {
+                profiles.put(uuid.toString(), profileFields.project(createdProfile));
+            }
+        }
+        return ResponseEntity.ok(profiles);
     }
 
     @GetMapping("/user/{userId}/keycloak-id")
@@ -57,4 +230,30 @@ public class InternalController {
 
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping("/users/keycloak-ids")
+    @Operation(summary = "Retrieve Keycloak IDs for several user IDs",
+               description = "Internal endpoint to resolve a batch of user IDs to Keycloak IDs. Unknown user IDs are omitted from the result.")
+    public ResponseEntity<List<KeycloakIdResponse>> getKeycloakIdsByUserIds(
+            @RequestBody KeycloakIdBatchRequest request) {
+
+        if (request == null || request.getUserIds() == null || request.getUserIds().isEmpty()) {
+            throw new BadRequestException("userIds must contain at least one ID");
+        }
+
+        Set<Long> userIds = new LinkedHashSet<>(request.getUserIds());
+        userIds.remove(null);
+        if (userIds.size() > keycloakIdBatchMaxSize) {
+            throw new BadRequestException("Too many userIds: " + userIds.size() + " (max " + keycloakIdBatchMaxSize + ")");
+        }
+
+        List<KeycloakIdResponse> response = userService.getKeycloakIdsByUserIds(userIds).entrySet().stream()
+                .map(entry -> KeycloakIdResponse.builder()
+                        .userId(entry.getKey())
+                        .keycloakId(entry.getValue().toString())
+                        .build())
+                .toList();
+
+        return ResponseEntity.ok(response);
+    }
 }
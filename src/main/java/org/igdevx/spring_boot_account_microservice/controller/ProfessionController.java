@@ -1,48 +1,79 @@
 package org.igdevx.spring_boot_account_microservice.controller;
 
 import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
 import org.igdevx.spring_boot_account_microservice.model.Profession;
 import org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository;
+import org.igdevx.spring_boot_account_microservice.service.ProfessionCatalog;
+import org.igdevx.spring_boot_account_microservice.service.ProfessionSuggestIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/professions")
 public class ProfessionController {
 
     private final ProfessionRepository professionRepository;
+    private final ProfessionCatalog professionCatalog;
+    private final int suggestMaxLimit;
 
-    public ProfessionController(ProfessionRepository professionRepository) {
+    public ProfessionController(ProfessionRepository professionRepository, ProfessionCatalog professionCatalog,
+                                @Value("${account.professions.suggest-max-limit:50}") int suggestMaxLimit) {
         this.professionRepository = professionRepository;
+        this.professionCatalog = professionCatalog;
+        this.suggestMaxLimit = suggestMaxLimit;
     }
 
+    // Served from the in-memory catalog snapshot; answers 304 when If-None-Match matches its ETag
     @GetMapping
-    public ResponseEntity<List<ProfessionDto>> getAll() {
-        List<ProfessionDto> list = professionRepository.findAll().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(list);
+    public ResponseEntity<List<ProfessionDto>> getAll(WebRequest request) {
+        ProfessionCatalog.Snapshot snapshot = professionCatalog.snapshot();
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.professions());
+    }
+
+    // Accent-insensitive prefix autocomplete on the profession names (both languages when lang is omitted)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProfessionDto>> suggest(@RequestParam(name = "q", defaultValue = "") String query,
+                                                       @RequestParam(required = false) String lang,
+                                                       @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > suggestMaxLimit) {
+            throw new BadRequestException("limit must be between 1 and " + suggestMaxLimit);
+        }
+        return ResponseEntity.ok(professionCatalog.suggest(query, parseLang(lang), limit));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProfessionDto> getById(@PathVariable Long id) {
-        return professionRepository.findById(id)
-                .map(p -> ResponseEntity.ok(toDto(p)))
+        return professionCatalog.findById(id)
+                .or(() -> professionRepository.findById(id).map(professionCatalog::toDto))
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    private ProfessionDto toDto(Profession p) {
-        return ProfessionDto.builder()
-                .id(p.getId())
-                .code(p.getCode())
-                .nameEn(p.getNameEn())
-                .nameFr(p.getNameFr())
-                .build();
+    private static ProfessionSuggestIndex.Lang parseLang(String lang) {
+        if (lang == null || lang.isBlank()) {
+            return ProfessionSuggestIndex.Lang.ALL;
+        }
+        return switch (lang.toLowerCase(Locale.ROOT)) {
+            case "en" -> ProfessionSuggestIndex.Lang.EN;
+            case "fr" -> ProfessionSuggestIndex.Lang.FR;
+            default -> throw new BadRequestException("Unsupported lang: " + lang + ". Use 'en' or 'fr'.");
+        };
     }
 }
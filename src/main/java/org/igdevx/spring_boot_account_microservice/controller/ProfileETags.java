@@ -0,0 +1,84 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import org.igdevx.spring_boot_account_microservice.exception.PreconditionFailedException;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileVersionView;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Strong ETags of profile representations: {@code "<user id>.<version>"}. The id keeps a deleted and
+ * recreated user (which starts again at version 0) from matching an old copy. A gzip body is a different
+ * representation of the same version: {@code "<user id>.<version>.gz"}.
+ */
+final class ProfileETags {
+
+    private ProfileETags() {
+    }
+
+    static String of(Long id, Long version) {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    static String gzip(String etag) {
+        return etag.substring(0, etag.length() - 1) + ".gz\"";
+    }
+
+    // True (and the 304 prepared on the response) when the caller's If-None-Match is still current.
+    // The version is only looked up for conditional requests.
+    static boolean notModified(WebRequest request, Supplier<Optional<String>> currentETag) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return false;
+        }
+        Optional<String> etag = currentETag.get();
+        return etag.isPresent() && request.checkNotModified(etag.get());
+    }
+
+    // Same for a body served as JSON or gzip: a copy in either coding is still current, and the 304 names the
+    // copy the caller holds
+    static boolean notModified(WebRequest request, String etag, boolean gzip) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String selected = gzip ? gzip(etag) : etag;
+        String other = gzip ? etag : gzip(etag);
+        return request.checkNotModified(lists(ifNoneMatch, other) && !lists(ifNoneMatch, selected) ? other : selected);
+    }
+
+    // If-None-Match compares weakly: W/ prefixes are ignored
+    private static boolean lists(String ifNoneMatch, String etag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.strip();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Expected version of an If-Match header; null when there is none (or "*")
+    static ProfileVersionView parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        // a weak or unknown tag can never match strongly
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match does not match the current profile: " + ifMatch);
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        int separator = value.indexOf('.');
+        try {
+            return new ProfileVersionView(Long.parseLong(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new PreconditionFailedException("If-Match does not match the current profile: " + ifMatch);
+        }
+    }
+}
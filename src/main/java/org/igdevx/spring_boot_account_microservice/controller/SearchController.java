@@ -0,0 +1,56 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.igdevx.spring_boot_account_microservice.dto.SearchHitResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.igdevx.spring_boot_account_microservice.service.ProfileSearchIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/search")
+@Tag(name = "Search", description = "Full-text search over producer and restaurant profiles")
+public class SearchController {
+
+    private final ProfileSearchIndex profileSearchIndex;
+    private final int maxResults;
+
+    public SearchController(ProfileSearchIndex profileSearchIndex,
+                            @Value("${account.search.max-results:50}") int maxResults) {
+        this.profileSearchIndex = profileSearchIndex;
+        this.maxResults = maxResults;
+    }
+
+    @GetMapping
+    @Operation(summary = "Search profiles", description = "Search producers and restaurants by words of their biography, awards, hygiene certifications and cuisine type, best matches first")
+    public ResponseEntity<List<SearchHitResponse>> search(
+            @RequestParam(name = "q") @Parameter(description = "Search words (French or English)") String query,
+            @RequestParam(required = false) @Parameter(description = "producer or restaurant") String type,
+            @RequestParam(defaultValue = "20") @Parameter(description = "Maximum number of hits") int limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new BadRequestException("limit must be between 1 and " + maxResults);
+        }
+        return ResponseEntity.ok(profileSearchIndex.search(query, parseType(type), limit));
+    }
+
+    private static AccountType parseType(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        return switch (type.toLowerCase(Locale.ROOT)) {
+            case "producer" -> AccountType.PRODUCER;
+            case "restaurant" -> AccountType.RESTAURANT;
+            default -> throw new BadRequestException("Unsupported type: " + type + ". Use 'producer' or 'restaurant'.");
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import org.igdevx.spring_boot_account_microservice.service.ProfileSearchIndex;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// Admin operations on the full-text search index: GET /actuator/searchindex, POST to rebuild it from the database
+@Component
+@Endpoint(id = "searchindex")
+public class SearchIndexEndpoint {
+
+    private final ProfileSearchIndex profileSearchIndex;
+
+    public SearchIndexEndpoint(ProfileSearchIndex profileSearchIndex) {
+        this.profileSearchIndex = profileSearchIndex;
+    }
+
+    @ReadOperation
+    public ProfileSearchIndex.Stats stats() {
+        return profileSearchIndex.stats();
+    }
+
+    @WriteOperation
+    public ProfileSearchIndex.Stats rebuild() {
+        return profileSearchIndex.rebuild();
+    }
+}
@@ -7,6 +7,7 @@ import org.igdevx.spring_boot_account_microservice.dto.StripeConnectedAccountReq
 import org.igdevx.spring_boot_account_microservice.dto.StripeConnectedAccountResponse;
 import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
 import org.igdevx.spring_boot_account_microservice.service.StripeConnectService;
+import org.igdevx.spring_boot_account_microservice.service.StripeWebhookService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,9 +20,11 @@ import java.util.UUID;
 public class StripeConnectController {
 
     private final StripeConnectService stripeConnectService;
+    private final StripeWebhookService stripeWebhookService;
 
-    public StripeConnectController(StripeConnectService stripeConnectService) {
+    public StripeConnectController(StripeConnectService stripeConnectService, StripeWebhookService stripeWebhookService) {
         this.stripeConnectService = stripeConnectService;
+        this.stripeWebhookService = stripeWebhookService;
     }
 
     @PostMapping("/connected-account")
@@ -86,4 +89,16 @@ public class StripeConnectController {
         stripeConnectService.deleteConnectedAccount(UUID.fromString(keycloakId));
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    @PostMapping("/webhook")
+    @Operation(summary = "Receive a Stripe webhook event",
+               description = "Signed account.updated and capability.updated events, stored before they are acknowledged and "
+                       + "applied asynchronously to the stored account status (retried until they apply)")
+    public ResponseEntity<Void> receiveWebhook(
+            @RequestHeader("Stripe-Signature") @Parameter(description = "Stripe signature of the payload") String signature,
+            @RequestBody String payload) {
+
+        stripeWebhookService.receive(payload, signature);
+        return ResponseEntity.ok().build();
+    }
+}
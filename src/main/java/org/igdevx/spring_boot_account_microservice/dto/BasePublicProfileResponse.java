@@ -16,4 +16,6 @@ public abstract class BasePublicProfileResponse {
     private String facebook;
     private String instagram;
     private String linkedin;
+    // Changes on every write to the profile (see ETags)
+    private Long version;
 }
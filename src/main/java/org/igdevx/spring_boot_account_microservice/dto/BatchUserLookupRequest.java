@@ -0,0 +1,18 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUserLookupRequest {
+    private List<String> keycloakIds;
+    // When true, missing users are created (same semantics as GET /internal/{keycloakId})
+    private Boolean createMissing;
+}
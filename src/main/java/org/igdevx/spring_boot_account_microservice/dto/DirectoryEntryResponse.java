@@ -0,0 +1,23 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryEntryResponse {
+    private Long id;
+    private AccountType accountType;
+
+    // Restaurant-specific fields
+    private String serviceType;
+    private String cuisineType;
+
+    // Producer-specific fields
+    private String organizationType;
+}
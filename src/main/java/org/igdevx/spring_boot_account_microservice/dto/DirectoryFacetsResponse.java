@@ -0,0 +1,27 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Number of directory entries per filter value (values with no entry are left out)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryFacetsResponse {
+
+    // Restaurant facets
+    private Map<String, Long> cuisineType;
+    private Map<String, Long> serviceType;
+
+    // Producer facets
+    private Map<String, Long> organizationType;
+    // keyed by profession ID
+    private Map<String, Long> profession;
+    // keyed by decade, e.g. "2010-2019"
+    private Map<String, Long> installationYear;
+}
@@ -0,0 +1,18 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryPageResponse {
+    private List<DirectoryEntryResponse> items;
+    // Pass as "after" to get the next page; null on the last page
+    private Long nextCursor;
+}
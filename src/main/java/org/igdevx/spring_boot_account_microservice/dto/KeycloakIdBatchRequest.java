@@ -0,0 +1,16 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeycloakIdBatchRequest {
+    private List<Long> userIds;
+}
@@ -1,17 +1,16 @@
 package org.igdevx.spring_boot_account_microservice.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+// Immutable: instances are shared by the profession catalog snapshot and every profile response
+@Value
 @Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Jacksonized
 public class ProfessionDto {
-    private Long id;
-    private String code;
-    private String nameEn;
-    private String nameFr;
+    Long id;
+    String code;
+    String nameEn;
+    String nameFr;
 }
@@ -0,0 +1,25 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileChangeResponse {
+
+    public enum Type { UPSERT, DELETE }
+
+    private Type type;
+    private Long userId;
+    private String keycloakId;
+    // Update time of the profile, or deletion time
+    private LocalDateTime changedAt;
+    // Current profile; null for a deletion
+    private UserProfileResponse profile;
+}
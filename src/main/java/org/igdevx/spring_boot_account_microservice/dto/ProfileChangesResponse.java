@@ -0,0 +1,21 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileChangesResponse {
+    // Oldest first
+    private List<ProfileChangeResponse> changes;
+    // Pass as "cursor" on the next poll (unchanged when there was nothing new)
+    private String nextCursor;
+    // More changes are available right away
+    private boolean hasMore;
+}
@@ -0,0 +1,17 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileImportError {
+    // Line of the upload where the row starts
+    private long line;
+    private String keycloakId;
+    private String message;
+}
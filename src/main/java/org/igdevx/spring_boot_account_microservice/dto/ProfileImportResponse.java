@@ -0,0 +1,20 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileImportResponse {
+    private long received;
+    private long imported;
+    private long failed;
+    // First failed rows (see account.import.max-reported-errors)
+    private List<ProfileImportError> errors;
+}
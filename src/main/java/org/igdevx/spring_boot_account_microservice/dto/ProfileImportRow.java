@@ -0,0 +1,36 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One producer or restaurant of a bulk import (a CSV record or an NDJSON line)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileImportRow {
+    private String keycloakId;
+    private String biography;
+    private String website;
+    private String facebook;
+    private String instagram;
+    private String linkedin;
+
+    // Producer-specific fields (a row with a SIRET is a producer)
+    private String siret;
+    private String organizationType;
+    private Integer installationYear;
+    private Integer employeesCount;
+    // Profession codes (e.g. FARMER); "|"-separated in CSV
+    private List<String> professions;
+
+    // Restaurant-specific fields
+    private String serviceType;
+    private String cuisineType;
+    private String hygieneCertifications;
+    private String awards;
+}
@@ -0,0 +1,18 @@
+package org.igdevx.spring_boot_account_microservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHitResponse {
+    private Long id;
+    private AccountType accountType;
+    // BM25 relevance, only meaningful relative to the other hits of the same query
+    private double score;
+}
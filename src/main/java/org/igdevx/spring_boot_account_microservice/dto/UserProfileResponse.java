@@ -4,17 +4,19 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserProfileResponse {
     private Long id;
     private String keycloakId;
+    private AccountType accountType;
     private String biography;
     private String website;
     private String facebook;
@@ -41,4 +43,6 @@ public class UserProfileResponse {
     
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Changes on every write to the profile (see ETags)
+    private Long version;
 }
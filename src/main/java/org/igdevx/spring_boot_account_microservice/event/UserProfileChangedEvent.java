@@ -0,0 +1,22 @@
+package org.igdevx.spring_boot_account_microservice.event;
+
+import lombok.Value;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+
+import java.util.UUID;
+
+/**
+ * Published by the services on every write to a user row (create, update, delete).
+ * Listeners use it to keep in-memory views of the users table in sync.
+ */
+@Value
+public class UserProfileChangedEvent {
+    Long userId;
+    UUID keycloakId;
+    // Profile after the change, null when the user was deleted
+    UserProfileResponse profile;
+
+    public boolean isDeletion() {
+        return profile == null;
+    }
+}
@@ -0,0 +1,7 @@
+package org.igdevx.spring_boot_account_microservice.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package org.igdevx.spring_boot_account_microservice.model;
+
+// Kind of account, derived from the profile fields and persisted in users.account_type
+public enum AccountType {
+    CONSUMER,
+    PRODUCER,
+    RESTAURANT;
+
+    // A SIRET makes a producer (it wins if restaurant fields are also set), a service or cuisine type a restaurant
+    public static AccountType of(String siret, String serviceType, String cuisineType) {
+        if (siret != null) {
+            return PRODUCER;
+        }
+        if (serviceType != null || cuisineType != null) {
+            return RESTAURANT;
+        }
+        return CONSUMER;
+    }
+}
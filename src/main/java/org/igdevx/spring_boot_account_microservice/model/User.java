@@ -2,6 +2,8 @@ package org.igdevx.spring_boot_account_microservice.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -10,6 +12,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+// Updates only set the columns that changed (e.g. a PATCH of one field does not rewrite the TEXT columns)
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -38,12 +42,14 @@ public class User {
     private Integer installationYear;
     private Integer employeesCount;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    // Lazy: fetched with an explicit join where needed, batch-loaded otherwise
+    @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
         name = "user_professions",
         joinColumns = @JoinColumn(name = "user_id"),
         inverseJoinColumns = @JoinColumn(name = "profession_id")
     )
+    @BatchSize(size = 50)
     private Set<Profession> professions;
 
     // Restaurant-specific fields
@@ -52,6 +58,11 @@ public class User {
     private String hygieneCertifications;
     private String awards;
 
+    // Derived from the fields above on every write (see AccountType.of)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "account_type", nullable = false, length = 20)
+    private AccountType accountType;
+
     // Stripe Connect integration
     @Column(name = "stripe_account_id")
     private String stripeAccountId;
@@ -68,10 +79,16 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Optimistic lock, also bumped by the database on native writes (see V6); exposed as the ETag
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.accountType = AccountType.of(siret, serviceType, cuisineType);
         if (this.professions == null) {
             this.professions = new HashSet<>();
         }
@@ -80,5 +97,6 @@ public class User {
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.accountType = AccountType.of(siret, serviceType, cuisineType);
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package org.igdevx.spring_boot_account_microservice.repository;
+
+import org.igdevx.spring_boot_account_microservice.repository.projection.DirectoryEntryView;
+
+import java.util.List;
+
+// Keyset pages of the restaurant / producer directory; null filters are left out of the query
+public interface UserDirectoryRepository {
+
+    List<DirectoryEntryView> findRestaurantDirectory(String cuisineType, String serviceType, long after, int limit);
+
+    List<DirectoryEntryView> findProducerDirectory(String organizationType, long after, int limit);
+}
@@ -0,0 +1,66 @@
+package org.igdevx.spring_boot_account_microservice.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.igdevx.spring_boot_account_microservice.repository.projection.DirectoryEntryView;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The account type is written as a literal (not a bind parameter) so that the planner can match
+// the partial indexes of V4__account_type.sql, and only columns those indexes hold are selected.
+// Filters are appended only when present, so each combination gets its own plan.
+class UserDirectoryRepositoryImpl implements UserDirectoryRepository {
+
+    private static final String ACCOUNT_TYPE = AccountType.class.getName();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DirectoryEntryView> findRestaurantDirectory(String cuisineType, String serviceType, long after, int limit) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("cuisineType", cuisineType);
+        filters.put("serviceType", serviceType);
+        return query("u.serviceType, u.cuisineType", AccountType.RESTAURANT, filters, after, limit).stream()
+                .map(row -> new DirectoryEntryView(row.get(0, Long.class), AccountType.RESTAURANT,
+                        row.get(1, String.class), row.get(2, String.class), null))
+                .toList();
+    }
+
+    @Override
+    public List<DirectoryEntryView> findProducerDirectory(String organizationType, long after, int limit) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("organizationType", organizationType);
+        return query("u.organizationType", AccountType.PRODUCER, filters, after, limit).stream()
+                .map(row -> new DirectoryEntryView(row.get(0, Long.class), AccountType.PRODUCER,
+                        null, null, row.get(1, String.class)))
+                .toList();
+    }
+
+    private List<Tuple> query(String columns, AccountType type, Map<String, String> filters, long after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT u.id, ").append(columns)
+                .append(" FROM User u WHERE u.accountType = ").append(ACCOUNT_TYPE).append('.').append(type.name())
+                .append(" AND u.id > :after");
+        filters.forEach((field, value) -> {
+            if (value != null) {
+                jpql.append(" AND u.").append(field).append(" = :").append(field);
+            }
+        });
+        jpql.append(" ORDER BY u.id");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("after", after)
+                .setMaxResults(limit);
+        filters.forEach((field, value) -> {
+            if (value != null) {
+                query.setParameter(field, value);
+            }
+        });
+        return query.getResultList();
+    }
+}
@@ -1,22 +1,44 @@
 package org.igdevx.spring_boot_account_microservice.repository;
 
 import org.igdevx.spring_boot_account_microservice.model.User;
+import org.igdevx.spring_boot_account_microservice.repository.projection.FacetProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProducerPublicProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileStampView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileVersionView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.RestaurantPublicProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.SearchableProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.StripeAccountView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.UserKeycloakIdView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.UserProfessionView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
-import org.springframework.lang.NonNull;
+import jakarta.persistence.QueryHint;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.professions WHERE u.keycloakId = :keycloakId")
-    Optional<User> findByKeycloakId(@Param("keycloakId") UUID keycloakId);
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+// User.professions is lazy: use the *WithProfessions queries when the professions are needed,
+// and the scalar projections below when only a few columns are
+public interface UserRepository extends JpaRepository<User, Long>, UserDirectoryRepository {
     
-    @Query("SELECT u FROM User u LEFT JOIN FETCH u.professions WHERE u.id = :id")
-    @NonNull
-    Optional<User> findById(@NonNull @Param("id") Long id);
+    Optional<User> findByKeycloakId(UUID keycloakId);
+
+    @Query("""
+       SELECT u FROM User u
+       LEFT JOIN FETCH u.professions
+       WHERE u.id = :id
+       """)
+    Optional<User> findByIdWithProfessions(@Param("id") Long id);
 
     @Query("""
        SELECT u FROM User u
@@ -25,4 +47,160 @@ public interface UserRepository extends JpaRepository<User, Long> {
        """)
     Optional<User> findByKeycloakIdWithProfessions(UUID keycloakId);
 
-}
\ No newline at end of file
+    @Query("""
+       SELECT DISTINCT u FROM User u
+       LEFT JOIN FETCH u.professions
+       WHERE u.keycloakId IN :keycloakIds
+       """)
+    List<User> findAllByKeycloakIdInWithProfessions(@Param("keycloakIds") Collection<UUID> keycloakIds);
+
+    @Query("SELECT u.keycloakId FROM User u WHERE u.id = :id")
+    Optional<UUID> findKeycloakIdById(@Param("id") Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.keycloakId = :keycloakId")
+    Optional<Long> findIdByKeycloakId(@Param("keycloakId") UUID keycloakId);
+
+    // Conditional requests: index-only scan on users_keycloak_id_key (INCLUDE id, version), primary key lookup by id
+    @Query("""
+       SELECT new org.igdevx.spring_boot_account_microservice.repository.projection.ProfileVersionView(u.id, u.version)
+       FROM User u
+       WHERE u.keycloakId = :keycloakId
+       """)
+    Optional<ProfileVersionView> findVersionByKeycloakId(@Param("keycloakId") UUID keycloakId);
+
+    @Query("SELECT u.version FROM User u WHERE u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT u.version AS version, u.updatedAt AS updatedAt FROM User u WHERE u.id = :id")
+    Optional<ProfileStampView> findStampById(@Param("id") Long id);
+
+    // Compare-and-set of the version before If-Match writes that do not update the users row themselves
+    // (user_professions statements): 0 when the profile changed since. The row stays locked until commit.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE users SET version = version + 1 WHERE id = :id AND version = :version", nativeQuery = true)
+    int claimVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Query("""
+       SELECT u.id AS id, u.accountType AS accountType, u.biography AS biography, u.website AS website,
+              u.facebook AS facebook, u.instagram AS instagram, u.linkedin AS linkedin, u.serviceType AS serviceType,
+              u.cuisineType AS cuisineType, u.hygieneCertifications AS hygieneCertifications, u.awards AS awards,
+              u.version AS version
+       FROM User u
+       WHERE u.id = :id
+       """)
+    Optional<RestaurantPublicProfileView> findRestaurantPublicProfileById(@Param("id") Long id);
+
+    // Keyset page of the producers having a profession, in id order (idx_user_professions_profession_user)
+    @Query("""
+       SELECT u.id AS id, u.biography AS biography, u.website AS website, u.facebook AS facebook,
+              u.instagram AS instagram, u.linkedin AS linkedin, u.siret AS siret,
+              u.organizationType AS organizationType, u.installationYear AS installationYear,
+              u.employeesCount AS employeesCount, u.version AS version
+       FROM User u
+       JOIN u.professions p
+       WHERE p.id = :professionId AND u.id > :after
+         AND u.accountType = org.igdevx.spring_boot_account_microservice.model.AccountType.PRODUCER
+       ORDER BY u.id
+       """)
+    List<ProducerPublicProfileView> findProducersByProfession(@Param("professionId") Long professionId,
+                                                              @Param("after") Long after,
+                                                              Limit limit);
+
+    @Query("SELECT u.id AS userId, p.id AS professionId FROM User u JOIN u.professions p WHERE u.id IN :userIds")
+    List<UserProfessionView> findProfessionIdsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query("""
+       SELECT u.id AS id, u.keycloakId AS keycloakId, u.accountType AS accountType,
+              u.stripeAccountId AS stripeAccountId, u.stripeAccountStatus AS stripeAccountStatus,
+              u.stripeOnboardingComplete AS stripeOnboardingComplete
+       FROM User u
+       WHERE u.keycloakId = :keycloakId
+       """)
+    Optional<StripeAccountView> findStripeAccountByKeycloakId(@Param("keycloakId") UUID keycloakId);
+
+    // Webhook events only name the Stripe account (idx_users_stripe_account_id)
+    @Query("""
+       SELECT u.id AS id, u.keycloakId AS keycloakId, u.accountType AS accountType,
+              u.stripeAccountId AS stripeAccountId, u.stripeAccountStatus AS stripeAccountStatus,
+              u.stripeOnboardingComplete AS stripeOnboardingComplete
+       FROM User u
+       WHERE u.stripeAccountId = :stripeAccountId
+       """)
+    List<StripeAccountView> findStripeAccountsByStripeAccountId(@Param("stripeAccountId") String stripeAccountId);
+
+    // Returns 0 when the stored values are already the same (no row version, no updated_at bump)
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+       UPDATE users SET
+           stripe_account_id = CAST(:accountId AS VARCHAR),
+           stripe_account_status = CAST(:status AS VARCHAR),
+           stripe_onboarding_complete = CAST(:onboardingComplete AS BOOLEAN)
+       WHERE id = :id
+         AND (stripe_account_id IS DISTINCT FROM CAST(:accountId AS VARCHAR)
+              OR stripe_account_status IS DISTINCT FROM CAST(:status AS VARCHAR)
+              OR stripe_onboarding_complete IS DISTINCT FROM CAST(:onboardingComplete AS BOOLEAN))
+       """, nativeQuery = true)
+    int updateStripeAccount(@Param("id") Long id,
+                            @Param("accountId") String accountId,
+                            @Param("status") String status,
+                            @Param("onboardingComplete") Boolean onboardingComplete);
+
+    // user_professions rows go with the user (ON DELETE CASCADE)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    // If-Match delete: 0 when the profile changed since (or is gone)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.id = :id AND u.version = :version")
+    int deleteUserByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Query("SELECT u.id AS id, u.keycloakId AS keycloakId FROM User u WHERE u.id IN :ids")
+    List<UserKeycloakIdView> findKeycloakIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Must be consumed inside a (read-only) transaction and closed by the caller
+    @Query("SELECT u.id AS id, u.keycloakId AS keycloakId FROM User u")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "5000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<UserKeycloakIdView> streamAllKeycloakIds();
+
+    // Producers and restaurants with their searchable text; same contract as streamAllKeycloakIds
+    @Query("""
+       SELECT u.id AS id, u.accountType AS accountType, u.biography AS biography, u.awards AS awards,
+              u.hygieneCertifications AS hygieneCertifications, u.cuisineType AS cuisineType
+       FROM User u
+       WHERE u.accountType <> org.igdevx.spring_boot_account_microservice.model.AccountType.CONSUMER
+       """)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<SearchableProfileView> streamSearchableProfiles();
+
+    // Producers and restaurants with their facet columns; same contract as streamAllKeycloakIds
+    @Query("""
+       SELECT u.id AS id, u.accountType AS accountType, u.cuisineType AS cuisineType, u.serviceType AS serviceType,
+              u.organizationType AS organizationType, u.installationYear AS installationYear
+       FROM User u
+       WHERE u.accountType <> org.igdevx.spring_boot_account_microservice.model.AccountType.CONSUMER
+       """)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "5000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<FacetProfileView> streamFacetProfiles();
+
+    // Every user_professions row; same contract as streamAllKeycloakIds
+    @Query("SELECT u.id AS userId, p.id AS professionId FROM User u JOIN u.professions p")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "5000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<UserProfessionView> streamAllUserProfessions();
+
+    // ===== Direct user_professions writes =====
+    // Pending entity changes are flushed first; the loaded User.professions collection is not updated.
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+       INSERT INTO user_professions (user_id, profession_id)
+       SELECT :userId, p.id FROM professions p WHERE p.id IN (:professionIds)
+       ON CONFLICT DO NOTHING
+       """, nativeQuery = true)
+    int addProfessions(@Param("userId") Long userId, @Param("professionIds") Collection<Long> professionIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM user_professions WHERE user_id = :userId AND profession_id IN (:professionIds)",
+           nativeQuery = true)
+    int removeProfessions(@Param("userId") Long userId, @Param("professionIds") Collection<Long> professionIds);
+}
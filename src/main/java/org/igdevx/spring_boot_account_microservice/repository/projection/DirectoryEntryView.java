@@ -0,0 +1,8 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+// One directory row: only columns held by the partial directory indexes (no heap access needed)
+public record DirectoryEntryView(Long id, AccountType accountType, String serviceType, String cuisineType,
+                                 String organizationType) {
+}
@@ -0,0 +1,13 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+// Scalar projection of the columns counted by the directory facets
+public interface FacetProfileView {
+    Long getId();
+    AccountType getAccountType();
+    String getCuisineType();
+    String getServiceType();
+    String getOrganizationType();
+    Integer getInstallationYear();
+}
@@ -0,0 +1,16 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+// Scalar projection of the columns shown on a producer public profile (professions are read separately)
+public interface ProducerPublicProfileView {
+    Long getId();
+    String getBiography();
+    String getWebsite();
+    String getFacebook();
+    String getInstagram();
+    String getLinkedin();
+    String getSiret();
+    String getOrganizationType();
+    Integer getInstallationYear();
+    Integer getEmployeesCount();
+    Long getVersion();
+}
@@ -0,0 +1,9 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import java.time.LocalDateTime;
+
+// The columns the users triggers move on user_professions writes (V5/V6), read back for the response
+public interface ProfileStampView {
+    Long getVersion();
+    LocalDateTime getUpdatedAt();
+}
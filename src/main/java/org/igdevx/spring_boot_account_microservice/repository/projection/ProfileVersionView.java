@@ -0,0 +1,5 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+// What a conditional request compares with its ETag, read without the rest of the profile
+public record ProfileVersionView(Long id, Long version) {
+}
@@ -0,0 +1,19 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+// Scalar projection of the columns shown on a restaurant public profile (no professions join)
+public interface RestaurantPublicProfileView {
+    Long getId();
+    AccountType getAccountType();
+    String getBiography();
+    String getWebsite();
+    String getFacebook();
+    String getInstagram();
+    String getLinkedin();
+    String getServiceType();
+    String getCuisineType();
+    String getHygieneCertifications();
+    String getAwards();
+    Long getVersion();
+}
@@ -0,0 +1,13 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+// Scalar projection of the columns indexed for full-text search
+public interface SearchableProfileView {
+    Long getId();
+    AccountType getAccountType();
+    String getBiography();
+    String getAwards();
+    String getHygieneCertifications();
+    String getCuisineType();
+}
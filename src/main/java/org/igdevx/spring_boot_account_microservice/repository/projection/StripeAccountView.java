@@ -0,0 +1,16 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+import java.util.UUID;
+
+// Scalar projection of the columns used by Stripe Connect operations
+// (identity, account type for the Stripe metadata, and the stripe_* columns)
+public interface StripeAccountView {
+    Long getId();
+    UUID getKeycloakId();
+    AccountType getAccountType();
+    String getStripeAccountId();
+    String getStripeAccountStatus();
+    Boolean getStripeOnboardingComplete();
+}
@@ -0,0 +1,9 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+import java.util.UUID;
+
+// Scalar projection of the id <-> keycloak_id mapping (no join, no TEXT columns)
+public interface UserKeycloakIdView {
+    Long getId();
+    UUID getKeycloakId();
+}
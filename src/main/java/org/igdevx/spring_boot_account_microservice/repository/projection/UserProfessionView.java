@@ -0,0 +1,7 @@
+package org.igdevx.spring_boot_account_microservice.repository.projection;
+
+// One user_professions row
+public interface UserProfessionView {
+    Long getUserId();
+    Long getProfessionId();
+}
@@ -0,0 +1,274 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryFacetsResponse;
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory counts behind the directory filter sidebar (GET /directory/facets), so no GROUP BY runs per page view.
+ *
+ * The facet values of every producer and restaurant are remembered per user, so a committed profile change
+ * is applied as a delta (-1 on the old values, +1 on the new ones) to {@link LongAdder} counters. Changes of
+ * different users update the counters concurrently; changes of one user are serialized by its map entry.
+ * The whole state is rebuilt from the database at startup and every {@code account.facets.reconcile-interval},
+ * which also repairs any drift (e.g. a change made outside this service).
+ */
+@Component
+public class DirectoryFacetCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryFacetCounter.class);
+
+    enum Facet { CUISINE_TYPE, SERVICE_TYPE, ORGANIZATION_TYPE, PROFESSION, INSTALLATION_YEAR }
+
+    // Facet values of one user; null values and empty sets are not counted
+    record Membership(String cuisineType, String serviceType, String organizationType,
+                      Set<Long> professionIds, String installationYear) {
+
+        static Membership of(AccountType accountType, String cuisineType, String serviceType,
+                             String organizationType, Set<Long> professionIds, Integer installationYear) {
+            if (accountType == AccountType.RESTAURANT) {
+                return new Membership(cuisineType, serviceType, null, Set.of(), null);
+            }
+            if (accountType == AccountType.PRODUCER) {
+                return new Membership(null, null, organizationType, Set.copyOf(professionIds),
+                        installationYear != null ? decade(installationYear) : null);
+            }
+            return null;
+        }
+
+        private static String decade(int year) {
+            int start = Math.floorDiv(year, 10) * 10;
+            return start + "-" + (start + 9);
+        }
+    }
+
+    private static final class State {
+        final Map<Long, Membership> members = new ConcurrentHashMap<>();
+        final Map<Facet, Map<String, LongAdder>> counts = new EnumMap<>(Facet.class);
+
+        State() {
+            for (Facet facet : Facet.values()) {
+                counts.put(facet, new ConcurrentHashMap<>());
+            }
+        }
+
+        void apply(long userId, Membership membership) {
+            if (membership == null) {
+                members.computeIfPresent(userId, (id, old) -> {
+                    count(old, -1);
+                    return null;
+                });
+                return;
+            }
+            members.compute(userId, (id, old) -> {
+                if (!membership.equals(old)) {
+                    count(old, -1);
+                    count(membership, 1);
+                }
+                return membership;
+            });
+        }
+
+        private void count(Membership membership, int delta) {
+            if (membership == null) {
+                return;
+            }
+            count(Facet.CUISINE_TYPE, membership.cuisineType(), delta);
+            count(Facet.SERVICE_TYPE, membership.serviceType(), delta);
+            count(Facet.ORGANIZATION_TYPE, membership.organizationType(), delta);
+            count(Facet.INSTALLATION_YEAR, membership.installationYear(), delta);
+            for (Long professionId : membership.professionIds()) {
+                count(Facet.PROFESSION, professionId.toString(), delta);
+            }
+        }
+
+        private void count(Facet facet, String value, int delta) {
+            if (value != null) {
+                counts.get(facet).computeIfAbsent(value, v -> new LongAdder()).add(delta);
+            }
+        }
+
+        // Positive counts per value, sorted by value
+        Map<String, Long> snapshot(Facet facet) {
+            Map<String, Long> snapshot = new TreeMap<>();
+            counts.get(facet).forEach((value, adder) -> {
+                long count = adder.sum();
+                if (count > 0) {
+                    snapshot.put(value, count);
+                }
+            });
+            return snapshot;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Counter driftCounter;
+
+    // Writers (profile changes) share the read lock and only exclude the swap of a reconciliation
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private volatile State state = new State();
+    // changes committed while a reconciliation is reading the database (null otherwise)
+    private volatile ConcurrentLinkedQueue<UserProfileChangedEvent> pendingChanges;
+
+    public DirectoryFacetCounter(UserRepository userRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${account.facets.enabled:true}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.driftCounter = Counter.builder("account.directory_facets.reconcile_drift")
+                .description("Facet counts corrected by a reconciliation with the database")
+                .register(meterRegistry);
+    }
+
+    // O(number of facet values): no query
+    public DirectoryFacetsResponse facets() {
+        State current = state;
+        return DirectoryFacetsResponse.builder()
+                .cuisineType(current.snapshot(Facet.CUISINE_TYPE))
+                .serviceType(current.snapshot(Facet.SERVICE_TYPE))
+                .organizationType(current.snapshot(Facet.ORGANIZATION_TYPE))
+                .profession(current.snapshot(Facet.PROFESSION))
+                .installationYear(current.snapshot(Facet.INSTALLATION_YEAR))
+                .build();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            state.apply(event.getUserId(), membershipOf(event));
+            ConcurrentLinkedQueue<UserProfileChangedEvent> pending = pendingChanges;
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${account.facets.reconcile-interval:PT15M}",
+               initialDelayString = "${account.facets.reconcile-interval:PT15M}")
+    public void reconcile() {
+        if (!enabled || !reconcileLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            pendingChanges = new ConcurrentLinkedQueue<>();
+            State fresh = load();
+
+            State previous;
+            swapLock.writeLock().lock();
+            try {
+                for (UserProfileChangedEvent event : pendingChanges) {
+                    fresh.apply(event.getUserId(), membershipOf(event));
+                }
+                previous = state;
+                state = fresh;
+            } finally {
+                pendingChanges = null;
+                swapLock.writeLock().unlock();
+            }
+
+            long drift = drift(previous, fresh);
+            if (drift > 0) {
+                driftCounter.increment(drift);
+                log.info("Directory facet counts corrected by {} during reconciliation", drift);
+            }
+            log.debug("Reconciled directory facets of {} profiles in {} ms",
+                    fresh.members.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            pendingChanges = null;
+            log.warn("Could not reconcile the directory facet counts: {}", e.getMessage());
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private State load() {
+        State fresh = new State();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Map<Long, List<Long>> professionIds = new HashMap<>();
+            try (var rows = userRepository.streamAllUserProfessions()) {
+                rows.forEach(row -> professionIds.computeIfAbsent(row.getUserId(), id -> new ArrayList<>())
+                        .add(row.getProfessionId()));
+            }
+            try (var rows = userRepository.streamFacetProfiles()) {
+                rows.forEach(row -> fresh.apply(row.getId(), Membership.of(row.getAccountType(),
+                        row.getCuisineType(), row.getServiceType(), row.getOrganizationType(),
+                        Set.copyOf(professionIds.getOrDefault(row.getId(), List.of())), row.getInstallationYear())));
+            }
+        });
+        return fresh;
+    }
+
+    private static Membership membershipOf(UserProfileChangedEvent event) {
+        if (event.isDeletion()) {
+            return null;
+        }
+        UserProfileResponse profile = event.getProfile();
+        Set<Long> professionIds = profile.getProfessions() == null ? Set.of()
+                : profile.getProfessions().stream().map(ProfessionDto::getId).collect(Collectors.toSet());
+        return Membership.of(profile.getAccountType(), profile.getCuisineType(), profile.getServiceType(),
+                profile.getOrganizationType(), professionIds, profile.getInstallationYear());
+    }
+
+    // Sum of the absolute count differences between two states
+    private static long drift(State previous, State fresh) {
+        long drift = 0;
+        for (Facet facet : Facet.values()) {
+            Map<String, Long> before = previous.snapshot(facet);
+            Map<String, Long> after = fresh.snapshot(facet);
+            for (String value : before.keySet()) {
+                drift += Math.abs(before.get(value) - after.getOrDefault(value, 0L));
+            }
+            for (String value : after.keySet()) {
+                if (!before.containsKey(value)) {
+                    drift += after.get(value);
+                }
+            }
+        }
+        // the first load is not a correction
+        return previous.members.isEmpty() ? 0 : drift;
+    }
+}
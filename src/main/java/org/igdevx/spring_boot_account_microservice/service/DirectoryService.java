@@ -0,0 +1,69 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryEntryResponse;
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryFacetsResponse;
+import org.igdevx.spring_boot_account_microservice.dto.DirectoryPageResponse;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.DirectoryEntryView;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Restaurant and producer directory, paginated by keyset on the user ID.
+ * Pages are read from the partial account_type indexes, so their cost does not depend on the cursor depth.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DirectoryService {
+
+    private final UserRepository userRepository;
+    private final DirectoryFacetCounter directoryFacetCounter;
+
+    public DirectoryService(UserRepository userRepository, DirectoryFacetCounter directoryFacetCounter) {
+        this.userRepository = userRepository;
+        this.directoryFacetCounter = directoryFacetCounter;
+    }
+
+    public DirectoryPageResponse getRestaurants(String cuisineType, String serviceType, Long after, int limit) {
+        // One extra row tells whether there is a next page
+        return toPage(userRepository.findRestaurantDirectory(
+                blankToNull(cuisineType), blankToNull(serviceType), after != null ? after : 0L, limit + 1), limit);
+    }
+
+    public DirectoryPageResponse getProducers(String organizationType, Long after, int limit) {
+        return toPage(userRepository.findProducerDirectory(
+                blankToNull(organizationType), after != null ? after : 0L, limit + 1), limit);
+    }
+
+    // Served from the in-memory facet counters
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DirectoryFacetsResponse getFacets() {
+        return directoryFacetCounter.facets();
+    }
+
+    private DirectoryPageResponse toPage(List<DirectoryEntryView> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<DirectoryEntryView> page = hasMore ? rows.subList(0, limit) : rows;
+        return DirectoryPageResponse.builder()
+                .items(page.stream().map(DirectoryService::toResponse).toList())
+                .nextCursor(hasMore ? page.get(page.size() - 1).id() : null)
+                .build();
+    }
+
+    private static DirectoryEntryResponse toResponse(DirectoryEntryView view) {
+        return DirectoryEntryResponse.builder()
+                .id(view.id())
+                .accountType(view.accountType())
+                .serviceType(view.serviceType())
+                .cuisineType(view.cuisineType())
+                .organizationType(view.organizationType())
+                .build();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,211 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index with BM25 ranking over one document per user. Not thread-safe: see {@link ProfileSearchIndex}.
+ *
+ * Documents live in slots; postings are parallel int arrays of (slot, term frequency). Replacing or removing
+ * a document tombstones its slot (postings are not rewritten), and the index is compacted once more than
+ * half of the slots are dead.
+ */
+final class InvertedIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private static final int MIN_COMPACTION_SLOTS = 1024;
+
+    record Hit(long userId, AccountType accountType, double score) {
+    }
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        // postings whose slot is still alive (the document frequency)
+        int live;
+
+        void add(int slot, int freq) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            slots[size] = slot;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> slotByUser = new HashMap<>();
+
+    // per slot; a negative length marks a dead slot
+    private long[] userIds = new long[64];
+    private AccountType[] accountTypes = new AccountType[64];
+    private int[] lengths = new int[64];
+    private String[][] slotTerms = new String[64][];
+
+    private int slotCount;
+    private int liveDocs;
+    private long liveLength;
+
+    int size() {
+        return liveDocs;
+    }
+
+    int termCount() {
+        return postings.size();
+    }
+
+    // Index (or re-index) the document of a user; a document without terms is just removed
+    void put(long userId, AccountType accountType, List<String> terms) {
+        remove(userId);
+        if (terms.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> freqs = new LinkedHashMap<>();
+        for (String term : terms) {
+            freqs.merge(term, 1, Integer::sum);
+        }
+
+        int slot = slotCount++;
+        ensureCapacity(slotCount);
+        userIds[slot] = userId;
+        accountTypes[slot] = accountType;
+        lengths[slot] = terms.size();
+        slotTerms[slot] = freqs.keySet().toArray(new String[0]);
+        freqs.forEach((term, freq) -> postings.computeIfAbsent(term, t -> new Postings()).add(slot, freq));
+
+        slotByUser.put(userId, slot);
+        liveDocs++;
+        liveLength += terms.size();
+    }
+
+    boolean remove(long userId) {
+        Integer slot = slotByUser.remove(userId);
+        if (slot == null) {
+            return false;
+        }
+        for (String term : slotTerms[slot]) {
+            Postings termPostings = postings.get(term);
+            if (--termPostings.live == 0) {
+                postings.remove(term);
+            }
+        }
+        liveDocs--;
+        liveLength -= lengths[slot];
+        lengths[slot] = -1;
+        slotTerms[slot] = null;
+        accountTypes[slot] = null;
+
+        if (slotCount >= MIN_COMPACTION_SLOTS && liveDocs * 2 < slotCount) {
+            compact();
+        }
+        return true;
+    }
+
+    // Top documents by BM25 score, optionally restricted to one account type
+    List<Hit> search(List<String> queryTerms, AccountType accountType, int limit) {
+        if (liveDocs == 0 || queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        double averageLength = (double) liveLength / liveDocs;
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(queryTerms)) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (liveDocs - termPostings.live + 0.5) / (termPostings.live + 0.5));
+            for (int i = 0; i < termPostings.size; i++) {
+                int slot = termPostings.slots[i];
+                int length = lengths[slot];
+                if (length < 0 || (accountType != null && accountTypes[slot] != accountType)) {
+                    continue;
+                }
+                int freq = termPostings.freqs[i];
+                double score = idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / averageLength));
+                scores.merge(slot, score, Double::sum);
+            }
+        }
+
+        // min-heap of the best slots: lowest score (then highest user ID) on top
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(entry -> -userIds[entry.getKey()]);
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<Integer, Double> entry = top.poll();
+            hits.add(new Hit(userIds[entry.getKey()], accountTypes[entry.getKey()], entry.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    // Renumber the live slots and drop the postings of dead ones
+    private void compact() {
+        int[] newSlot = new int[slotCount];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (lengths[slot] < 0) {
+                newSlot[slot] = -1;
+                continue;
+            }
+            newSlot[slot] = live;
+            userIds[live] = userIds[slot];
+            accountTypes[live] = accountTypes[slot];
+            lengths[live] = lengths[slot];
+            slotTerms[live] = slotTerms[slot];
+            slotByUser.put(userIds[live], live);
+            live++;
+        }
+        Arrays.fill(accountTypes, live, slotCount, null);
+        Arrays.fill(slotTerms, live, slotCount, null);
+        slotCount = live;
+
+        for (Postings termPostings : postings.values()) {
+            int kept = 0;
+            for (int i = 0; i < termPostings.size; i++) {
+                int slot = newSlot[termPostings.slots[i]];
+                if (slot >= 0) {
+                    termPostings.slots[kept] = slot;
+                    termPostings.freqs[kept] = termPostings.freqs[i];
+                    kept++;
+                }
+            }
+            termPostings.size = kept;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= userIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, userIds.length * 2);
+        userIds = Arrays.copyOf(userIds, newCapacity);
+        accountTypes = Arrays.copyOf(accountTypes, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+        slotTerms = Arrays.copyOf(slotTerms, newCapacity);
+    }
+}
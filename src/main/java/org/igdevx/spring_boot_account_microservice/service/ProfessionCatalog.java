@@ -0,0 +1,146 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.model.Profession;
+import org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Immutable, versioned snapshot of the professions table.
+ *
+ * The catalog is tiny and nearly static, so it is read once and then re-read periodically
+ * (account.professions.refresh-interval); a new snapshot is only published when the content changed.
+ * The {@link ProfessionDto} instances of the snapshot are shared by every response that lists professions.
+ * Each snapshot carries its own {@link ProfessionSuggestIndex}, so autocomplete switches to new content atomically.
+ */
+@Service
+public class ProfessionCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfessionCatalog.class);
+
+    private final ProfessionRepository professionRepository;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public ProfessionCatalog(ProfessionRepository professionRepository) {
+        this.professionRepository = professionRepository;
+    }
+
+    public record Snapshot(long version, String etag, List<ProfessionDto> professions, Map<Long, ProfessionDto> byId,
+                           ProfessionSuggestIndex suggestIndex) {
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    public Optional<ProfessionDto> findById(Long id) {
+        return Optional.ofNullable(snapshot().byId().get(id));
+    }
+
+    public List<ProfessionDto> suggest(String query, ProfessionSuggestIndex.Lang lang, int limit) {
+        return snapshot().suggestIndex().suggest(query, lang, limit);
+    }
+
+    // Shared DTO for the profession, or a new one if the snapshot does not know it (yet)
+    public ProfessionDto toDto(Profession profession) {
+        ProfessionDto shared = snapshot().byId().get(profession.getId());
+        if (shared != null
+                && Objects.equals(shared.getCode(), profession.getCode())
+                && Objects.equals(shared.getNameEn(), profession.getNameEn())
+                && Objects.equals(shared.getNameFr(), profession.getNameFr())) {
+            return shared;
+        }
+        return newDto(profession);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${account.professions.refresh-interval:PT5M}",
+               initialDelayString = "${account.professions.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the profession catalog: {}", e.getMessage());
+        }
+    }
+
+    public Snapshot reload() {
+        reloadLock.lock();
+        try {
+            return doReload();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Snapshot doReload() {
+        Snapshot previous = snapshot;
+        List<Profession> professions = professionRepository.findAll(Sort.by("id"));
+
+        List<ProfessionDto> dtos = new ArrayList<>(professions.size());
+        Map<Long, ProfessionDto> byId = new LinkedHashMap<>();
+        for (Profession profession : professions) {
+            ProfessionDto dto = newDto(profession);
+            // keep the previous instance when nothing changed so that references stay stable
+            if (previous != null && dto.equals(previous.byId().get(dto.getId()))) {
+                dto = previous.byId().get(dto.getId());
+            }
+            dtos.add(dto);
+            byId.put(dto.getId(), dto);
+        }
+
+        String etag = etag(dtos);
+        if (previous != null && previous.etag().equals(etag)) {
+            return previous;
+        }
+
+        Snapshot next = new Snapshot(previous != null ? previous.version() + 1 : 1,
+                etag, List.copyOf(dtos), Map.copyOf(byId), new ProfessionSuggestIndex(dtos));
+        snapshot = next;
+        log.info("Loaded profession catalog version {} ({} professions)", next.version(), dtos.size());
+        return next;
+    }
+
+    private static ProfessionDto newDto(Profession profession) {
+        return ProfessionDto.builder()
+                .id(profession.getId())
+                .code(profession.getCode())
+                .nameEn(profession.getNameEn())
+                .nameFr(profession.getNameFr())
+                .build();
+    }
+
+    // Strong ETag derived from the catalog content
+    private static String etag(List<ProfessionDto> professions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ProfessionDto dto : professions) {
+                digest.update((dto.getId() + "\u0000" + dto.getCode() + "\u0000" + dto.getNameEn()
+                        + "\u0000" + dto.getNameFr() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable prefix index over profession names, built with each catalog snapshot.
+ *
+ * Names are accent-folded and lower-cased ("Oléiculteur" -> "oleiculteur"). Every folded name is stored
+ * in a sorted array, once from its first word and once from each following word, so a lookup is a binary
+ * search for the first key >= the folded query followed by a scan while keys start with it.
+ * Matches on the start of the name come before matches on a later word.
+ */
+public final class ProfessionSuggestIndex {
+
+    public enum Lang { EN, FR, ALL }
+
+    private final ProfessionDto[] professions;
+    private final Tier[] tiers = new Tier[Lang.values().length];
+
+    public ProfessionSuggestIndex(List<ProfessionDto> professions) {
+        this.professions = professions.toArray(new ProfessionDto[0]);
+        tiers[Lang.EN.ordinal()] = build(List.of(ProfessionDto::getNameEn));
+        tiers[Lang.FR.ordinal()] = build(List.of(ProfessionDto::getNameFr));
+        tiers[Lang.ALL.ordinal()] = build(List.of(ProfessionDto::getNameFr, ProfessionDto::getNameEn));
+    }
+
+    // Up to limit professions whose name (or a word of it) starts with the query, name starts first
+    public List<ProfessionDto> suggest(String query, Lang lang, int limit) {
+        String prefix = TextFolding.fold(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Tier tier = tiers[lang.ordinal()];
+        Set<ProfessionDto> matches = new LinkedHashSet<>();
+        collect(tier.nameStarts, prefix, limit, matches);
+        collect(tier.wordStarts, prefix, limit, matches);
+        return List.copyOf(matches);
+    }
+
+    private void collect(Keys keys, String prefix, int limit, Set<ProfessionDto> matches) {
+        int i = lowerBound(keys.keys, prefix);
+        while (i < keys.keys.length && matches.size() < limit && keys.keys[i].startsWith(prefix)) {
+            matches.add(professions[keys.professionIndexes[i]]);
+            i++;
+        }
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Tier build(List<Function<ProfessionDto, String>> names) {
+        List<Entry> nameStarts = new ArrayList<>();
+        List<Entry> wordStarts = new ArrayList<>();
+        for (int p = 0; p < professions.length; p++) {
+            for (Function<ProfessionDto, String> name : names) {
+                String folded = TextFolding.fold(name.apply(professions[p]));
+                if (folded.isEmpty()) {
+                    continue;
+                }
+                nameStarts.add(new Entry(folded, p));
+                for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+                    wordStarts.add(new Entry(folded.substring(i + 1), p));
+                }
+            }
+        }
+        return new Tier(Keys.of(nameStarts), Keys.of(wordStarts));
+    }
+
+    private record Entry(String key, int professionIndex) {
+    }
+
+    private record Tier(Keys nameStarts, Keys wordStarts) {
+    }
+
+    // Sorted keys with the index of their profession in a parallel array
+    private record Keys(String[] keys, int[] professionIndexes) {
+
+        static Keys of(List<Entry> entries) {
+            Entry[] sorted = entries.toArray(new Entry[0]);
+            Arrays.sort(sorted, Comparator.comparing(Entry::key).thenComparingInt(Entry::professionIndex));
+            String[] keys = new String[sorted.length];
+            int[] professionIndexes = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = sorted[i].key();
+                professionIndexes[i] = sorted[i].professionIndex();
+            }
+            return new Keys(keys, professionIndexes);
+        }
+    }
+}
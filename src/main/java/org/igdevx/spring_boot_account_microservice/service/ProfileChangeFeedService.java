@@ -0,0 +1,205 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfileChangeResponse;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileChangesResponse;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Incremental feed of profile changes for services that keep a copy of the profiles (GET /internal/changes).
+ *
+ * Changes are ordered by (updated_at, id) for users and (deleted_at, user_id) for tombstones, which the database
+ * stamps on every write (triggers of V5, including profession changes and deletes from any code path). A page
+ * is two keyset range scans on the matching indexes merged in that order, and the opaque cursor is the position
+ * of its last change.
+ *
+ * Timestamps are taken when the writing transaction starts, so a transaction still running could commit behind a
+ * cursor already handed out, however long it runs. A page therefore stops before the start of the oldest
+ * transaction in flight on the database (pg_stat_activity, read in its own statement before the scans): whatever
+ * commits later started after that point. The database role must see the other sessions' activity: startup fails
+ * without pg_read_all_stats (or superuser) unless {@code account.changes.require-activity-visibility} is turned
+ * off, for deployments where every writer connects with the service's own role. A transaction left open holds the
+ * feed back until it ends; this service's own long read-only transactions (the NDJSON export) set
+ * {@link #READ_ONLY_APPLICATION_NAME} and are ignored, as they cannot write. The horizon is compared as a
+ * timestamptz, so it does not depend on the session time zone or on DST. Tombstones are kept for
+ * {@code account.changes.tombstone-retention}; a consumer further behind must resync from GET
+ * /internal/export.ndjson.
+ */
+@Service
+public class ProfileChangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileChangeFeedService.class);
+
+    // application_name set (SET LOCAL) by read-only transactions that may run for long, left out of the horizon
+    public static final String READ_ONLY_APPLICATION_NAME = "account-service-read-only";
+
+    // Nothing can commit behind this point any more; client backends only (autovacuum also has an xact_start)
+    private static final String HORIZON_SQL = """
+            SELECT LEAST(CURRENT_TIMESTAMP, MIN(a.xact_start))
+            FROM pg_stat_activity a
+            WHERE a.datname = current_database()
+              AND a.backend_type = 'client backend'
+              AND a.xact_start IS NOT NULL
+              AND a.application_name IS DISTINCT FROM '%s'
+            """.formatted(READ_ONLY_APPLICATION_NAME);
+
+    // Without it, pg_stat_activity hides the xact_start of the sessions of other roles
+    private static final String ACTIVITY_VISIBILITY_SQL =
+            "SELECT pg_has_role(current_user, 'pg_read_all_stats', 'USAGE')";
+
+    private static final String USERS_SQL = "SELECT " + ProfileRowMapper.COLUMNS + """
+             FROM users u
+            WHERE (u.updated_at, u.id) > (?, ?)
+              AND u.updated_at < CAST(? AS timestamptz)
+            ORDER BY u.updated_at, u.id
+            LIMIT ?
+            """;
+
+    private static final String TOMBSTONES_SQL = """
+            SELECT t.user_id, t.keycloak_id, t.deleted_at
+            FROM user_tombstones t
+            WHERE (t.deleted_at, t.user_id) > (?, ?)
+              AND t.deleted_at < CAST(? AS timestamptz)
+            ORDER BY t.deleted_at, t.user_id
+            LIMIT ?
+            """;
+
+    private static final Comparator<ProfileChangeResponse> FEED_ORDER =
+            Comparator.comparing(ProfileChangeResponse::getChangedAt).thenComparing(ProfileChangeResponse::getUserId);
+
+    // Position after a change; the start of the feed is before any change
+    record ChangeCursor(LocalDateTime changedAt, long userId) {
+
+        static final ChangeCursor START = new ChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+        static ChangeCursor of(ProfileChangeResponse change) {
+            return new ChangeCursor(change.getChangedAt(), change.getUserId());
+        }
+
+        static ChangeCursor decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf('|');
+                return new ChangeCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new BadRequestException("Invalid cursor: " + cursor);
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((changedAt + "|" + userId).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProfileRowMapper rowMapper;
+    private final Duration tombstoneRetention;
+    private final boolean requireActivityVisibility;
+
+    public ProfileChangeFeedService(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ProfessionCatalog professionCatalog,
+                                    @Value("${account.changes.tombstone-retention:P30D}") Duration tombstoneRetention,
+                                    @Value("${account.changes.require-activity-visibility:true}")
+                                    boolean requireActivityVisibility) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rowMapper = new ProfileRowMapper(professionCatalog);
+        this.tombstoneRetention = tombstoneRetention;
+        this.requireActivityVisibility = requireActivityVisibility;
+    }
+
+    // The horizon silently misses the transactions it cannot see: refuse to start rather than serve a feed
+    // that can skip changes
+    @PostConstruct
+    public void checkActivityVisibility() {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(ACTIVITY_VISIBILITY_SQL, Boolean.class))) {
+            return;
+        }
+        if (requireActivityVisibility) {
+            throw new IllegalStateException("The database role cannot see the transactions of other roles in "
+                    + "pg_stat_activity, so GET /internal/changes could skip changes: GRANT pg_read_all_stats to it, "
+                    + "or set account.changes.require-activity-visibility=false if every writer uses this role");
+        }
+        log.warn("The database role is not a member of pg_read_all_stats: the change feed assumes that every "
+                + "writer connects with it");
+    }
+
+    // Up to limit changes after the cursor (from the start of the feed when null), oldest first
+    public ProfileChangesResponse getChanges(String cursor, int limit) {
+        ChangeCursor after = cursor == null || cursor.isBlank() ? ChangeCursor.START : ChangeCursor.decode(cursor);
+
+        List<ProfileChangeResponse> changes = readOnlyTransaction.execute(status -> {
+            OffsetDateTime horizon = jdbcTemplate.queryForObject(HORIZON_SQL, OffsetDateTime.class);
+            List<ProfileChangeResponse> merged = new ArrayList<>();
+            for (UserProfileResponse profile : jdbcTemplate.query(USERS_SQL, rowMapper,
+                    after.changedAt(), after.userId(), horizon, limit + 1)) {
+                merged.add(ProfileChangeResponse.builder()
+                        .type(ProfileChangeResponse.Type.UPSERT)
+                        .userId(profile.getId())
+                        .keycloakId(profile.getKeycloakId())
+                        .changedAt(profile.getUpdatedAt())
+                        .profile(profile)
+                        .build());
+            }
+            merged.addAll(jdbcTemplate.query(TOMBSTONES_SQL, (rs, rowNum) -> ProfileChangeResponse.builder()
+                            .type(ProfileChangeResponse.Type.DELETE)
+                            .userId(rs.getLong("user_id"))
+                            .keycloakId(rs.getObject("keycloak_id", UUID.class).toString())
+                            .changedAt(rs.getObject("deleted_at", LocalDateTime.class))
+                            .build(),
+                    after.changedAt(), after.userId(), horizon, limit + 1));
+            merged.sort(FEED_ORDER);
+            return merged;
+        });
+
+        boolean hasMore = changes.size() > limit;
+        List<ProfileChangeResponse> page = hasMore ? changes.subList(0, limit) : changes;
+        ChangeCursor next = page.isEmpty() ? after : ChangeCursor.of(page.get(page.size() - 1));
+        return ProfileChangesResponse.builder()
+                .changes(List.copyOf(page))
+                .nextCursor(next.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${account.changes.tombstone-purge-interval:PT6H}",
+               initialDelayString = "${account.changes.tombstone-purge-interval:PT6H}")
+    public void purgeTombstones() {
+        try {
+            int purged = jdbcTemplate.update(
+                    "DELETE FROM user_tombstones WHERE deleted_at < LOCALTIMESTAMP - make_interval(secs => ?)",
+                    (double) tombstoneRetention.toSeconds());
+            if (purged > 0) {
+                log.info("Purged {} user tombstones older than {}", purged, tombstoneRetention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not purge the user tombstones: {}", e.getMessage());
+        }
+    }
+}
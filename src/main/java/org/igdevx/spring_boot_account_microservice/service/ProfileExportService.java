@@ -0,0 +1,90 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * Streams every user profile as newline-delimited JSON.
+ *
+ * Rows are read through a server-side cursor (forward-only result set with a fetch size, inside a read-only
+ * transaction so that the PostgreSQL driver does not buffer the whole result) and each one is written before
+ * the next is read. No entity is loaded, so nothing accumulates in a persistence context and heap usage does
+ * not depend on the number of users. The transaction is tagged with
+ * {@link ProfileChangeFeedService#READ_ONLY_APPLICATION_NAME} so that, however long the stream, it does not
+ * hold back the horizon of the change feed.
+ */
+@Service
+public class ProfileExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileExportService.class);
+
+    private static final String EXPORT_SQL = "SELECT " + ProfileRowMapper.COLUMNS + " FROM users u";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProfileRowMapper rowMapper;
+    private final ObjectMapper objectMapper;
+
+    public ProfileExportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ProfessionCatalog professionCatalog,
+                                ObjectMapper objectMapper,
+                                @Value("${account.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rowMapper = new ProfileRowMapper(professionCatalog);
+        this.objectMapper = objectMapper;
+    }
+
+    // Write one JSON profile per line, ordered by ID; only users updated at or after updatedSince when given
+    public long exportNdjson(LocalDateTime updatedSince, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long[] rows = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            RowCallbackHandler writeRow = resultSet -> {
+                try {
+                    objectMapper.writeValue(generator, rowMapper.mapRow(resultSet, 0));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            };
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    jdbcTemplate.execute("SET LOCAL application_name = '"
+                            + ProfileChangeFeedService.READ_ONLY_APPLICATION_NAME + "'");
+                    if (updatedSince != null) {
+                        jdbcTemplate.query(EXPORT_SQL + " WHERE u.updated_at >= ? ORDER BY u.id", writeRow, updatedSince);
+                    } else {
+                        jdbcTemplate.query(EXPORT_SQL + " ORDER BY u.id", writeRow);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // most likely the client went away
+                throw e.getCause();
+            }
+        }
+        log.info("Exported {} profiles in {} ms", rows[0], System.currentTimeMillis() - start);
+        return rows[0];
+    }
+}
@@ -0,0 +1,109 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Subset of the {@link UserProfileResponse} properties requested with {@code fields=} (comma-separated names).
+ *
+ * Only the matching columns of users are selected, and user_professions is only read when professions is
+ * requested. The response is a JSON object with exactly these properties, in the order of UserProfileResponse.
+ */
+public final class ProfileFields {
+
+    enum Field {
+        ID("id", "id", UserProfileResponse::getId),
+        KEYCLOAK_ID("keycloakId", "keycloakId", UserProfileResponse::getKeycloakId),
+        ACCOUNT_TYPE("accountType", "accountType", UserProfileResponse::getAccountType),
+        BIOGRAPHY("biography", "biography", UserProfileResponse::getBiography),
+        WEBSITE("website", "website", UserProfileResponse::getWebsite),
+        FACEBOOK("facebook", "facebook", UserProfileResponse::getFacebook),
+        INSTAGRAM("instagram", "instagram", UserProfileResponse::getInstagram),
+        LINKEDIN("linkedin", "linkedin", UserProfileResponse::getLinkedin),
+        SIRET("siret", "siret", UserProfileResponse::getSiret),
+        ORGANIZATION_TYPE("organizationType", "organizationType", UserProfileResponse::getOrganizationType),
+        INSTALLATION_YEAR("installationYear", "installationYear", UserProfileResponse::getInstallationYear),
+        EMPLOYEES_COUNT("employeesCount", "employeesCount", UserProfileResponse::getEmployeesCount),
+        // Not a users column: read from user_professions
+        PROFESSIONS("professions", null, UserProfileResponse::getProfessions),
+        SERVICE_TYPE("serviceType", "serviceType", UserProfileResponse::getServiceType),
+        CUISINE_TYPE("cuisineType", "cuisineType", UserProfileResponse::getCuisineType),
+        HYGIENE_CERTIFICATIONS("hygieneCertifications", "hygieneCertifications", UserProfileResponse::getHygieneCertifications),
+        AWARDS("awards", "awards", UserProfileResponse::getAwards),
+        STRIPE_ACCOUNT_ID("stripeAccountId", "stripeAccountId", UserProfileResponse::getStripeAccountId),
+        STRIPE_ACCOUNT_STATUS("stripeAccountStatus", "stripeAccountStatus", UserProfileResponse::getStripeAccountStatus),
+        STRIPE_ONBOARDING_COMPLETE("stripeOnboardingComplete", "stripeOnboardingComplete", UserProfileResponse::getStripeOnboardingComplete),
+        CREATED_AT("createdAt", "createdAt", UserProfileResponse::getCreatedAt),
+        UPDATED_AT("updatedAt", "updatedAt", UserProfileResponse::getUpdatedAt),
+        VERSION("version", "version", UserProfileResponse::getVersion);
+
+        final String property;
+        // Attribute of the User entity, null when not a column of users
+        final String attribute;
+        final Function<UserProfileResponse, Object> getter;
+
+        Field(String property, String attribute, Function<UserProfileResponse, Object> getter) {
+            this.property = property;
+            this.attribute = attribute;
+            this.getter = getter;
+        }
+    }
+
+    private static final Map<String, Field> BY_PROPERTY = Arrays.stream(Field.values())
+            .collect(Collectors.toMap(field -> field.property, Function.identity()));
+
+    private final Set<Field> fields;
+
+    private ProfileFields(Set<Field> fields) {
+        this.fields = fields;
+    }
+
+    // Null when the parameter is absent or blank, i.e. the full profile is wanted
+    public static ProfileFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<Field> parsed = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            String property = name.trim();
+            if (property.isEmpty()) {
+                continue;
+            }
+            Field field = BY_PROPERTY.get(property);
+            if (field == null) {
+                throw new BadRequestException("Unknown field: " + property + " (allowed: "
+                        + Arrays.stream(Field.values()).map(f -> f.property).collect(Collectors.joining(",")) + ")");
+            }
+            parsed.add(field);
+        }
+        if (parsed.isEmpty()) {
+            throw new BadRequestException("fields must name at least one field");
+        }
+        return new ProfileFields(parsed);
+    }
+
+    Set<Field> fields() {
+        return fields;
+    }
+
+    public boolean includesProfessions() {
+        return fields.contains(Field.PROFESSIONS);
+    }
+
+    // The requested properties of an already loaded profile (e.g. from the profile cache)
+    public Map<String, Object> project(UserProfileResponse profile) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (Field field : fields) {
+            projected.put(field.property, field.getter.apply(profile));
+        }
+        return projected;
+    }
+}
@@ -0,0 +1,514 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileImportError;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileImportResponse;
+import org.igdevx.spring_boot_account_microservice.dto.ProfileImportRow;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bulk import of producer and restaurant profiles from a CSV or NDJSON upload (e.g. a regional cooperative).
+ *
+ * The upload is read one row at a time. Each row is validated on its own (Keycloak ID, account type, profession
+ * codes against the in-memory {@link ProfessionCatalog}) and valid rows are written in batches: one multi-row
+ * upsert into users, two set-based statements for user_professions and one read of the resulting versions,
+ * whatever the batch size. A row has the same effect as the matching POST /producer or POST /restaurant call
+ * (full replacement of the profile).
+ *
+ * Each batch commits on its own. When a batch statement fails, the batch is rolled back to a savepoint and its
+ * rows are retried one by one, so a bad row is reported without failing the rows around it.
+ */
+@Service
+public class ProfileImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileImportService.class);
+
+    // unnest() of one array per column: the statement text does not depend on the number of rows
+    private static final String UPSERT_USERS_SQL = """
+            INSERT INTO users (keycloak_id, biography, website, facebook, instagram, linkedin,
+                               siret, organization_type, installation_year, employees_count,
+                               service_type, cuisine_type, hygiene_certifications, awards, account_type)
+            SELECT * FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[],
+                                 ?::text[], ?::text[], ?::int[], ?::int[],
+                                 ?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+            ON CONFLICT (keycloak_id) DO UPDATE SET
+                biography = EXCLUDED.biography,
+                website = EXCLUDED.website,
+                facebook = EXCLUDED.facebook,
+                instagram = EXCLUDED.instagram,
+                linkedin = EXCLUDED.linkedin,
+                siret = EXCLUDED.siret,
+                organization_type = EXCLUDED.organization_type,
+                installation_year = EXCLUDED.installation_year,
+                employees_count = EXCLUDED.employees_count,
+                service_type = EXCLUDED.service_type,
+                cuisine_type = EXCLUDED.cuisine_type,
+                hygiene_certifications = EXCLUDED.hygiene_certifications,
+                awards = EXCLUDED.awards,
+                account_type = EXCLUDED.account_type
+            RETURNING id, keycloak_id, stripe_account_id, stripe_account_status, stripe_onboarding_complete,
+                      created_at, updated_at, version
+            """;
+
+    private static final String DELETE_PROFESSIONS_SQL =
+            "DELETE FROM user_professions WHERE user_id = ANY(?::bigint[])";
+
+    private static final String INSERT_PROFESSIONS_SQL = """
+            INSERT INTO user_professions (user_id, profession_id)
+            SELECT * FROM unnest(?::bigint[], ?::bigint[])
+            ON CONFLICT DO NOTHING
+            """;
+
+    // The user_professions triggers (V5/V6) bump version and updated_at again after the upsert
+    private static final String READ_STAMPS_SQL =
+            "SELECT id, version, updated_at FROM users WHERE id = ANY(?::bigint[])";
+
+    // CSV header -> row property
+    private static final Map<String, CsvColumn> CSV_COLUMNS = Map.ofEntries(
+            Map.entry("keycloakId", (row, value) -> row.setKeycloakId(value)),
+            Map.entry("biography", (row, value) -> row.setBiography(value)),
+            Map.entry("website", (row, value) -> row.setWebsite(value)),
+            Map.entry("facebook", (row, value) -> row.setFacebook(value)),
+            Map.entry("instagram", (row, value) -> row.setInstagram(value)),
+            Map.entry("linkedin", (row, value) -> row.setLinkedin(value)),
+            Map.entry("siret", (row, value) -> row.setSiret(value)),
+            Map.entry("organizationType", (row, value) -> row.setOrganizationType(value)),
+            Map.entry("installationYear", (row, value) -> row.setInstallationYear(parseInteger("installationYear", value))),
+            Map.entry("employeesCount", (row, value) -> row.setEmployeesCount(parseInteger("employeesCount", value))),
+            Map.entry("professions", (row, value) -> row.setProfessions(Arrays.asList(value.split("\\|")))),
+            Map.entry("serviceType", (row, value) -> row.setServiceType(value)),
+            Map.entry("cuisineType", (row, value) -> row.setCuisineType(value)),
+            Map.entry("hygieneCertifications", (row, value) -> row.setHygieneCertifications(value)),
+            Map.entry("awards", (row, value) -> row.setAwards(value)));
+
+    private interface CsvColumn {
+        // value is never empty (empty cells are left null)
+        void set(ProfileImportRow row, String value);
+    }
+
+    private static final class InvalidRowException extends RuntimeException {
+        InvalidRowException(String message) {
+            super(message);
+        }
+    }
+
+    // A validated row waiting for its batch
+    private record PendingRow(long line, UUID keycloakId, ProfileImportRow row, AccountType accountType,
+                              List<ProfessionDto> professions) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate batchTransaction;
+    private final ProfessionCatalog professionCatalog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectReader rowReader;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProfileImportService(DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ProfessionCatalog professionCatalog,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                @Value("${account.import.batch-size:500}") int batchSize,
+                                @Value("${account.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.professionCatalog = professionCatalog;
+        this.eventPublisher = eventPublisher;
+        this.rowReader = objectMapper.readerFor(ProfileImportRow.class);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    // CSV with a header line naming the columns (see ProfileImportRow); empty cells are null
+    public ProfileImportResponse importCsv(InputStream body) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<String> header = csv.next();
+        if (header == null || header.equals(List.of(""))) {
+            throw new BadRequestException("The CSV upload must start with a header line");
+        }
+        List<CsvColumn> columns = new ArrayList<>(header.size());
+        for (String name : header) {
+            CsvColumn column = CSV_COLUMNS.get(name.strip());
+            if (column == null) {
+                throw new BadRequestException("Unknown CSV column: " + name + " (expected some of " + CSV_COLUMNS.keySet() + ")");
+            }
+            columns.add(column);
+        }
+        if (!header.stream().map(String::strip).toList().contains("keycloakId")) {
+            throw new BadRequestException("The CSV upload must have a keycloakId column");
+        }
+
+        Import run = new Import();
+        try {
+            for (List<String> fields = csv.next(); fields != null; fields = csv.next()) {
+                if (fields.equals(List.of(""))) {
+                    continue;
+                }
+                long line = csv.recordLine();
+                if (fields.size() != columns.size()) {
+                    run.reject(line, null, "Expected " + columns.size() + " fields but found " + fields.size());
+                    continue;
+                }
+                ProfileImportRow row = new ProfileImportRow();
+                try {
+                    for (int i = 0; i < fields.size(); i++) {
+                        String value = fields.get(i).strip();
+                        if (!value.isEmpty()) {
+                            columns.get(i).set(row, value);
+                        }
+                    }
+                } catch (InvalidRowException e) {
+                    run.reject(line, row.getKeycloakId(), e.getMessage());
+                    continue;
+                }
+                run.accept(line, row);
+            }
+        } catch (CsvReader.MalformedCsvException e) {
+            run.reject(csv.recordLine(), null, e.getMessage() + "; the rest of the upload was not read");
+        }
+        return run.finish();
+    }
+
+    // One JSON object (see ProfileImportRow) per line; blank lines are ignored
+    public ProfileImportResponse importNdjson(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Import run = new Import();
+        long line = 0;
+        for (String json = reader.readLine(); json != null; json = reader.readLine()) {
+            line++;
+            if (json.isBlank()) {
+                continue;
+            }
+            ProfileImportRow row;
+            try {
+                row = rowReader.readValue(json);
+            } catch (JsonProcessingException e) {
+                run.reject(line, null, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            run.accept(line, row);
+        }
+        return run.finish();
+    }
+
+    private static Integer parseInteger(String column, String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidRowException(column + " is not an integer: " + value);
+        }
+    }
+
+    // State of one upload: the current batch and the counters of the response
+    private final class Import {
+        private final long start = System.currentTimeMillis();
+        private final List<PendingRow> batch = new ArrayList<>(batchSize);
+        private final Set<UUID> batchKeycloakIds = new HashSet<>();
+        private final List<ProfileImportError> errors = new ArrayList<>();
+        private Map<String, ProfessionDto> professionsByCode = professionsByCode();
+        private boolean catalogReloaded;
+        private long received;
+        private long imported;
+        private long failed;
+
+        void accept(long line, ProfileImportRow row) {
+            received++;
+            PendingRow pending;
+            try {
+                pending = validate(line, row);
+            } catch (InvalidRowException e) {
+                failed(line, row.getKeycloakId(), e.getMessage());
+                return;
+            }
+            // the upsert cannot change the same row twice: the later row wins, as with sequential calls
+            if (!batchKeycloakIds.add(pending.keycloakId())) {
+                flush();
+                batchKeycloakIds.add(pending.keycloakId());
+            }
+            batch.add(pending);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // A row that could not even be parsed
+        void reject(long line, String keycloakId, String message) {
+            received++;
+            failed(line, keycloakId, message);
+        }
+
+        ProfileImportResponse finish() {
+            flush();
+            log.info("Imported {} of {} profiles ({} failed) in {} ms",
+                    imported, received, failed, System.currentTimeMillis() - start);
+            return ProfileImportResponse.builder()
+                    .received(received)
+                    .imported(imported)
+                    .failed(failed)
+                    .errors(errors)
+                    .build();
+        }
+
+        private void failed(long line, String keycloakId, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(ProfileImportError.builder().line(line).keycloakId(keycloakId).message(message).build());
+            }
+        }
+
+        private PendingRow validate(long line, ProfileImportRow row) {
+            if (row.getKeycloakId() == null || row.getKeycloakId().isBlank()) {
+                throw new InvalidRowException("keycloakId is required");
+            }
+            UUID keycloakId;
+            try {
+                keycloakId = UUID.fromString(row.getKeycloakId().strip());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRowException("Invalid UUID format for keycloakId: " + row.getKeycloakId());
+            }
+
+            AccountType accountType = AccountType.of(row.getSiret(), row.getServiceType(), row.getCuisineType());
+            if (accountType == AccountType.CONSUMER) {
+                throw new InvalidRowException("A row needs a siret (producer) or a serviceType or cuisineType (restaurant)");
+            }
+            List<String> codes = row.getProfessions() == null ? List.of() : row.getProfessions();
+            if (accountType == AccountType.RESTAURANT) {
+                if (!codes.isEmpty()) {
+                    throw new InvalidRowException("Only producers have professions");
+                }
+                return new PendingRow(line, keycloakId, row, accountType, List.of());
+            }
+
+            if (row.getSiret().length() > 14) {
+                throw new InvalidRowException("siret must be at most 14 characters: " + row.getSiret());
+            }
+            Map<Long, ProfessionDto> professions = new HashMap<>();
+            for (String code : codes) {
+                ProfessionDto profession = findProfession(code.strip());
+                if (profession == null) {
+                    throw new InvalidRowException("Unknown profession code: " + code);
+                }
+                professions.putIfAbsent(profession.getId(), profession);
+            }
+            return new PendingRow(line, keycloakId, row, accountType, List.copyOf(professions.values()));
+        }
+
+        // The catalog is reloaded once per upload when a code is missing (a profession added since the last refresh)
+        private ProfessionDto findProfession(String code) {
+            ProfessionDto profession = professionsByCode.get(code);
+            if (profession == null && !catalogReloaded) {
+                catalogReloaded = true;
+                professionCatalog.reload();
+                professionsByCode = professionsByCode();
+                profession = professionsByCode.get(code);
+            }
+            return profession;
+        }
+
+        private Map<String, ProfessionDto> professionsByCode() {
+            Map<String, ProfessionDto> byCode = new HashMap<>();
+            for (ProfessionDto profession : professionCatalog.snapshot().professions()) {
+                if (profession.getCode() != null) {
+                    byCode.put(profession.getCode(), profession);
+                }
+            }
+            return byCode;
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<PendingRow> rows = List.copyOf(batch);
+            batch.clear();
+            batchKeycloakIds.clear();
+            batchTransaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    write(connection, rows);
+                    connection.releaseSavepoint(savepoint);
+                    imported += rows.size();
+                    return null;
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    log.debug("Batch of {} import rows failed, retrying row by row: {}", rows.size(), e.getMessage());
+                }
+                for (PendingRow row : rows) {
+                    Savepoint rowSavepoint = connection.setSavepoint();
+                    try {
+                        write(connection, List.of(row));
+                        connection.releaseSavepoint(rowSavepoint);
+                        imported++;
+                    } catch (SQLException e) {
+                        connection.rollback(rowSavepoint);
+                        failed(row.line(), row.keycloakId().toString(), e.getMessage());
+                    }
+                }
+                return null;
+            }));
+        }
+    }
+
+    // Upsert the rows and replace their professions; publishes a change event per row (delivered after commit)
+    private void write(Connection connection, List<PendingRow> rows) throws SQLException {
+        List<UserProfileResponse> profiles = new ArrayList<>(rows.size());
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_USERS_SQL)) {
+            setTextArray(connection, upsert, 1, rows, row -> row.keycloakId().toString());
+            setTextArray(connection, upsert, 2, rows, profileField(ProfileImportRow::getBiography));
+            setTextArray(connection, upsert, 3, rows, profileField(ProfileImportRow::getWebsite));
+            setTextArray(connection, upsert, 4, rows, profileField(ProfileImportRow::getFacebook));
+            setTextArray(connection, upsert, 5, rows, profileField(ProfileImportRow::getInstagram));
+            setTextArray(connection, upsert, 6, rows, profileField(ProfileImportRow::getLinkedin));
+            setTextArray(connection, upsert, 7, rows, producerField(ProfileImportRow::getSiret));
+            setTextArray(connection, upsert, 8, rows, producerField(ProfileImportRow::getOrganizationType));
+            setIntArray(connection, upsert, 9, rows, producerField(ProfileImportRow::getInstallationYear));
+            setIntArray(connection, upsert, 10, rows, producerField(ProfileImportRow::getEmployeesCount));
+            setTextArray(connection, upsert, 11, rows, restaurantField(ProfileImportRow::getServiceType));
+            setTextArray(connection, upsert, 12, rows, restaurantField(ProfileImportRow::getCuisineType));
+            setTextArray(connection, upsert, 13, rows, restaurantField(ProfileImportRow::getHygieneCertifications));
+            setTextArray(connection, upsert, 14, rows, restaurantField(ProfileImportRow::getAwards));
+            setTextArray(connection, upsert, 15, rows, row -> row.accountType().name());
+
+            Map<UUID, PendingRow> byKeycloakId = new HashMap<>();
+            rows.forEach(row -> byKeycloakId.put(row.keycloakId(), row));
+            try (ResultSet rs = upsert.executeQuery()) {
+                while (rs.next()) {
+                    PendingRow row = byKeycloakId.get(rs.getObject("keycloak_id", UUID.class));
+                    profiles.add(toProfile(rs, row));
+                }
+            }
+        }
+
+        Long[] userIds = profiles.stream().map(UserProfileResponse::getId).toArray(Long[]::new);
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_PROFESSIONS_SQL)) {
+            delete.setArray(1, connection.createArrayOf("bigint", userIds));
+            delete.executeUpdate();
+        }
+        List<Long> linkUserIds = new ArrayList<>();
+        List<Long> linkProfessionIds = new ArrayList<>();
+        for (UserProfileResponse profile : profiles) {
+            for (ProfessionDto profession : profile.getProfessions()) {
+                linkUserIds.add(profile.getId());
+                linkProfessionIds.add(profession.getId());
+            }
+        }
+        if (!linkUserIds.isEmpty()) {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_PROFESSIONS_SQL)) {
+                insert.setArray(1, connection.createArrayOf("bigint", linkUserIds.toArray()));
+                insert.setArray(2, connection.createArrayOf("bigint", linkProfessionIds.toArray()));
+                insert.executeUpdate();
+            }
+        }
+
+        // Events carry the version and updated_at the profile ends up with, as the ETag and the change feed see it
+        Map<Long, UserProfileResponse> byId = new HashMap<>();
+        profiles.forEach(profile -> byId.put(profile.getId(), profile));
+        try (PreparedStatement stamps = connection.prepareStatement(READ_STAMPS_SQL)) {
+            stamps.setArray(1, connection.createArrayOf("bigint", userIds));
+            try (ResultSet rs = stamps.executeQuery()) {
+                while (rs.next()) {
+                    UserProfileResponse profile = byId.get(rs.getLong("id"));
+                    profile.setVersion(rs.getLong("version"));
+                    profile.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+                }
+            }
+        }
+
+        for (UserProfileResponse profile : profiles) {
+            eventPublisher.publishEvent(new UserProfileChangedEvent(
+                    profile.getId(), UUID.fromString(profile.getKeycloakId()), profile));
+        }
+    }
+
+    private static UserProfileResponse toProfile(ResultSet rs, PendingRow pending) throws SQLException {
+        ProfileImportRow row = pending.row();
+        boolean producer = pending.accountType() == AccountType.PRODUCER;
+        return UserProfileResponse.builder()
+                .id(rs.getLong("id"))
+                .keycloakId(pending.keycloakId().toString())
+                .accountType(pending.accountType())
+                .biography(row.getBiography())
+                .website(row.getWebsite())
+                .facebook(row.getFacebook())
+                .instagram(row.getInstagram())
+                .linkedin(row.getLinkedin())
+                .siret(producer ? row.getSiret() : null)
+                .organizationType(producer ? row.getOrganizationType() : null)
+                .installationYear(producer ? row.getInstallationYear() : null)
+                .employeesCount(producer ? row.getEmployeesCount() : null)
+                .professions(pending.professions())
+                .serviceType(producer ? null : row.getServiceType())
+                .cuisineType(producer ? null : row.getCuisineType())
+                .hygieneCertifications(producer ? null : row.getHygieneCertifications())
+                .awards(producer ? null : row.getAwards())
+                .stripeAccountId(rs.getString("stripe_account_id"))
+                .stripeAccountStatus(rs.getString("stripe_account_status"))
+                .stripeOnboardingComplete(rs.getObject("stripe_onboarding_complete", Boolean.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .version(rs.getLong("version"))
+                .build();
+    }
+
+    private static <T> Function<PendingRow, T> profileField(Function<ProfileImportRow, T> field) {
+        return row -> field.apply(row.row());
+    }
+
+    // A producer row clears the restaurant fields and vice versa, like the single-profile upserts
+    private static <T> Function<PendingRow, T> producerField(Function<ProfileImportRow, T> field) {
+        return row -> row.accountType() == AccountType.PRODUCER ? field.apply(row.row()) : null;
+    }
+
+    private static <T> Function<PendingRow, T> restaurantField(Function<ProfileImportRow, T> field) {
+        return row -> row.accountType() == AccountType.RESTAURANT ? field.apply(row.row()) : null;
+    }
+
+    private static void setTextArray(Connection connection, PreparedStatement statement, int index,
+                                     List<PendingRow> rows, Function<PendingRow, String> field) throws SQLException {
+        statement.setArray(index, connection.createArrayOf("text", rows.stream().map(field).toArray()));
+    }
+
+    private static void setIntArray(Connection connection, PreparedStatement statement, int index,
+                                    List<PendingRow> rows, Function<PendingRow, Integer> field) throws SQLException {
+        statement.setArray(index, connection.createArrayOf("int4", rows.stream().map(field).toArray()));
+    }
+}
@@ -0,0 +1,110 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * JSON Merge Patch (RFC 7396) of a profile: a property absent from the patch is left as is, null clears it,
+ * any other value replaces it. Only the properties of the patched profile type are accepted.
+ */
+public final class ProfileMergePatch {
+
+    private static final Set<String> PERSONAL_INFO = Set.of("biography", "website", "facebook", "instagram", "linkedin");
+
+    private static final Set<String> PRODUCER = Set.of("biography", "website", "facebook", "instagram", "linkedin",
+            "siret", "organizationType", "installationYear", "employeesCount", "professionIds");
+
+    private static final Set<String> RESTAURANT = Set.of("biography", "website", "facebook", "instagram", "linkedin",
+            "serviceType", "cuisineType", "hygieneCertifications", "awards");
+
+    private final JsonNode patch;
+
+    private ProfileMergePatch(JsonNode patch, Set<String> properties) {
+        if (patch == null || !patch.isObject()) {
+            throw new BadRequestException("A merge patch must be a JSON object");
+        }
+        for (Iterator<String> names = patch.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!properties.contains(name)) {
+                throw new BadRequestException("Unknown or read-only property: " + name);
+            }
+        }
+        this.patch = patch;
+    }
+
+    public static ProfileMergePatch personalInfo(JsonNode patch) {
+        return new ProfileMergePatch(patch, PERSONAL_INFO);
+    }
+
+    public static ProfileMergePatch producer(JsonNode patch) {
+        return new ProfileMergePatch(patch, PRODUCER);
+    }
+
+    public static ProfileMergePatch restaurant(JsonNode patch) {
+        return new ProfileMergePatch(patch, RESTAURANT);
+    }
+
+    // Set a text property if the patch has it and it differs from the current value; true when it changed
+    boolean text(String property, Supplier<String> current, Consumer<String> setter) {
+        return apply(property, current, setter, node -> {
+            if (!node.isTextual()) {
+                throw new BadRequestException(property + " must be a string");
+            }
+            return node.textValue();
+        });
+    }
+
+    // Same as text() for an integer property
+    boolean integer(String property, Supplier<Integer> current, Consumer<Integer> setter) {
+        return apply(property, current, setter, node -> {
+            if (!node.canConvertToInt() || !node.isIntegralNumber()) {
+                throw new BadRequestException(property + " must be an integer");
+            }
+            return node.intValue();
+        });
+    }
+
+    // The IDs of a list property: null when absent (unchanged), empty when null (cleared)
+    List<Long> ids(String property) {
+        if (!patch.has(property)) {
+            return null;
+        }
+        JsonNode node = patch.get(property);
+        List<Long> ids = new ArrayList<>();
+        if (node.isNull()) {
+            return ids;
+        }
+        if (!node.isArray()) {
+            throw new BadRequestException(property + " must be an array of IDs");
+        }
+        for (JsonNode id : node) {
+            if (!id.canConvertToLong() || !id.isIntegralNumber()) {
+                throw new BadRequestException(property + " must be an array of IDs");
+            }
+            ids.add(id.longValue());
+        }
+        return ids;
+    }
+
+    private <T> boolean apply(String property, Supplier<T> current, Consumer<T> setter, Function<JsonNode, T> reader) {
+        if (!patch.has(property)) {
+            return false;
+        }
+        JsonNode node = patch.get(property);
+        T value = node.isNull() ? null : reader.apply(node);
+        if (Objects.equals(current.get(), value)) {
+            return false;
+        }
+        setter.accept(value);
+        return true;
+    }
+}
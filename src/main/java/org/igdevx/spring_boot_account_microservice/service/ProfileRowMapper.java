@@ -0,0 +1,85 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maps a users row selected with {@link #COLUMNS} to a full profile, without loading any entity.
+ * Professions are aggregated per row with ARRAY(...) and resolved through the {@link ProfessionCatalog}.
+ */
+final class ProfileRowMapper implements RowMapper<UserProfileResponse> {
+
+    // Select list over "users u"
+    static final String COLUMNS = """
+            u.id, u.keycloak_id, u.account_type, u.biography, u.website, u.facebook, u.instagram, u.linkedin,
+            u.siret, u.organization_type, u.installation_year, u.employees_count,
+            u.service_type, u.cuisine_type, u.hygiene_certifications, u.awards,
+            u.stripe_account_id, u.stripe_account_status, u.stripe_onboarding_complete,
+            u.created_at, u.updated_at, u.version,
+            ARRAY(SELECT up.profession_id FROM user_professions up
+                  WHERE up.user_id = u.id ORDER BY up.profession_id) AS profession_ids
+            """;
+
+    private final ProfessionCatalog professionCatalog;
+
+    ProfileRowMapper(ProfessionCatalog professionCatalog) {
+        this.professionCatalog = professionCatalog;
+    }
+
+    @Override
+    public UserProfileResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String accountType = rs.getString("account_type");
+        return UserProfileResponse.builder()
+                .id(rs.getLong("id"))
+                .keycloakId(rs.getObject("keycloak_id", UUID.class).toString())
+                .accountType(accountType != null ? AccountType.valueOf(accountType) : null)
+                .biography(rs.getString("biography"))
+                .website(rs.getString("website"))
+                .facebook(rs.getString("facebook"))
+                .instagram(rs.getString("instagram"))
+                .linkedin(rs.getString("linkedin"))
+                .siret(rs.getString("siret"))
+                .organizationType(rs.getString("organization_type"))
+                .installationYear(rs.getObject("installation_year", Integer.class))
+                .employeesCount(rs.getObject("employees_count", Integer.class))
+                .professions(mapProfessions(rs.getArray("profession_ids")))
+                .serviceType(rs.getString("service_type"))
+                .cuisineType(rs.getString("cuisine_type"))
+                .hygieneCertifications(rs.getString("hygiene_certifications"))
+                .awards(rs.getString("awards"))
+                .stripeAccountId(rs.getString("stripe_account_id"))
+                .stripeAccountStatus(rs.getString("stripe_account_status"))
+                .stripeOnboardingComplete(rs.getObject("stripe_onboarding_complete", Boolean.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .version(rs.getLong("version"))
+                .build();
+    }
+
+    // Profession IDs to the shared DTOs of the catalog
+    private List<ProfessionDto> mapProfessions(Array professionIds) throws SQLException {
+        if (professionIds == null) {
+            return List.of();
+        }
+        try {
+            Object[] ids = (Object[]) professionIds.getArray();
+            List<ProfessionDto> professions = new ArrayList<>(ids.length);
+            for (Object id : ids) {
+                professionCatalog.findById(((Number) id).longValue()).ifPresent(professions::add);
+            }
+            return professions;
+        } finally {
+            professionIds.free();
+        }
+    }
+}
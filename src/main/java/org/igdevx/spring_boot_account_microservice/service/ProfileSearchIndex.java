@@ -0,0 +1,182 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.SearchHitResponse;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text search over the biography, awards, hygiene certifications and cuisine type of producers
+ * and restaurants, ranked with BM25.
+ *
+ * The index is built by a bulk scan at startup (and on demand through the searchindex actuator endpoint)
+ * and kept current by committed profile changes. A rebuild fills a fresh index in the background and
+ * swaps it in after replaying the changes committed meanwhile, so searches keep working during it.
+ */
+@Component
+public class ProfileSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileSearchIndex.class);
+
+    public record Stats(int documents, int terms, boolean loaded, boolean rebuilding) {
+    }
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // guarded by lock
+    private InvertedIndex index = new InvertedIndex();
+    // changes committed while a rebuild is running (null otherwise), guarded by lock
+    private List<UserProfileChangedEvent> pendingChanges;
+    private volatile boolean loaded;
+
+    public ProfileSearchIndex(UserRepository userRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${account.search.enabled:true}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        Gauge.builder("account.search_index.documents", this, search -> search.stats().documents())
+                .description("Number of profiles in the full-text search index")
+                .register(meterRegistry);
+    }
+
+    public List<SearchHitResponse> search(String query, AccountType accountType, int limit) {
+        List<String> terms = SearchAnalyzer.analyze(query);
+        List<InvertedIndex.Hit> hits;
+        lock.readLock().lock();
+        try {
+            hits = index.search(terms, accountType, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits.stream()
+                .map(hit -> SearchHitResponse.builder()
+                        .id(hit.userId())
+                        .accountType(hit.accountType())
+                        .score(hit.score())
+                        .build())
+                .toList();
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(index.size(), index.termCount(), loaded, pendingChanges != null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index, event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not build the search index: {}", e.getMessage());
+        }
+    }
+
+    // Rebuild the whole index from the database
+    public Stats rebuild() {
+        if (!enabled) {
+            throw new IllegalStateException("The search index is disabled");
+        }
+        if (!rebuildLock.tryLock()) {
+            throw new IllegalStateException("A search index rebuild is already running");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            setPendingChanges(new ArrayList<>());
+            InvertedIndex fresh = new InvertedIndex();
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (var rows = userRepository.streamSearchableProfiles()) {
+                        rows.forEach(row -> fresh.put(row.getId(), row.getAccountType(), SearchAnalyzer.analyze(
+                                row.getBiography(), row.getAwards(), row.getHygieneCertifications(), row.getCuisineType())));
+                    }
+                });
+            } catch (RuntimeException e) {
+                setPendingChanges(null);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pendingChanges.forEach(event -> apply(fresh, event));
+                pendingChanges = null;
+                index = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            loaded = true;
+            Stats stats = stats();
+            log.info("Built search index of {} profiles ({} terms) in {} ms",
+                    stats.documents(), stats.terms(), System.currentTimeMillis() - start);
+            return stats;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void setPendingChanges(List<UserProfileChangedEvent> changes) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(InvertedIndex target, UserProfileChangedEvent event) {
+        UserProfileResponse profile = event.getProfile();
+        if (event.isDeletion() || profile.getAccountType() == null || profile.getAccountType() == AccountType.CONSUMER) {
+            target.remove(event.getUserId());
+            return;
+        }
+        target.put(event.getUserId(), profile.getAccountType(), SearchAnalyzer.analyze(
+                profile.getBiography(), profile.getAwards(), profile.getHygieneCertifications(), profile.getCuisineType()));
+    }
+}
@@ -0,0 +1,115 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized bodies of the public producer and restaurant profiles (GET /producer/{id}, /restaurant/{id}),
+ * as UTF-8 JSON and gzip bytes, so that a hit is written to the response without mapping or serialization.
+ *
+ * Bounded by the spring.cache settings like {@link UserProfileCache}, and evicted the same way: on every
+ * {@link UserProfileChangedEvent}, when published and after commit, with loads started before an eviction
+ * never stored. As there, invalidation is local: a write served by another replica shows here once the body
+ * expires (expireAfterWrite, 5 minutes).
+ */
+@Component
+public class PublicProfileBodyCache {
+
+    public static final String CACHE_NAME = "publicProfileBodies";
+
+    public enum Kind { PRODUCER, RESTAURANT }
+
+    public record Body(String etag, byte[] json, byte[] gzip) {
+    }
+
+    private record Key(Kind kind, long userId) {
+    }
+
+    private final Cache bodies;
+    private final ObjectMapper objectMapper;
+    private final Counter invalidations;
+
+    // Incremented on every eviction; loads started under an older epoch are discarded
+    private final AtomicLong epoch = new AtomicLong();
+
+    public PublicProfileBodyCache(CacheManager cacheManager, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.bodies = cacheManager.getCache(CACHE_NAME);
+        this.objectMapper = objectMapper;
+        this.invalidations = Counter.builder("account.public_profile_body_cache.invalidations")
+                .description("Public profile bodies invalidated by writes")
+                .register(meterRegistry);
+    }
+
+    public Optional<Body> get(Kind kind, Long userId) {
+        return Optional.ofNullable(bodies.get(new Key(kind, userId), Body.class));
+    }
+
+    // Must be called before loading the profile; the token is passed to put()
+    public long beginLoad() {
+        return epoch.get();
+    }
+
+    // Serialize (and compress) a freshly loaded profile; the body is cached unless a write happened meanwhile
+    public Body put(Kind kind, Long userId, String etag, Object profile, long loadToken) {
+        Body body;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(profile);
+            body = new Body(etag, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the public profile " + userId, e);
+        }
+        if (epoch.get() == loadToken) {
+            Key key = new Key(kind, userId);
+            bodies.put(key, body);
+            // an eviction may have run since the check: take the body back out rather than undo it
+            if (epoch.get() != loadToken) {
+                bodies.evict(key);
+            }
+        }
+        return body;
+    }
+
+    public void evict(Long userId) {
+        epoch.incrementAndGet();
+        for (Kind kind : Kind.values()) {
+            bodies.evict(new Key(kind, userId));
+        }
+        invalidations.increment();
+    }
+
+    @EventListener
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProfileChangeCommitted(UserProfileChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 2 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns profile text into index terms: accent/case folding, French and English stop words,
+ * and a light stemmer shared by both languages (profiles do not say which language they are written in).
+ *
+ * The stemmer only conflates plural and feminine forms and English -ing, which is enough to match
+ * "fromagère"/"fromagers" or "cheeses"/"cheese" without the over-stemming of a full Snowball stemmer.
+ */
+final class SearchAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // French
+            "au", "aux", "avec", "ce", "ces", "dans", "de", "des", "du", "elle", "en", "et", "est", "il", "ils",
+            "je", "la", "le", "les", "leur", "leurs", "mais", "nos", "notre", "nous", "ou", "par", "pas", "pour",
+            "qui", "que", "sa", "se", "ses", "son", "sont", "sur", "un", "une", "vos", "votre", "vous",
+            // English
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is", "it",
+            "its", "of", "on", "or", "our", "that", "the", "their", "this", "to", "was", "we", "were", "with");
+
+    private SearchAnalyzer() {
+    }
+
+    // Terms of the given texts, in order and with repetitions (term frequencies matter)
+    static List<String> analyze(String... texts) {
+        List<String> terms = new ArrayList<>();
+        for (String text : texts) {
+            String folded = TextFolding.fold(text);
+            if (folded.isEmpty()) {
+                continue;
+            }
+            for (String token : folded.split(" ")) {
+                if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                    continue;
+                }
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    static String stem(String token) {
+        if (token.length() <= 3 || Character.isDigit(token.charAt(0))) {
+            return token;
+        }
+        String stem = token;
+        if (stem.endsWith("ies") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 3) + "y";
+        } else if (stem.endsWith("aux") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 3) + "al";
+        } else if ((stem.endsWith("s") && !stem.endsWith("ss")) || stem.endsWith("x")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        if (stem.endsWith("ing") && stem.length() > 5) {
+            stem = stem.substring(0, stem.length() - 3);
+        } else if (stem.endsWith("e") && stem.length() > 4) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,318 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background refresh of the Stripe accounts still in a non-terminal status (pending_onboarding, incomplete,
+ * pending), which would otherwise only change when the user calls POST /stripe/sync-status.
+ *
+ * Every {@code account.stripe.reconciler.interval}, the accounts of each such status last checked more than
+ * {@code stale-after} ago are read by keyset on (stripe_checked_at, id) over idx_users_stripe_status_checked_at,
+ * a page at a time; accounts not written for {@code max-age} are abandoned and left alone. The accounts of a page
+ * are retrieved through {@link StripeService} by {@code parallelism} threads under a shared {@link TokenBucket}
+ * of {@code requests-per-second}; a 429 pauses the bucket (exponential backoff with jitter) before the retry, and
+ * a pass still rate limited after {@code max-retries} stops until the next run. Every account Stripe answered
+ * for, changed or not, gets a new stripe_checked_at, and the changed statuses are written too, in one
+ * transaction per page: a checked account leaves the range until it is stale again, whichever replica runs the
+ * next pass (a check alone does not touch updated_at nor the version, see V6).
+ *
+ * A pass runs on one replica at a time: it holds a PostgreSQL session advisory lock, which the other replicas
+ * fail to take (pg_try_advisory_lock) and skip their run.
+ */
+@Component
+public class StripeAccountReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeAccountReconciler.class);
+
+    static final List<String> NON_TERMINAL_STATUSES = List.of("pending_onboarding", "incomplete", "pending");
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('stripe_reconciler'), 0)";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('stripe_reconciler'), 0)";
+
+    private static final String RANGE_SQL = """
+            SELECT LOCALTIMESTAMP - make_interval(secs => ?), LOCALTIMESTAMP - make_interval(secs => ?)
+            """;
+
+    // Abandoned accounts (updated_at past max-age) are filtered out, and are never checked again
+    private static final String STALE_ACCOUNTS_SQL = """
+            SELECT id, keycloak_id, stripe_account_id, stripe_account_status, stripe_onboarding_complete,
+                   stripe_checked_at
+            FROM users
+            WHERE stripe_account_status = ?
+              AND stripe_account_id IS NOT NULL
+              AND (stripe_checked_at, id) > (?, ?)
+              AND stripe_checked_at < ?
+              AND updated_at >= ?
+            ORDER BY stripe_checked_at, id
+            LIMIT ?
+            """;
+
+    private static final String CHECKED_SQL = """
+            UPDATE users SET stripe_checked_at = LOCALTIMESTAMP
+            WHERE id = ? AND stripe_account_id = ?
+            """;
+
+    // Unless the account was unlinked or changed meanwhile
+    private static final String UPDATE_STATUS_SQL = """
+            UPDATE users SET stripe_account_status = ?, stripe_onboarding_complete = ?
+            WHERE id = ? AND stripe_account_id = ?
+              AND (stripe_account_status IS DISTINCT FROM ? OR stripe_onboarding_complete IS DISTINCT FROM ?)
+            """;
+
+    record StaleAccount(long id, UUID keycloakId, String stripeAccountId, String status, Boolean onboardingComplete,
+                        LocalDateTime checkedAt) {
+    }
+
+    private record Refreshed(StaleAccount account, StripeAccountSnapshot snapshot) {
+
+        boolean changed() {
+            return !snapshot.status().equals(account.status())
+                    || !Boolean.valueOf(snapshot.onboardingComplete()).equals(account.onboardingComplete());
+        }
+    }
+
+    // checked: the accounts of the page that were not rate limited, retrieved or not
+    private record Page(List<Refreshed> refreshed, List<StaleAccount> checked, boolean rateLimited) {
+    }
+
+    private static final RowMapper<StaleAccount> STALE_ACCOUNT_MAPPER = (rs, rowNum) -> new StaleAccount(
+            rs.getLong("id"),
+            rs.getObject("keycloak_id", UUID.class),
+            rs.getString("stripe_account_id"),
+            rs.getString("stripe_account_status"),
+            (Boolean) rs.getObject("stripe_onboarding_complete"),
+            rs.getObject("stripe_checked_at", LocalDateTime.class));
+
+    private final StripeService stripeService;
+    private final StripeAccountSnapshotCache stripeAccountSnapshots;
+    private final UserService userService;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TokenBucket rateLimit;
+    private final ExecutorService workers;
+    private final boolean enabled;
+    private final Duration staleAfter;
+    private final Duration maxAge;
+    private final int pageSize;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    @Autowired
+    public StripeAccountReconciler(StripeService stripeService,
+                                   StripeAccountSnapshotCache stripeAccountSnapshots,
+                                   UserService userService,
+                                   DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${account.stripe.reconciler.enabled:false}") boolean enabled,
+                                   @Value("${account.stripe.reconciler.stale-after:PT30M}") Duration staleAfter,
+                                   @Value("${account.stripe.reconciler.max-age:P30D}") Duration maxAge,
+                                   @Value("${account.stripe.reconciler.page-size:100}") int pageSize,
+                                   @Value("${account.stripe.reconciler.requests-per-second:10}") double requestsPerSecond,
+                                   @Value("${account.stripe.reconciler.parallelism:4}") int parallelism,
+                                   @Value("${account.stripe.reconciler.max-retries:3}") int maxRetries,
+                                   @Value("${account.stripe.reconciler.initial-backoff:PT1S}") Duration initialBackoff) {
+        this(stripeService, stripeAccountSnapshots, userService, dataSource, new TransactionTemplate(transactionManager),
+                new TokenBucket(requestsPerSecond, (int) Math.max(1, requestsPerSecond)), parallelism,
+                enabled, staleAfter, maxAge, pageSize, maxRetries, initialBackoff);
+    }
+
+    StripeAccountReconciler(StripeService stripeService, StripeAccountSnapshotCache stripeAccountSnapshots,
+                            UserService userService, DataSource dataSource, TransactionTemplate transaction,
+                            TokenBucket rateLimit, int parallelism, boolean enabled, Duration staleAfter,
+                            Duration maxAge, int pageSize, int maxRetries, Duration initialBackoff) {
+        this.stripeService = stripeService;
+        this.stripeAccountSnapshots = stripeAccountSnapshots;
+        this.userService = userService;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transaction = transaction;
+        this.rateLimit = rateLimit;
+        this.workers = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("stripe-reconciler-"));
+        this.enabled = enabled;
+        this.staleAfter = staleAfter;
+        this.maxAge = maxAge;
+        this.pageSize = pageSize;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+    }
+
+    @Scheduled(fixedDelayString = "${account.stripe.reconciler.interval:PT10M}",
+               initialDelayString = "${account.stripe.reconciler.interval:PT10M}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        // The session lock lives as long as this connection, which is held for the whole pass
+        try (Connection connection = dataSource.getConnection()) {
+            JdbcTemplate lockTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(lockTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class))) {
+                log.debug("Stripe reconciliation is running on another replica");
+                return;
+            }
+            try {
+                reconcileStaleAccounts();
+            } finally {
+                lockTemplate.queryForObject(UNLOCK_SQL, Boolean.class);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Stripe reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private void reconcileStaleAccounts() throws InterruptedException {
+        LocalDateTime[] range = jdbcTemplate.queryForObject(RANGE_SQL, (rs, rowNum) -> new LocalDateTime[] {
+                rs.getObject(1, LocalDateTime.class), rs.getObject(2, LocalDateTime.class)
+        }, (double) maxAge.toSeconds(), (double) staleAfter.toSeconds());
+        int checked = 0;
+        int updated = 0;
+
+        for (String status : NON_TERMINAL_STATUSES) {
+            LocalDateTime afterCheckedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+            long afterId = 0;
+            List<StaleAccount> accounts;
+            do {
+                accounts = jdbcTemplate.query(STALE_ACCOUNTS_SQL, STALE_ACCOUNT_MAPPER,
+                        status, afterCheckedAt, afterId, range[1], range[0], pageSize);
+                if (accounts.isEmpty()) {
+                    break;
+                }
+                Page page = refresh(accounts);
+                updated += write(page);
+                checked += accounts.size();
+                if (page.rateLimited()) {
+                    log.warn("Stripe reconciliation stopped by the Stripe rate limit after {} accounts", checked);
+                    return;
+                }
+                StaleAccount last = accounts.get(accounts.size() - 1);
+                afterCheckedAt = last.checkedAt();
+                afterId = last.id();
+            } while (accounts.size() == pageSize);
+        }
+
+        if (checked > 0) {
+            log.info("Reconciled {} Stripe accounts with Stripe, {} updated", checked, updated);
+        }
+    }
+
+    // Retrieves the accounts of a page concurrently; accounts that could not be retrieved are left out
+    private Page refresh(List<StaleAccount> accounts) throws InterruptedException {
+        List<Callable<Refreshed>> retrievals = new ArrayList<>();
+        for (StaleAccount account : accounts) {
+            retrievals.add(() -> new Refreshed(account, retrieve(account.stripeAccountId())));
+        }
+
+        List<Refreshed> refreshed = new ArrayList<>();
+        List<StaleAccount> checked = new ArrayList<>();
+        boolean rateLimited = false;
+        List<Future<Refreshed>> results = workers.invokeAll(retrievals);
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                refreshed.add(results.get(i).get());
+                checked.add(accounts.get(i));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RateLimitException) {
+                    rateLimited = true;
+                } else {
+                    // not retried before it is stale again
+                    checked.add(accounts.get(i));
+                    log.debug("Could not retrieve a Stripe account: {}", e.getCause().getMessage());
+                }
+            }
+        }
+        return new Page(refreshed, checked, rateLimited);
+    }
+
+    // One retrieval under the rate limit; a 429 pauses all retrievals (1x, 2x, 4x... initial-backoff plus
+    // up to 50% jitter) and is retried up to max-retries times
+    StripeAccountSnapshot retrieve(String stripeAccountId) throws StripeException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            rateLimit.acquire();
+            try {
+                StripeAccountSnapshot snapshot = stripeService.retrieveAccountSnapshot(stripeAccountId);
+                stripeAccountSnapshots.put(snapshot);
+                return snapshot;
+            } catch (RateLimitException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                Duration backoff = initialBackoff.multipliedBy(1L << attempt);
+                rateLimit.pause(backoff.plusMillis(ThreadLocalRandom.current().nextLong(backoff.toMillis() / 2 + 1)));
+            }
+        }
+    }
+
+    // One batch for the checked accounts of a page and one for the changed statuses; listeners are notified of
+    // the rows actually written
+    private int write(Page page) {
+        List<Refreshed> changed = page.refreshed().stream().filter(Refreshed::changed).toList();
+        if (page.checked().isEmpty()) {
+            return 0;
+        }
+
+        Integer written = transaction.execute(status -> {
+            List<Object[]> checked = new ArrayList<>(page.checked().size());
+            for (StaleAccount account : page.checked()) {
+                checked.add(new Object[] {account.id(), account.stripeAccountId()});
+            }
+            jdbcTemplate.batchUpdate(CHECKED_SQL, checked);
+            if (changed.isEmpty()) {
+                return 0;
+            }
+
+            List<Object[]> rows = new ArrayList<>(changed.size());
+            for (Refreshed change : changed) {
+                StripeAccountSnapshot snapshot = change.snapshot();
+                rows.add(new Object[] {snapshot.status(), snapshot.onboardingComplete(), change.account().id(),
+                        change.account().stripeAccountId(), snapshot.status(), snapshot.onboardingComplete()});
+            }
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, rows);
+            int count = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    userService.publishProfileChanged(changed.get(i).account().keycloakId());
+                    count++;
+                }
+            }
+            return count;
+        });
+        return written != null ? written : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,29 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.stripe.model.Account;
+
+/**
+ * What this service keeps of a Stripe connected account: its status (incomplete, pending, active, rejected)
+ * and whether onboarding is complete, both derived from a single account retrieval.
+ */
+public record StripeAccountSnapshot(String accountId, String status, boolean onboardingComplete) {
+
+    static StripeAccountSnapshot of(Account account) {
+        boolean detailsSubmitted = Boolean.TRUE.equals(account.getDetailsSubmitted());
+        // Complete when the user finished the onboarding flow and Stripe verified and enabled charging
+        boolean onboardingComplete = detailsSubmitted && Boolean.TRUE.equals(account.getChargesEnabled());
+
+        String status;
+        if (account.getRequirements() != null && account.getRequirements().getDisabledReason() != null) {
+            status = "rejected";
+        } else if (onboardingComplete) {
+            status = "active";
+        } else if (detailsSubmitted) {
+            // details submitted but not yet verified
+            status = "pending";
+        } else {
+            status = "incomplete";
+        }
+        return new StripeAccountSnapshot(account.getId(), status, onboardingComplete);
+    }
+}
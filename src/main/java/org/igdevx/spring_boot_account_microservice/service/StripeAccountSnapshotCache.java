@@ -0,0 +1,108 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-account cache of {@link StripeAccountSnapshot}s in front of the Stripe API (stale-while-revalidate).
+ *
+ * A snapshot younger than {@code account.stripe.snapshot.refresh-after} is served as is. An older one is still
+ * served, and a single background retrieval replaces it (a failed retrieval keeps it). Snapshots are dropped
+ * after {@code account.stripe.snapshot.expire-after}, so Stripe is only waited for on the first access or after
+ * a long idle period.
+ *
+ * Background retrievals run on a dedicated bounded pool ({@code account.stripe.snapshot.refresh-threads} and
+ * {@code refresh-queue-capacity}), not on the common pool shared with the rest of the JVM: a refresh that does
+ * not fit is rejected and the stale snapshot is served until the next access triggers another one.
+ */
+@Component
+public class StripeAccountSnapshotCache {
+
+    private final StripeService stripeService;
+    private final LoadingCache<String, StripeAccountSnapshot> snapshots;
+    private final Executor executor;
+
+    @Autowired
+    public StripeAccountSnapshotCache(StripeService stripeService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${account.stripe.snapshot.refresh-after:PT1M}") Duration refreshAfter,
+                                      @Value("${account.stripe.snapshot.expire-after:PT30M}") Duration expireAfter,
+                                      @Value("${account.stripe.snapshot.max-size:10000}") long maxSize,
+                                      @Value("${account.stripe.snapshot.refresh-threads:2}") int refreshThreads,
+                                      @Value("${account.stripe.snapshot.refresh-queue-capacity:100}") int refreshQueueCapacity) {
+        this(stripeService, refreshAfter, expireAfter, maxSize, Ticker.systemTicker(),
+                new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(refreshQueueCapacity),
+                        new CustomizableThreadFactory("stripe-snapshot-refresh-")));
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "stripeAccountSnapshots");
+        new ExecutorServiceMetrics((ExecutorService) executor, "stripeSnapshotRefreshes", Tags.empty())
+                .bindTo(meterRegistry);
+    }
+
+    // Background refreshes run on the executor
+    StripeAccountSnapshotCache(StripeService stripeService, Duration refreshAfter, Duration expireAfter,
+                               long maxSize, Ticker ticker, Executor executor) {
+        this.stripeService = stripeService;
+        this.executor = executor;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(expireAfter)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build(stripeService::retrieveAccountSnapshot);
+    }
+
+    // Cached snapshot (possibly stale, then being refreshed), or retrieved now if there is none
+    public StripeAccountSnapshot get(String stripeAccountId) {
+        try {
+            return snapshots.get(stripeAccountId);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Retrieved now, bypassing the cache (explicit sync); the cache is updated with it
+    public StripeAccountSnapshot retrieve(String stripeAccountId) throws StripeException {
+        StripeAccountSnapshot snapshot = stripeService.retrieveAccountSnapshot(stripeAccountId);
+        snapshots.put(stripeAccountId, snapshot);
+        return snapshot;
+    }
+
+    // Snapshot pushed by Stripe (webhook event), as fresh as a retrieval
+    public void put(StripeAccountSnapshot snapshot) {
+        snapshots.put(snapshot.accountId(), snapshot);
+    }
+
+    public void invalidate(String stripeAccountId) {
+        snapshots.invalidate(stripeAccountId);
+    }
+
+    // Refreshes in flight are abandoned on shutdown: the snapshots are only a cache
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+}
@@ -8,29 +8,42 @@ import org.igdevx.spring_boot_account_microservice.dto.StripeConnectedAccountRes
 import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
 import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
 import org.igdevx.spring_boot_account_microservice.exception.ResourceNotFoundException;
-import org.igdevx.spring_boot_account_microservice.model.User;
 import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.StripeAccountView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
 
+// Not @Transactional: Stripe calls take up to seconds and must not hold a database connection.
+// Reads run in the repository's own transactions, and each write in a short one (see updateStripeAccount).
 @Service
-@Transactional
 public class StripeConnectService {
 
     private static final Logger log = LoggerFactory.getLogger(StripeConnectService.class);
 
     private final StripeService stripeService;
+    private final StripeAccountSnapshotCache stripeAccountSnapshots;
     private final UserRepository userRepository;
     private final UserService userService;
-
-    public StripeConnectService(StripeService stripeService, UserRepository userRepository, UserService userService) {
+    private final TransactionTemplate transaction;
+    // Stripe pushes status changes (see StripeWebhookService): the stored status is current
+    private final boolean statusPushedByWebhooks;
+
+    public StripeConnectService(StripeService stripeService, StripeAccountSnapshotCache stripeAccountSnapshots,
+                                UserRepository userRepository, UserService userService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${account.stripe.webhook.enabled:false}") boolean statusPushedByWebhooks) {
         this.stripeService = stripeService;
+        this.stripeAccountSnapshots = stripeAccountSnapshots;
         this.userRepository = userRepository;
         this.userService = userService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.statusPushedByWebhooks = statusPushedByWebhooks;
     }
 
     /**
@@ -38,8 +51,7 @@ public class StripeConnectService {
      */
     public StripeConnectedAccountResponse createConnectedAccount(UUID keycloakId, StripeConnectedAccountRequest request) {
         // Get or create user first
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+        StripeAccountView user = loadStripeAccount(keycloakId);
 
         // Check if user already has a Stripe account
         if (user.getStripeAccountId() != null) {
@@ -53,10 +65,7 @@ public class StripeConnectService {
             Account stripeAccount = stripeService.createConnectedAccount(user);
             
             // Update user with Stripe account ID
-            user.setStripeAccountId(stripeAccount.getId());
-            user.setStripeAccountStatus("pending_onboarding");
-            user.setStripeOnboardingComplete(false);
-            userRepository.save(user);
+            updateStripeAccount(user, stripeAccount.getId(), "pending_onboarding", false);
 
             // Create onboarding link
             AccountLink accountLink = stripeService.createAccountLink(stripeAccount.getId());
@@ -80,28 +89,30 @@ public class StripeConnectService {
      * Get connected account information for a user
      */
     public StripeConnectedAccountResponse getConnectedAccountInfo(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+        StripeAccountView user = loadStripeAccount(keycloakId);
         
         if (user.getStripeAccountId() == null) {
             throw new BadRequestException("User does not have a Stripe connected account");
         }
 
         try {
-            // Sync status from Stripe
-            syncStripeAccountStatus(user);
+            // Stored status when webhooks keep it current, otherwise synced from Stripe (cached snapshot,
+            // refreshed in the background once stale)
+            StripeStatus status = statusPushedByWebhooks
+                    ? new StripeStatus(user.getStripeAccountStatus(), user.getStripeOnboardingComplete())
+                    : syncStripeAccountStatus(user, false);
             
             // Generate dashboard URL for active accounts
             String dashboardUrl = null;
-            if ("active".equals(user.getStripeAccountStatus())) {
+            if ("active".equals(status.accountStatus())) {
                 dashboardUrl = "https://dashboard.stripe.com/express/" + user.getStripeAccountId();
             }
 
             return StripeConnectedAccountResponse.builder()
                     .stripeAccountId(user.getStripeAccountId())
                     .onboardingUrl(null) // Don't return onboarding URL for existing accounts
-                    .onboardingComplete(user.getStripeOnboardingComplete())
-                    .accountStatus(user.getStripeAccountStatus())
+                    .onboardingComplete(status.onboardingComplete())
+                    .accountStatus(status.accountStatus())
                     .dashboardUrl(dashboardUrl)
                     .build();
 
@@ -121,8 +132,7 @@ public class StripeConnectService {
      * Refresh onboarding link for incomplete accounts
      */
     public StripeConnectedAccountResponse refreshOnboardingLink(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+        StripeAccountView user = loadStripeAccount(keycloakId);
         
         if (user.getStripeAccountId() == null) {
             throw new BadRequestException("User does not have a Stripe connected account");
@@ -152,14 +162,13 @@ public class StripeConnectService {
      * Sync account status from Stripe
      */
     public UserProfileResponse syncAccountStatus(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+        StripeAccountView user = loadStripeAccount(keycloakId);
         
         if (user.getStripeAccountId() == null) {
             throw new BadRequestException("User does not have a Stripe connected account");
         }
 
-        syncStripeAccountStatus(user);
+        syncStripeAccountStatus(user, true);
         
         // Return updated user profile
         return userService.getUserProfile(keycloakId);
@@ -169,8 +178,7 @@ public class StripeConnectService {
      * Delete connected account from user profile
      */
     public void deleteConnectedAccount(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+        StripeAccountView user = loadStripeAccount(keycloakId);
         
         if (user.getStripeAccountId() == null) {
             throw new BadRequestException("User does not have a Stripe connected account");
@@ -179,29 +187,53 @@ public class StripeConnectService {
         log.info("Removing Stripe account {} from user {}", user.getStripeAccountId(), user.getId());
         
         // Remove Stripe account reference from user (account remains in Stripe)
-        user.setStripeAccountId(null);
-        user.setStripeAccountStatus(null);
-        user.setStripeOnboardingComplete(null);
-        userRepository.save(user);
+        updateStripeAccount(user, null, null, null);
+        stripeAccountSnapshots.invalidate(user.getStripeAccountId());
     }
 
     /**
-     * Internal method to sync account status from Stripe
+     * Internal method to sync account status from Stripe (one account retrieval, from the snapshot cache
+     * unless fresh is true); the row is only written when the status differs from the stored one
+     * Returns the synced status, or the stored one if Stripe could not be reached
      */
-    private void syncStripeAccountStatus(User user) {
+    private StripeStatus syncStripeAccountStatus(StripeAccountView user, boolean fresh) {
         try {
-            boolean isComplete = stripeService.isOnboardingComplete(user.getStripeAccountId());
-            String status = stripeService.getAccountStatus(user.getStripeAccountId());
+            StripeAccountSnapshot snapshot = fresh
+                    ? stripeAccountSnapshots.retrieve(user.getStripeAccountId())
+                    : stripeAccountSnapshots.get(user.getStripeAccountId());
+            String status = snapshot.status();
+            boolean isComplete = snapshot.onboardingComplete();
             
-            user.setStripeOnboardingComplete(isComplete);
-            user.setStripeAccountStatus(status);
-            userRepository.save(user);
+            if (!status.equals(user.getStripeAccountStatus())
+                    || !Boolean.valueOf(isComplete).equals(user.getStripeOnboardingComplete())) {
+                updateStripeAccount(user, user.getStripeAccountId(), status, isComplete);
+            }
             
             log.debug("Synced Stripe account status for user {}: complete={}, status={}", 
                     user.getId(), isComplete, status);
+            return new StripeStatus(status, isComplete);
                     
         } catch (Exception e) {
             log.warn("Failed to sync Stripe account status for user {}: {}", user.getId(), e.getMessage());
+            return new StripeStatus(user.getStripeAccountStatus(), user.getStripeOnboardingComplete());
         }
     }
+
+    // Reads only the columns needed by Stripe operations
+    private StripeAccountView loadStripeAccount(UUID keycloakId) {
+        return userRepository.findStripeAccountByKeycloakId(keycloakId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+    }
+
+    // Writes the stripe_* columns in its own transaction; listeners are only notified when a value actually changed
+    private void updateStripeAccount(StripeAccountView user, String accountId, String status, Boolean onboardingComplete) {
+        transaction.executeWithoutResult(tx -> {
+            if (userRepository.updateStripeAccount(user.getId(), accountId, status, onboardingComplete) > 0) {
+                userService.publishProfileChanged(user.getKeycloakId());
+            }
+        });
+    }
+
+    private record StripeStatus(String accountStatus, Boolean onboardingComplete) {
+    }
 }
\ No newline at end of file
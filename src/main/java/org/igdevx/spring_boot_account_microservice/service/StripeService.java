@@ -1,5 +1,6 @@
 package org.igdevx.spring_boot_account_microservice.service;
 
+import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Account;
 import com.stripe.model.AccountLink;
@@ -7,12 +8,14 @@ import com.stripe.param.AccountCreateParams;
 import com.stripe.param.AccountLinkCreateParams;
 import com.stripe.param.AccountRetrieveParams;
 import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
-import org.igdevx.spring_boot_account_microservice.model.User;
+import org.igdevx.spring_boot_account_microservice.repository.projection.StripeAccountView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+
 @Service
 public class StripeService {
 
@@ -27,7 +30,7 @@ public class StripeService {
     /**
      * Create a Stripe Express connected account for a user
      */
-    public Account createConnectedAccount(User user) throws StripeException {
+    public Account createConnectedAccount(StripeAccountView user) throws StripeException {
         try {
             AccountCreateParams params = AccountCreateParams.builder()
                     .setType(AccountCreateParams.Type.EXPRESS)
@@ -90,7 +93,7 @@ public class StripeService {
     }
 
     /**
-     * Retrieve account information from Stripe
+     * Retrieve account information from Stripe (a 429 is thrown as is, any other failure as a BadRequestException)
      */
     public Account retrieveAccount(String stripeAccountId) throws StripeException {
         try {
@@ -99,6 +102,10 @@ public class StripeService {
             
             log.debug("Retrieved Stripe account {}", stripeAccountId);
             return account;
+        } catch (RateLimitException e) {
+            // Left to the caller, which may back off and retry (see StripeAccountReconciler)
+            log.warn("Stripe rate limit hit retrieving account {}", stripeAccountId);
+            throw e;
         } catch (StripeException e) {
             log.error("Failed to retrieve Stripe account {}: {}", stripeAccountId, e.getMessage());
             throw new BadRequestException("Failed to retrieve Stripe account: " + e.getMessage());
@@ -106,63 +113,16 @@ public class StripeService {
     }
 
     /**
-     * Check if account onboarding is complete
-     * An account is considered complete when details_submitted is true and charges_enabled is true
-     */
-    public boolean isOnboardingComplete(String stripeAccountId) {
-        try {
-            Account account = retrieveAccount(stripeAccountId);
-            // Check details_submitted first (user completed the onboarding flow)
-            // Then check charges_enabled (Stripe verified and enabled charging)
-            return account.getDetailsSubmitted() && account.getChargesEnabled();
-        } catch (Exception e) {
-            log.warn("Could not check onboarding status for account {}: {}", stripeAccountId, e.getMessage());
-            return false;
-        }
-    }
-
-    /**
-     * Get account status from Stripe
-     * Returns: incomplete, pending, active, rejected
+     * Retrieve the account once and derive both its status and its onboarding completion
      */
-    public String getAccountStatus(String stripeAccountId) {
-        try {
-            Account account = retrieveAccount(stripeAccountId);
-            
-            // Check if account is rejected
-            if (account.getRequirements() != null && 
-                account.getRequirements().getDisabledReason() != null) {
-                return "rejected";
-            }
-            
-            // Check if fully active (details submitted and charges enabled)
-            if (account.getDetailsSubmitted() && account.getChargesEnabled()) {
-                return "active";
-            }
-            
-            // Check if details submitted but not yet verified
-            if (account.getDetailsSubmitted()) {
-                return "pending";
-            }
-            
-            // User hasn't completed onboarding yet
-            return "incomplete";
-        } catch (Exception e) {
-            log.warn("Could not get account status for {}: {}", stripeAccountId, e.getMessage());
-            return "unknown";
-        }
+    public StripeAccountSnapshot retrieveAccountSnapshot(String stripeAccountId) throws StripeException {
+        return StripeAccountSnapshot.of(retrieveAccount(stripeAccountId));
     }
 
     /**
      * Determine user type for Stripe metadata
      */
-    private String determineUserType(User user) {
-        if (user.getSiret() != null) {
-            return "producer";
-        } else if (user.getServiceType() != null) {
-            return "restaurant";
-        } else {
-            return "consumer";
-        }
+    private String determineUserType(StripeAccountView user) {
+        return user.getAccountType().name().toLowerCase(Locale.ROOT);
     }
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Account;
+import com.stripe.model.Capability;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.exception.ResourceNotFoundException;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.StripeAccountView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push-based Stripe account status (POST /stripe/webhook).
+ *
+ * The request thread verifies the signature and stores the event as pending in stripe_processed_events before
+ * Stripe is answered: an event that cannot be stored is answered with an error, and Stripe redelivers it. Stored
+ * events are then handed to {@code account.stripe.webhook.workers} threads through a bounded queue
+ * ({@code account.stripe.webhook.queue-capacity}); an event that does not fit, fails to apply or was lost with
+ * its replica stays pending, and {@link #retryPendingEvents()} applies it later with an exponential backoff, up
+ * to {@code account.stripe.webhook.max-attempts} after which it is marked failed.
+ *
+ * account.updated carries the account as of the event; capability.updated only the capability, and a retried
+ * event may be long outdated, so their account is retrieved again (the stored payload is kept for inspection).
+ * Each event is applied in one transaction that marks it applied, under a per-account advisory lock: a
+ * redelivered or already applied event is skipped, and so is an account.updated older than the last event
+ * applied to its account (Stripe does not guarantee the delivery order). The stripe_* columns are only written
+ * when they change.
+ */
+@Service
+public class StripeWebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookService.class);
+
+    static final String ACCOUNT_UPDATED = "account.updated";
+    static final String CAPABILITY_UPDATED = "capability.updated";
+
+    private static final Set<String> HANDLED_TYPES = Set.of(ACCOUNT_UPDATED, CAPABILITY_UPDATED);
+
+    // Serializes the events of one account until commit (first key: namespace of these locks)
+    private static final String LOCK_ACCOUNT_SQL =
+            "SELECT pg_advisory_xact_lock(hashtext('stripe_account'), hashtext(?))";
+
+    // Not picked up by the retry before the lease is over: the worker it was handed to is applying it
+    private static final String STORE_EVENT_SQL = """
+            INSERT INTO stripe_processed_events (event_id, event_type, account_id, event_created, state, payload,
+                                                 next_attempt_at)
+            VALUES (?, ?, ?, ?, 'pending', ?, LOCALTIMESTAMP + make_interval(secs => ?))
+            ON CONFLICT (event_id) DO NOTHING
+            """;
+
+    private static final String CLAIM_EVENT_SQL = """
+            UPDATE stripe_processed_events
+            SET state = 'applied', attempts = attempts + 1, processed_at = LOCALTIMESTAMP, last_error = NULL
+            WHERE event_id = ? AND state = 'pending'
+            """;
+
+    private static final String NEWER_EVENT_SQL = """
+            SELECT EXISTS (SELECT 1 FROM stripe_processed_events
+                           WHERE account_id = ? AND event_created > ? AND state = 'applied')
+            """;
+
+    // Backoff of base * 2^attempts seconds, capped; failed for good after the last attempt
+    private static final String RECORD_FAILURE_SQL = """
+            UPDATE stripe_processed_events
+            SET attempts = attempts + 1,
+                last_error = ?,
+                next_attempt_at = LOCALTIMESTAMP + make_interval(secs => LEAST(? * power(2, attempts), ?)),
+                state = CASE WHEN attempts + 1 >= ? THEN 'failed' ELSE 'pending' END
+            WHERE event_id = ? AND state = 'pending'
+            RETURNING state
+            """;
+
+    // Leases a batch of due events, so that replicas retrying at the same time take different ones
+    private static final String LEASE_DUE_EVENTS_SQL = """
+            UPDATE stripe_processed_events
+            SET next_attempt_at = LOCALTIMESTAMP + make_interval(secs => ?)
+            WHERE event_id IN (SELECT event_id FROM stripe_processed_events
+                               WHERE state = 'pending' AND next_attempt_at <= LOCALTIMESTAMP
+                               ORDER BY next_attempt_at
+                               LIMIT ?
+                               FOR UPDATE SKIP LOCKED)
+            RETURNING event_id, event_type, account_id, event_created
+            """;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // A stored event, as applied by the workers and the retry
+    record StoredEvent(String id, String type, String accountId, long created) {
+    }
+
+    // Retry settings (account.stripe.webhook.*)
+    record Retry(Duration lease, Duration backoff, Duration maxBackoff, int maxAttempts, int batchSize) {
+
+        static final Retry DEFAULTS = new Retry(Duration.ofMinutes(2), Duration.ofSeconds(30), Duration.ofHours(1), 12, 100);
+    }
+
+    private final StripeAccountSnapshotCache stripeAccountSnapshots;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final Executor executor;
+    private final boolean enabled;
+    private final String signingSecret;
+    private final Duration eventRetention;
+    private final Retry retry;
+
+    @Autowired
+    public StripeWebhookService(StripeAccountSnapshotCache stripeAccountSnapshots,
+                                UserRepository userRepository,
+                                UserService userService,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${account.stripe.webhook.enabled:false}") boolean enabled,
+                                @Value("${stripe.webhook.secret:}") String signingSecret,
+                                @Value("${account.stripe.webhook.workers:2}") int workers,
+                                @Value("${account.stripe.webhook.queue-capacity:1000}") int queueCapacity,
+                                @Value("${account.stripe.webhook.event-retention:P7D}") Duration eventRetention,
+                                @Value("${account.stripe.webhook.processing-lease:PT2M}") Duration processingLease,
+                                @Value("${account.stripe.webhook.retry-backoff:PT30S}") Duration retryBackoff,
+                                @Value("${account.stripe.webhook.retry-max-backoff:PT1H}") Duration retryMaxBackoff,
+                                @Value("${account.stripe.webhook.max-attempts:12}") int maxAttempts,
+                                @Value("${account.stripe.webhook.retry-batch-size:100}") int retryBatchSize) {
+        this(stripeAccountSnapshots, userRepository, userService, new JdbcTemplate(dataSource),
+                new TransactionTemplate(transactionManager),
+                new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("stripe-webhook-")),
+                enabled, signingSecret, eventRetention,
+                new Retry(processingLease, retryBackoff, retryMaxBackoff, maxAttempts, retryBatchSize));
+        new ExecutorServiceMetrics((ExecutorService) executor, "stripeWebhooks", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    // Events are applied on the executor, which throws RejectedExecutionException when it is saturated
+    StripeWebhookService(StripeAccountSnapshotCache stripeAccountSnapshots, UserRepository userRepository,
+                         UserService userService, JdbcTemplate jdbcTemplate, TransactionTemplate transaction,
+                         Executor executor, boolean enabled, String signingSecret, Duration eventRetention,
+                         Retry retry) {
+        if (enabled && (signingSecret == null || signingSecret.isBlank())) {
+            throw new IllegalStateException("stripe.webhook.secret must be set when account.stripe.webhook.enabled is true");
+        }
+        this.stripeAccountSnapshots = stripeAccountSnapshots;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = transaction;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.signingSecret = signingSecret;
+        this.eventRetention = eventRetention;
+        this.retry = retry;
+    }
+
+    /**
+     * Verify and store an event, then queue it for the workers; once this returns, the event is applied eventually
+     */
+    public void receive(String payload, String signature) {
+        if (!enabled) {
+            throw new ResourceNotFoundException("Stripe webhooks are not enabled");
+        }
+
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signature, signingSecret);
+        } catch (SignatureVerificationException e) {
+            log.warn("Rejected a Stripe webhook call: {}", e.getMessage());
+            throw new BadRequestException("Invalid Stripe signature");
+        }
+
+        if (!HANDLED_TYPES.contains(event.getType())) {
+            log.debug("Ignoring Stripe event {} ({})", event.getId(), event.getType());
+            return;
+        }
+
+        Optional<StripeObject> object = event.getDataObjectDeserializer().getObject();
+        String accountId = accountIdOf(event, object);
+        if (accountId == null) {
+            log.warn("Stripe event {} ({}) does not name an account", event.getId(), event.getType());
+            return;
+        }
+        StoredEvent stored = new StoredEvent(event.getId(), event.getType(), accountId,
+                event.getCreated() != null ? event.getCreated() : 0L);
+
+        // Not acknowledged when this fails: Stripe redelivers the event
+        if (jdbcTemplate.update(STORE_EVENT_SQL, stored.id(), stored.type(), stored.accountId(), stored.created(),
+                payload, (double) retry.lease().toSeconds()) == 0) {
+            log.debug("Stripe event {} was already received", stored.id());
+            return;
+        }
+
+        // The account as of the event for account.updated, unless its payload could not be read (other API version)
+        Account asOfEvent = ACCOUNT_UPDATED.equals(stored.type()) && object.orElse(null) instanceof Account account
+                ? account : null;
+        try {
+            executor.execute(() -> process(stored, asOfEvent));
+        } catch (RejectedExecutionException e) {
+            log.info("Stripe webhook queue is full, event {} ({}) left to the retry", stored.id(), stored.type());
+        }
+    }
+
+    /**
+     * Apply the pending events that are due: not handed to a worker, failed before or lost with their replica
+     */
+    @Scheduled(fixedDelayString = "${account.stripe.webhook.retry-interval:PT30S}",
+               initialDelayString = "${account.stripe.webhook.retry-interval:PT30S}")
+    public void retryPendingEvents() {
+        if (!enabled) {
+            return;
+        }
+        List<StoredEvent> due;
+        try {
+            due = jdbcTemplate.query(LEASE_DUE_EVENTS_SQL, (rs, rowNum) -> new StoredEvent(rs.getString("event_id"),
+                            rs.getString("event_type"), rs.getString("account_id"), rs.getLong("event_created")),
+                    (double) retry.lease().toSeconds(), retry.batchSize());
+        } catch (RuntimeException e) {
+            log.warn("Could not read the pending Stripe events: {}", e.getMessage());
+            return;
+        }
+        if (!due.isEmpty()) {
+            log.info("Retrying {} pending Stripe events", due.size());
+        }
+        for (StoredEvent event : due) {
+            process(event, null);
+        }
+    }
+
+    // Apply one stored event, with the account as of the event when it came with it (retrieved now otherwise);
+    // a failure leaves it pending until its next attempt
+    void process(StoredEvent event, Account asOfEvent) {
+        try {
+            StripeAccountSnapshot snapshot = asOfEvent != null
+                    ? StripeAccountSnapshot.of(asOfEvent)
+                    : stripeAccountSnapshots.retrieve(event.accountId());
+
+            if (Boolean.TRUE.equals(transaction.execute(status -> apply(event, snapshot, asOfEvent != null)))) {
+                stripeAccountSnapshots.put(snapshot);
+            }
+        } catch (StripeException | RuntimeException e) {
+            log.warn("Could not apply Stripe event {} ({}): {}", event.id(), event.type(), e.getMessage());
+            recordFailure(event, e);
+        }
+    }
+
+    // In the event's transaction: false when the event was already applied, or is older than the last one applied
+    private boolean apply(StoredEvent event, StripeAccountSnapshot snapshot, boolean asOfEvent) {
+        jdbcTemplate.query(LOCK_ACCOUNT_SQL, rs -> { }, event.accountId());
+
+        if (jdbcTemplate.update(CLAIM_EVENT_SQL, event.id()) == 0) {
+            log.debug("Stripe event {} was already applied", event.id());
+            return false;
+        }
+        // A retrieved account is current, whatever the age of the event
+        if (asOfEvent && Boolean.TRUE.equals(jdbcTemplate.queryForObject(NEWER_EVENT_SQL, Boolean.class,
+                event.accountId(), event.created()))) {
+            log.debug("Stripe event {} is older than the last event applied to account {}", event.id(), event.accountId());
+            return false;
+        }
+
+        for (StripeAccountView user : userRepository.findStripeAccountsByStripeAccountId(event.accountId())) {
+            if (userRepository.updateStripeAccount(user.getId(), event.accountId(),
+                    snapshot.status(), snapshot.onboardingComplete()) > 0) {
+                userService.publishProfileChanged(user.getKeycloakId());
+            }
+        }
+        log.debug("Applied Stripe event {} to account {}: status={}", event.id(), event.accountId(), snapshot.status());
+        return true;
+    }
+
+    // When this fails too, the event is attempted again once its lease is over
+    private void recordFailure(StoredEvent event, Exception cause) {
+        String error = String.valueOf(cause.getMessage());
+        try {
+            List<String> state = jdbcTemplate.queryForList(RECORD_FAILURE_SQL, String.class,
+                    error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                    (double) retry.backoff().toSeconds(), (double) retry.maxBackoff().toSeconds(), retry.maxAttempts(),
+                    event.id());
+            if (state.contains("failed")) {
+                log.error("Gave up on Stripe event {} ({}) for account {} after {} attempts; "
+                                + "POST /stripe/sync-status corrects the account",
+                        event.id(), event.type(), event.accountId(), retry.maxAttempts());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not record the failure of Stripe event {}: {}", event.id(), e.getMessage());
+        }
+    }
+
+    // Connect events name the connected account; otherwise it is the object's (or the capability's) account
+    private static String accountIdOf(Event event, Optional<StripeObject> object) {
+        if (event.getAccount() != null) {
+            return event.getAccount();
+        }
+        StripeObject value = object.orElse(null);
+        if (value instanceof Account account) {
+            return account.getId();
+        }
+        if (value instanceof Capability capability) {
+            return capability.getAccount();
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${account.stripe.webhook.event-purge-interval:PT6H}",
+               initialDelayString = "${account.stripe.webhook.event-purge-interval:PT6H}")
+    public void purgeProcessedEvents() {
+        try {
+            int purged = jdbcTemplate.update(
+                    "DELETE FROM stripe_processed_events WHERE state <> 'pending' AND received_at < LOCALTIMESTAMP - make_interval(secs => ?)",
+                    (double) eventRetention.toSeconds());
+            if (purged > 0) {
+                log.info("Purged {} processed Stripe events older than {}", purged, eventRetention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not purge the processed Stripe events: {}", e.getMessage());
+        }
+    }
+
+    // Queued events are still applied on shutdown; those left over stay pending for the retry
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+            if (!service.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Stripe webhook events still queued at shutdown are left to the retry");
+                service.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Accent and case folding shared by the in-memory text indexes ("Oléiculteur" -> "oleiculteur")
+final class TextFolding {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+    private TextFolding() {
+    }
+
+    // Lower-case, strip diacritics and ligatures, and collapse everything that is not a letter or digit
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String folded = MARKS.matcher(decomposed).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae")
+                .replace("ß", "ss");
+        return SEPARATORS.matcher(folded).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,74 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter shared by concurrent callers: {@code permitsPerSecond} permits on average, and up to {@code burst}
+ * permits at once after an idle period. {@link #acquire()} blocks until the caller's permit is due, and
+ * {@link #pause(Duration)} holds every caller back (e.g. once the remote side answered 429).
+ *
+ * Kept as the time at which the next permit is due, which idle time moves back by at most {@code burst} permits.
+ * Guarded by a ReentrantLock rather than synchronized: callers may run on virtual threads, which a monitor pins.
+ */
+final class TokenBucket {
+
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextPermitAt;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock, Sleeper sleeper) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1");
+        }
+        this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = (burst - 1) * nanosPerPermit;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+        this.nextPermitAt = nanoClock.getAsLong() - burstNanos;
+    }
+
+    void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            sleeper.sleep(wait);
+        }
+    }
+
+    // No permit is due before the pause is over
+    void pause(Duration pause) {
+        lock.lock();
+        try {
+            nextPermitAt = Math.max(nextPermitAt, nanoClock.getAsLong() + pause.toNanos());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes the next permit; returns how long to wait for it, in nanoseconds
+    private long reserve() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            nextPermitAt = Math.max(nextPermitAt, now - burstNanos);
+            long wait = nextPermitAt - now;
+            nextPermitAt += nanosPerPermit;
+            return Math.max(wait, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
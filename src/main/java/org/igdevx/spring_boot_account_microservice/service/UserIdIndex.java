@@ -0,0 +1,409 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory index of the immutable users.id <-> keycloak_id mapping.
+ *
+ * Entries are packed in three parallel long arrays (id, keycloak ID halves), so an entry costs 24 bytes and no
+ * object, and the arrays grow and shrink with the number of entries, whatever the ids are. Each direction is an
+ * open-addressing int table of entry positions (linear probing, backward-shift deletion) kept at most half full.
+ * A user costs 40 to 64 bytes, about 100 MB at 2M users.
+ *
+ * The index is an accelerator only: a miss always falls back to the database. It is filled by a bulk load at
+ * startup and by committed writes, and entries are only removed when a user is deleted. Deletions committed
+ * here are applied right away; deletions made through another replica are picked up from user_tombstones every
+ * {@code account.user-id-index.tombstone-sweep-interval}, so a deleted user can still be resolved that long.
+ */
+@Component
+public class UserIdIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserIdIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Tombstones are stamped with the start of the deleting transaction, which may commit later: the sweep
+    // re-reads from the newest one seen minus the overlap
+    private static final String TOMBSTONES_SQL = """
+            SELECT t.user_id, t.deleted_at
+            FROM user_tombstones t
+            WHERE t.deleted_at >= COALESCE(?::timestamp, LOCALTIMESTAMP) - make_interval(secs => ?)
+            """;
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final Duration tombstoneOverlap;
+
+    private final StampedLock lock = new StampedLock();
+
+    // entries, packed at [0, size)
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] mostSigBits = new long[INITIAL_CAPACITY];
+    private long[] leastSigBits = new long[INITIAL_CAPACITY];
+    private int size;
+    // open-addressing tables of entry positions + 1, hashed by user ID and by keycloak ID; 0 marks an empty slot
+    private int[] byId = new int[INITIAL_CAPACITY * 2];
+    private int[] byKeycloakId = new int[INITIAL_CAPACITY * 2];
+
+    private volatile boolean loaded;
+    // users deleted while the bulk load is running, so that it does not put them back
+    private final Set<Long> removedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    // newest tombstone seen by the sweep (null: none yet, start from now)
+    private LocalDateTime lastTombstone;
+
+    public UserIdIndex(UserRepository userRepository,
+                       DataSource dataSource,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${account.user-id-index.enabled:true}") boolean enabled,
+                       @Value("${account.user-id-index.tombstone-overlap:PT5M}") Duration tombstoneOverlap) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.tombstoneOverlap = tombstoneOverlap;
+        Gauge.builder("account.user_id_index.size", this, UserIdIndex::size)
+                .description("Number of id <-> keycloak ID mappings held in memory")
+                .register(meterRegistry);
+    }
+
+    public Optional<UUID> keycloakIdOf(Long id) {
+        if (!enabled || id == null || id <= 0) {
+            return Optional.empty();
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        long[] uuid = keycloakIdAt(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                uuid = keycloakIdAt(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return uuid != null ? Optional.of(new UUID(uuid[0], uuid[1])) : Optional.empty();
+    }
+
+    public OptionalLong idOf(UUID keycloakId) {
+        if (!enabled || keycloakId == null) {
+            return OptionalLong.empty();
+        }
+        long msb = keycloakId.getMostSignificantBits();
+        long lsb = keycloakId.getLeastSignificantBits();
+
+        long stamp = lock.tryOptimisticRead();
+        long id = idAt(msb, lsb);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                id = idAt(msb, lsb);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return id > 0 ? OptionalLong.of(id) : OptionalLong.empty();
+    }
+
+    public void put(Long id, UUID keycloakId) {
+        if (!enabled || id == null || keycloakId == null || id <= 0) {
+            return;
+        }
+        long msb = keycloakId.getMostSignificantBits();
+        long lsb = keycloakId.getLeastSignificantBits();
+
+        long stamp = lock.writeLock();
+        try {
+            int entry = findById(id);
+            if (entry >= 0) {
+                if (mostSigBits[entry] == msb && leastSigBits[entry] == lsb) {
+                    return;
+                }
+                removeEntry(entry);
+            }
+            entry = findByKeycloakId(msb, lsb);
+            if (entry >= 0) {
+                removeEntry(entry);
+            }
+            if (size == ids.length) {
+                resize(ids.length * 2);
+            }
+            ids[size] = id;
+            mostSigBits[size] = msb;
+            leastSigBits[size] = lsb;
+            insertSlot(byId, homeById(byId, size), size);
+            insertSlot(byKeycloakId, homeByKeycloakId(byKeycloakId, size), size);
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(Long id) {
+        if (!enabled || id == null || id <= 0) {
+            return;
+        }
+        if (loading) {
+            removedDuringLoad.add(id);
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int entry = findById(id);
+            if (entry < 0) {
+                return;
+            }
+            removeEntry(entry);
+            if (ids.length > INITIAL_CAPACITY && size * 4 < ids.length) {
+                resize(ids.length / 2);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        if (event.isDeletion()) {
+            remove(event.getUserId());
+        } else {
+            put(event.getUserId(), event.getKeycloakId());
+        }
+    }
+
+    // Stream the whole users table into the index once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        loading = true;
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (var rows = userRepository.streamAllKeycloakIds()) {
+                    rows.forEach(row -> {
+                        if (!removedDuringLoad.contains(row.getId())) {
+                            put(row.getId(), row.getKeycloakId());
+                        }
+                    });
+                }
+            });
+            loaded = true;
+            log.info("Loaded {} id <-> keycloak ID mappings in {} ms", size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Could not bulk load the user id index, lookups will fall back to the database: {}", e.getMessage());
+        } finally {
+            loading = false;
+            removedDuringLoad.clear();
+        }
+    }
+
+    // Drop the users deleted through other replicas (removing an absent entry is a no-op)
+    @Scheduled(fixedDelayString = "${account.user-id-index.tombstone-sweep-interval:PT1M}",
+               initialDelayString = "${account.user-id-index.tombstone-sweep-interval:PT1M}")
+    public void sweepTombstones() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.query(TOMBSTONES_SQL, rs -> {
+                remove(rs.getLong("user_id"));
+                LocalDateTime deletedAt = rs.getObject("deleted_at", LocalDateTime.class);
+                if (lastTombstone == null || deletedAt.isAfter(lastTombstone)) {
+                    lastTombstone = deletedAt;
+                }
+            }, lastTombstone, (double) tombstoneOverlap.toSeconds());
+        } catch (RuntimeException e) {
+            log.warn("Could not sweep the user tombstones into the user id index: {}", e.getMessage());
+        }
+    }
+
+    // ----- entries and open-addressing tables (writers hold the write lock) -----
+
+    // Keycloak ID halves of a user, or null; safe under an optimistic read (validated by the caller)
+    private long[] keycloakIdAt(long id) {
+        int[] table = byId;
+        long[] entryIds = ids;
+        long[] msbs = mostSigBits;
+        long[] lsbs = leastSigBits;
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask, probes = 0; probes < table.length; slot = (slot + 1) & mask, probes++) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                return null;
+            }
+            if (entry < entryIds.length && entryIds[entry] == id && entry < msbs.length && entry < lsbs.length) {
+                return new long[] {msbs[entry], lsbs[entry]};
+            }
+        }
+        return null;
+    }
+
+    // User ID of a keycloak ID, or 0; safe under an optimistic read (validated by the caller)
+    private long idAt(long msb, long lsb) {
+        int[] table = byKeycloakId;
+        long[] entryIds = ids;
+        long[] msbs = mostSigBits;
+        long[] lsbs = leastSigBits;
+        int mask = table.length - 1;
+        for (int slot = hash(msb, lsb) & mask, probes = 0; probes < table.length; slot = (slot + 1) & mask, probes++) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                return 0;
+            }
+            if (entry < msbs.length && entry < lsbs.length && entry < entryIds.length
+                    && msbs[entry] == msb && lsbs[entry] == lsb) {
+                return entryIds[entry];
+            }
+        }
+        return 0;
+    }
+
+    private int findById(long id) {
+        int mask = byId.length - 1;
+        for (int slot = hash(id) & mask; byId[slot] != 0; slot = (slot + 1) & mask) {
+            if (ids[byId[slot] - 1] == id) {
+                return byId[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int findByKeycloakId(long msb, long lsb) {
+        int mask = byKeycloakId.length - 1;
+        for (int slot = hash(msb, lsb) & mask; byKeycloakId[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = byKeycloakId[slot] - 1;
+            if (mostSigBits[entry] == msb && leastSigBits[entry] == lsb) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    // Remove an entry and move the last one into its position, so that entries stay packed
+    private void removeEntry(int entry) {
+        removeSlot(byId, slotOf(byId, homeById(byId, entry), entry), true);
+        removeSlot(byKeycloakId, slotOf(byKeycloakId, homeByKeycloakId(byKeycloakId, entry), entry), false);
+        int last = size - 1;
+        if (entry != last) {
+            byId[slotOf(byId, homeById(byId, last), last)] = entry + 1;
+            byKeycloakId[slotOf(byKeycloakId, homeByKeycloakId(byKeycloakId, last), last)] = entry + 1;
+            ids[entry] = ids[last];
+            mostSigBits[entry] = mostSigBits[last];
+            leastSigBits[entry] = leastSigBits[last];
+        }
+        size = last;
+    }
+
+    private static int slotOf(int[] table, int home, int entry) {
+        int mask = table.length - 1;
+        int slot = home;
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static void insertSlot(int[] table, int home, int entry) {
+        int mask = table.length - 1;
+        int slot = home;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    // Backward-shift the following entries of the probe sequence into the hole
+    private void removeSlot(int[] table, int slot, boolean hashedById) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int candidate = table[next] - 1;
+            int home = hashedById ? homeById(table, candidate) : homeByKeycloakId(table, candidate);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    // Entry arrays of the given capacity, tables of twice that
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        mostSigBits = Arrays.copyOf(mostSigBits, capacity);
+        leastSigBits = Arrays.copyOf(leastSigBits, capacity);
+        byId = new int[capacity * 2];
+        byKeycloakId = new int[capacity * 2];
+        for (int entry = 0; entry < size; entry++) {
+            insertSlot(byId, homeById(byId, entry), entry);
+            insertSlot(byKeycloakId, homeByKeycloakId(byKeycloakId, entry), entry);
+        }
+    }
+
+    private int homeById(int[] table, int entry) {
+        return hash(ids[entry]) & (table.length - 1);
+    }
+
+    private int homeByKeycloakId(int[] table, int entry) {
+        return hash(mostSigBits[entry], leastSigBits[entry]) & (table.length - 1);
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ (lsb * 0x9E3779B97F4A7C15L);
+        h ^= (h >>> 32);
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+}
@@ -0,0 +1,134 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near cache of {@link UserProfileResponse} keyed by keycloak ID and by internal user ID.
+ *
+ * Entries are evicted on every {@link UserProfileChangedEvent}, once when the event is published
+ * and once more after the writing transaction commits. A load that started before an eviction is
+ * never stored, so a slow reader cannot put back a profile that a concurrent write just replaced.
+ *
+ * Invalidation is local to this instance: a write served by another replica is only seen here once
+ * the entry expires (expireAfterWrite of spring.cache.caffeine.spec, 5 minutes), which bounds how
+ * stale a cached profile can be.
+ *
+ * UserProfileResponse is mutable, so the cache holds its own copy (with an unmodifiable profession
+ * list) and every read returns a copy: callers may change what they get without affecting the entry.
+ */
+@Component
+public class UserProfileCache {
+
+    public static final String BY_KEYCLOAK_ID = "userProfilesByKeycloakId";
+    public static final String BY_ID = "userProfilesById";
+
+    private final Cache byKeycloakId;
+    private final Cache byId;
+    private final Counter invalidations;
+
+    // Incremented on every eviction; loads started under an older epoch are discarded
+    private final AtomicLong epoch = new AtomicLong();
+
+    public UserProfileCache(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.byKeycloakId = cacheManager.getCache(BY_KEYCLOAK_ID);
+        this.byId = cacheManager.getCache(BY_ID);
+        this.invalidations = Counter.builder("account.user_profile_cache.invalidations")
+                .description("Profile cache entries invalidated by writes")
+                .register(meterRegistry);
+    }
+
+    public Optional<UserProfileResponse> getByKeycloakId(UUID keycloakId) {
+        return Optional.ofNullable(byKeycloakId.get(keycloakId, UserProfileResponse.class)).map(UserProfileCache::copy);
+    }
+
+    public Optional<UserProfileResponse> getById(Long id) {
+        return Optional.ofNullable(byId.get(id, UserProfileResponse.class)).map(UserProfileCache::copy);
+    }
+
+    /**
+     * Must be called before reading the profile from the database; the returned token is passed to
+     * {@link #put(UserProfileResponse, long)}.
+     */
+    public long beginLoad() {
+        return epoch.get();
+    }
+
+    /**
+     * Stores a freshly loaded profile. Inside a transaction the entry is only stored after commit,
+     * so profiles of rolled back inserts never become visible.
+     */
+    public void put(UserProfileResponse profile, long loadToken) {
+        if (profile == null || profile.getId() == null || profile.getKeycloakId() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(profile, loadToken);
+                }
+            });
+        } else {
+            store(profile, loadToken);
+        }
+    }
+
+    public void evict(Long id, UUID keycloakId) {
+        epoch.incrementAndGet();
+        if (keycloakId != null) {
+            byKeycloakId.evict(keycloakId);
+        }
+        if (id != null) {
+            byId.evict(id);
+        }
+        invalidations.increment();
+    }
+
+    @EventListener
+    public void onProfileChanged(UserProfileChangedEvent event) {
+        evict(event.getUserId(), event.getKeycloakId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProfileChangeCommitted(UserProfileChangedEvent event) {
+        evict(event.getUserId(), event.getKeycloakId());
+    }
+
+    // An eviction can run between the epoch check and the puts: the epoch is checked again after them,
+    // and the entries are taken back out if it moved (either the eviction or this check removes them)
+    private void store(UserProfileResponse profile, long loadToken) {
+        if (epoch.get() != loadToken) {
+            return;
+        }
+        UUID keycloakId = UUID.fromString(profile.getKeycloakId());
+        UserProfileResponse entry = copy(profile);
+        byKeycloakId.put(keycloakId, entry);
+        byId.put(entry.getId(), entry);
+        if (epoch.get() != loadToken) {
+            byKeycloakId.evict(keycloakId);
+            byId.evict(entry.getId());
+        }
+    }
+
+    private static UserProfileResponse copy(UserProfileResponse profile) {
+        return profile.toBuilder()
+                .professions(profile.getProfessions() != null ? List.copyOf(profile.getProfessions()) : null)
+                .build();
+    }
+}
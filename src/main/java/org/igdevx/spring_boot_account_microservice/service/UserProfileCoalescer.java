@@ -0,0 +1,94 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent get-or-create calls for the same keycloak ID (single flight).
+ *
+ * The first caller for a key runs {@link UserService#getOrCreateUserProfile(UUID)} (and its transaction)
+ * and every caller arriving while it is in flight waits for the same result instead of hitting the
+ * database. Entries are removed as soon as the call completes, so the map never holds more keys than
+ * there are requests in flight.
+ *
+ * A caller waits at most {@code account.user-profile.coalesce-max-wait} for the call in flight, then runs
+ * its own (get-or-create is idempotent), so a stuck call does not hold every caller of that key.
+ */
+@Component
+public class UserProfileCoalescer {
+
+    private final UserService userService;
+    private final Map<UUID, CompletableFuture<UserProfileResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedRequests;
+    private final Counter timedOutWaits;
+    private final Duration maxWait;
+
+    public UserProfileCoalescer(UserService userService, MeterRegistry meterRegistry,
+                                @Value("${account.user-profile.coalesce-max-wait:PT5S}") Duration maxWait) {
+        this.userService = userService;
+        this.maxWait = maxWait;
+        this.coalescedRequests = Counter.builder("account.user_profile.coalesced_requests")
+                .description("getOrCreateUserProfile calls served by another in-flight call for the same keycloak ID")
+                .register(meterRegistry);
+        this.timedOutWaits = Counter.builder("account.user_profile.coalesce_timeouts")
+                .description("Callers that stopped waiting for the in-flight call and loaded the profile themselves")
+                .register(meterRegistry);
+        Gauge.builder("account.user_profile.in_flight", inFlight, Map::size)
+                .description("Distinct keycloak IDs with a getOrCreateUserProfile call in flight")
+                .register(meterRegistry);
+    }
+
+    public UserProfileResponse getOrCreateUserProfile(UUID keycloakId) {
+        CompletableFuture<UserProfileResponse> call = new CompletableFuture<>();
+        CompletableFuture<UserProfileResponse> leader = inFlight.putIfAbsent(keycloakId, call);
+        if (leader != null) {
+            coalescedRequests.increment();
+            return await(leader, keycloakId);
+        }
+
+        // Errors too complete the call: the callers waiting on it must not be left hanging
+        try {
+            UserProfileResponse profile = userService.getOrCreateUserProfile(keycloakId);
+            call.complete(profile);
+            return profile;
+        } catch (Throwable e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(keycloakId, call);
+        }
+    }
+
+    private UserProfileResponse await(CompletableFuture<UserProfileResponse> leader, UUID keycloakId) {
+        try {
+            return leader.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timedOutWaits.increment();
+            return userService.getOrCreateUserProfile(keycloakId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the profile of " + keycloakId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProducerProfileRequest;
+import org.igdevx.spring_boot_account_microservice.dto.RestaurantProfileRequest;
+import org.igdevx.spring_boot_account_microservice.dto.UpdatePersonalInfoRequest;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileVersionView;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Profile writes keyed by keycloak_id, one statement each, answering the written row (RETURNING) so that the
+ * response needs no read after the write.
+ *
+ * Without an If-Match, the write is an INSERT ... ON CONFLICT (keycloak_id) DO UPDATE: it creates the user or
+ * updates it, only when a column actually changes. With an If-Match the user must exist, so the write is an
+ * UPDATE guarded by the expected (id, version). Either way, nothing is answered when nothing was written: the
+ * stored profile already had these values, or (If-Match) it moved on since.
+ *
+ * Statements go through JDBC, on the connection of the surrounding JPA transaction; the persistence context
+ * does not see them, so callers must not hold a User entity loaded before the write.
+ */
+@Component
+class UserProfileWriter {
+
+    private static final String RETURNING = " RETURNING " + ProfileRowMapper.COLUMNS;
+
+    // ON CONFLICT DO NOTHING answers no row for the users that already exist
+    private static final String INSERT_IF_ABSENT_SQL = """
+            INSERT INTO users AS u (keycloak_id)
+            SELECT * FROM unnest(CAST(:keycloakIds AS uuid[]))
+            ON CONFLICT (keycloak_id) DO NOTHING
+            """ + RETURNING;
+
+    private static final String UPSERT_PERSONAL_INFO_SQL = """
+            INSERT INTO users AS u (keycloak_id, biography, website, facebook, instagram, linkedin)
+            VALUES (:keycloakId, :biography, :website, :facebook, :instagram, :linkedin)
+            ON CONFLICT (keycloak_id) DO UPDATE SET
+                biography = EXCLUDED.biography,
+                website = EXCLUDED.website,
+                facebook = EXCLUDED.facebook,
+                instagram = EXCLUDED.instagram,
+                linkedin = EXCLUDED.linkedin
+            WHERE (u.biography, u.website, u.facebook, u.instagram, u.linkedin)
+                  IS DISTINCT FROM
+                  (EXCLUDED.biography, EXCLUDED.website, EXCLUDED.facebook, EXCLUDED.instagram, EXCLUDED.linkedin)
+            """ + RETURNING;
+
+    private static final String UPDATE_PERSONAL_INFO_SQL = """
+            UPDATE users u SET
+                biography = :biography,
+                website = :website,
+                facebook = :facebook,
+                instagram = :instagram,
+                linkedin = :linkedin
+            WHERE u.keycloak_id = :keycloakId AND u.id = :expectedId AND u.version = :expectedVersion
+              AND (u.biography, u.website, u.facebook, u.instagram, u.linkedin)
+                  IS DISTINCT FROM
+                  (CAST(:biography AS TEXT), CAST(:website AS VARCHAR), CAST(:facebook AS VARCHAR),
+                   CAST(:instagram AS VARCHAR), CAST(:linkedin AS VARCHAR))
+            """ + RETURNING;
+
+    // Also clears producer fields (EXCLUDED has them NULL); professions are cleared separately
+    private static final String UPSERT_RESTAURANT_PROFILE_SQL = """
+            INSERT INTO users AS u (keycloak_id, biography, website, facebook, instagram, linkedin,
+                                    service_type, cuisine_type, hygiene_certifications, awards, account_type)
+            VALUES (:keycloakId, :biography, :website, :facebook, :instagram, :linkedin,
+                    :serviceType, :cuisineType, :hygieneCertifications, :awards, :accountType)
+            ON CONFLICT (keycloak_id) DO UPDATE SET
+                biography = EXCLUDED.biography,
+                website = EXCLUDED.website,
+                facebook = EXCLUDED.facebook,
+                instagram = EXCLUDED.instagram,
+                linkedin = EXCLUDED.linkedin,
+                service_type = EXCLUDED.service_type,
+                cuisine_type = EXCLUDED.cuisine_type,
+                hygiene_certifications = EXCLUDED.hygiene_certifications,
+                awards = EXCLUDED.awards,
+                account_type = EXCLUDED.account_type,
+                siret = NULL,
+                organization_type = NULL,
+                installation_year = NULL,
+                employees_count = NULL
+            WHERE (u.biography, u.website, u.facebook, u.instagram, u.linkedin,
+                   u.service_type, u.cuisine_type, u.hygiene_certifications, u.awards, u.account_type,
+                   u.siret, u.organization_type, u.installation_year, u.employees_count)
+                  IS DISTINCT FROM
+                  (EXCLUDED.biography, EXCLUDED.website, EXCLUDED.facebook, EXCLUDED.instagram, EXCLUDED.linkedin,
+                   EXCLUDED.service_type, EXCLUDED.cuisine_type, EXCLUDED.hygiene_certifications, EXCLUDED.awards,
+                   EXCLUDED.account_type,
+                   EXCLUDED.siret, EXCLUDED.organization_type, EXCLUDED.installation_year, EXCLUDED.employees_count)
+            """ + RETURNING;
+
+    private static final String UPDATE_RESTAURANT_PROFILE_SQL = """
+            UPDATE users u SET
+                biography = :biography,
+                website = :website,
+                facebook = :facebook,
+                instagram = :instagram,
+                linkedin = :linkedin,
+                service_type = :serviceType,
+                cuisine_type = :cuisineType,
+                hygiene_certifications = :hygieneCertifications,
+                awards = :awards,
+                account_type = :accountType,
+                siret = NULL,
+                organization_type = NULL,
+                installation_year = NULL,
+                employees_count = NULL
+            WHERE u.keycloak_id = :keycloakId AND u.id = :expectedId AND u.version = :expectedVersion
+              AND (u.biography, u.website, u.facebook, u.instagram, u.linkedin,
+                   u.service_type, u.cuisine_type, u.hygiene_certifications, u.awards, u.account_type,
+                   u.siret, u.organization_type, u.installation_year, u.employees_count)
+                  IS DISTINCT FROM
+                  (CAST(:biography AS TEXT), CAST(:website AS VARCHAR), CAST(:facebook AS VARCHAR),
+                   CAST(:instagram AS VARCHAR), CAST(:linkedin AS VARCHAR),
+                   CAST(:serviceType AS VARCHAR), CAST(:cuisineType AS VARCHAR),
+                   CAST(:hygieneCertifications AS TEXT), CAST(:awards AS TEXT), CAST(:accountType AS VARCHAR),
+                   NULL, NULL, NULL, NULL)
+            """ + RETURNING;
+
+    // Also clears restaurant fields; professions are handled separately
+    private static final String UPSERT_PRODUCER_PROFILE_SQL = """
+            INSERT INTO users AS u (keycloak_id, biography, website, facebook, instagram, linkedin,
+                                    siret, organization_type, installation_year, employees_count, account_type)
+            VALUES (:keycloakId, :biography, :website, :facebook, :instagram, :linkedin,
+                    :siret, :organizationType, :installationYear, :employeesCount, :accountType)
+            ON CONFLICT (keycloak_id) DO UPDATE SET
+                biography = EXCLUDED.biography,
+                website = EXCLUDED.website,
+                facebook = EXCLUDED.facebook,
+                instagram = EXCLUDED.instagram,
+                linkedin = EXCLUDED.linkedin,
+                siret = EXCLUDED.siret,
+                organization_type = EXCLUDED.organization_type,
+                installation_year = EXCLUDED.installation_year,
+                employees_count = EXCLUDED.employees_count,
+                account_type = EXCLUDED.account_type,
+                service_type = NULL,
+                cuisine_type = NULL,
+                hygiene_certifications = NULL,
+                awards = NULL
+            WHERE (u.biography, u.website, u.facebook, u.instagram, u.linkedin,
+                   u.siret, u.organization_type, u.installation_year, u.employees_count, u.account_type,
+                   u.service_type, u.cuisine_type, u.hygiene_certifications, u.awards)
+                  IS DISTINCT FROM
+                  (EXCLUDED.biography, EXCLUDED.website, EXCLUDED.facebook, EXCLUDED.instagram, EXCLUDED.linkedin,
+                   EXCLUDED.siret, EXCLUDED.organization_type, EXCLUDED.installation_year, EXCLUDED.employees_count,
+                   EXCLUDED.account_type,
+                   EXCLUDED.service_type, EXCLUDED.cuisine_type, EXCLUDED.hygiene_certifications, EXCLUDED.awards)
+            """ + RETURNING;
+
+    private static final String UPDATE_PRODUCER_PROFILE_SQL = """
+            UPDATE users u SET
+                biography = :biography,
+                website = :website,
+                facebook = :facebook,
+                instagram = :instagram,
+                linkedin = :linkedin,
+                siret = :siret,
+                organization_type = :organizationType,
+                installation_year = :installationYear,
+                employees_count = :employeesCount,
+                account_type = :accountType,
+                service_type = NULL,
+                cuisine_type = NULL,
+                hygiene_certifications = NULL,
+                awards = NULL
+            WHERE u.keycloak_id = :keycloakId AND u.id = :expectedId AND u.version = :expectedVersion
+              AND (u.biography, u.website, u.facebook, u.instagram, u.linkedin,
+                   u.siret, u.organization_type, u.installation_year, u.employees_count, u.account_type,
+                   u.service_type, u.cuisine_type, u.hygiene_certifications, u.awards)
+                  IS DISTINCT FROM
+                  (CAST(:biography AS TEXT), CAST(:website AS VARCHAR), CAST(:facebook AS VARCHAR),
+                   CAST(:instagram AS VARCHAR), CAST(:linkedin AS VARCHAR),
+                   CAST(:siret AS VARCHAR), CAST(:organizationType AS VARCHAR),
+                   CAST(:installationYear AS INTEGER), CAST(:employeesCount AS INTEGER), CAST(:accountType AS VARCHAR),
+                   NULL, NULL, NULL, NULL)
+            """ + RETURNING;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ProfileRowMapper rowMapper;
+
+    UserProfileWriter(DataSource dataSource, ProfessionCatalog professionCatalog) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.rowMapper = new ProfileRowMapper(professionCatalog);
+    }
+
+    // Profiles of the users created; users that already existed are left out
+    List<UserProfileResponse> insertIfAbsent(Collection<UUID> keycloakIds) {
+        String[] ids = keycloakIds.stream().map(UUID::toString).toArray(String[]::new);
+        return jdbcTemplate.query(INSERT_IF_ABSENT_SQL, new MapSqlParameterSource("keycloakIds", ids), rowMapper);
+    }
+
+    Optional<UserProfileResponse> writePersonalInfo(UUID keycloakId, UpdatePersonalInfoRequest request,
+                                                    ProfileVersionView expected) {
+        return write(expected == null ? UPSERT_PERSONAL_INFO_SQL : UPDATE_PERSONAL_INFO_SQL,
+                common(keycloakId, request.getBiography(), request.getWebsite(), request.getFacebook(),
+                        request.getInstagram(), request.getLinkedin(), expected));
+    }
+
+    Optional<UserProfileResponse> writeRestaurantProfile(UUID keycloakId, RestaurantProfileRequest request,
+                                                         String accountType, ProfileVersionView expected) {
+        return write(expected == null ? UPSERT_RESTAURANT_PROFILE_SQL : UPDATE_RESTAURANT_PROFILE_SQL,
+                common(keycloakId, request.getBiography(), request.getWebsite(), request.getFacebook(),
+                        request.getInstagram(), request.getLinkedin(), expected)
+                        .addValue("serviceType", request.getServiceType(), Types.VARCHAR)
+                        .addValue("cuisineType", request.getCuisineType(), Types.VARCHAR)
+                        .addValue("hygieneCertifications", request.getHygieneCertifications(), Types.VARCHAR)
+                        .addValue("awards", request.getAwards(), Types.VARCHAR)
+                        .addValue("accountType", accountType, Types.VARCHAR));
+    }
+
+    Optional<UserProfileResponse> writeProducerProfile(UUID keycloakId, ProducerProfileRequest request,
+                                                       String accountType, ProfileVersionView expected) {
+        return write(expected == null ? UPSERT_PRODUCER_PROFILE_SQL : UPDATE_PRODUCER_PROFILE_SQL,
+                common(keycloakId, request.getBiography(), request.getWebsite(), request.getFacebook(),
+                        request.getInstagram(), request.getLinkedin(), expected)
+                        .addValue("siret", request.getSiret(), Types.VARCHAR)
+                        .addValue("organizationType", request.getOrganizationType(), Types.VARCHAR)
+                        .addValue("installationYear", request.getInstallationYear(), Types.INTEGER)
+                        .addValue("employeesCount", request.getEmployeesCount(), Types.INTEGER)
+                        .addValue("accountType", accountType, Types.VARCHAR));
+    }
+
+    private Optional<UserProfileResponse> write(String sql, MapSqlParameterSource parameters) {
+        return jdbcTemplate.query(sql, parameters, rowMapper).stream().findFirst();
+    }
+
+    private static MapSqlParameterSource common(UUID keycloakId, String biography, String website, String facebook,
+                                                String instagram, String linkedin, ProfileVersionView expected) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("keycloakId", keycloakId)
+                .addValue("biography", biography, Types.VARCHAR)
+                .addValue("website", website, Types.VARCHAR)
+                .addValue("facebook", facebook, Types.VARCHAR)
+                .addValue("instagram", instagram, Types.VARCHAR)
+                .addValue("linkedin", linkedin, Types.VARCHAR);
+        if (expected != null) {
+            parameters.addValue("expectedId", expected.id()).addValue("expectedVersion", expected.version());
+        }
+        return parameters;
+    }
+}
@@ -1,20 +1,46 @@
 package org.igdevx.spring_boot_account_microservice.service;
 
 import org.igdevx.spring_boot_account_microservice.dto.*;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
 import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.exception.PreconditionFailedException;
 import org.igdevx.spring_boot_account_microservice.exception.ResourceNotFoundException;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
 import org.igdevx.spring_boot_account_microservice.model.Profession;
 import org.igdevx.spring_boot_account_microservice.model.User;
-import org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository;
 import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProducerPublicProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileStampView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.ProfileVersionView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.RestaurantPublicProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.UserKeycloakIdView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.UserProfessionView;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,11 +48,23 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final ProfessionRepository professionRepository;
+    private final UserProfileCache userProfileCache;
+    private final UserIdIndex userIdIndex;
+    private final UserProfileWriter userProfileWriter;
+    private final ProfessionCatalog professionCatalog;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, ProfessionRepository professionRepository) {
+    public UserService(UserRepository userRepository, UserProfileCache userProfileCache, UserIdIndex userIdIndex,
+                       UserProfileWriter userProfileWriter, ProfessionCatalog professionCatalog,
+                       EntityManager entityManager, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
-        this.professionRepository = professionRepository;
+        this.professionCatalog = professionCatalog;
+        this.entityManager = entityManager;
+        this.userProfileCache = userProfileCache;
+        this.userIdIndex = userIdIndex;
+        this.userProfileWriter = userProfileWriter;
+        this.eventPublisher = eventPublisher;
     }
 
     public Optional<User> findByKeycloakId(UUID keycloakId) {
@@ -34,132 +72,311 @@ public class UserService {
     }
 
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        publishProfileChanged(savedUser);
+        return savedUser;
     }
 
     // Get keycloak ID by user ID
     public UUID getKeycloakIdByUserId(Long userId) {
-        User user = userRepository.findById(userId)
+        Optional<UUID> indexed = userIdIndex.keycloakIdOf(userId);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+
+        UUID keycloakId = userRepository.findKeycloakIdById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
-        return user.getKeycloakId();
+        userIdIndex.put(userId, keycloakId);
+        return keycloakId;
+    }
+
+    // Get keycloak IDs for a set of user IDs (unknown IDs are left out of the result)
+    @Transactional(readOnly = true)
+    public Map<Long, UUID> getKeycloakIdsByUserIds(Collection<Long> userIds) {
+        Map<Long, UUID> keycloakIds = new LinkedHashMap<>();
+        List<Long> unindexedIds = new ArrayList<>();
+        for (Long userId : userIds) {
+            Optional<UUID> indexed = userIdIndex.keycloakIdOf(userId);
+            if (indexed.isPresent()) {
+                keycloakIds.put(userId, indexed.get());
+            } else {
+                unindexedIds.add(userId);
+            }
+        }
+        if (unindexedIds.isEmpty()) {
+            return keycloakIds;
+        }
+        for (UserKeycloakIdView view : userRepository.findKeycloakIdsByIdIn(unindexedIds)) {
+            keycloakIds.put(view.getId(), view.getKeycloakId());
+            userIdIndex.put(view.getId(), view.getKeycloakId());
+        }
+        return keycloakIds;
     }
 
     // Get or create user profile (thread-safe for race conditions)
     // Used by internal service-to-service communication
     @Transactional
     public UserProfileResponse getOrCreateUserProfile(UUID keycloakId) {
+        Optional<UserProfileResponse> cached = userProfileCache.getByKeycloakId(keycloakId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         // Try to find existing user first
+        long loadToken = userProfileCache.beginLoad();
         Optional<User> existingUser = userRepository.findByKeycloakIdWithProfessions(keycloakId);
         
         if (existingUser.isPresent()) {
             User user = existingUser.get();
-            return mapToUserProfileResponse(user);
+            UserProfileResponse profile = mapToUserProfileResponse(user);
+            userProfileCache.put(profile, loadToken);
+            return profile;
         }
         
-        // User doesn't exist - create with optimistic locking to handle race conditions
-        try {
-            User newUser = User.builder()
-                    .keycloakId(keycloakId)
-                    .build();
-            // Initialize professions collection for new users
-            if (newUser.getProfessions() == null) {
-                newUser.setProfessions(new HashSet<>());
+        // User doesn't exist - INSERT ... ON CONFLICT DO NOTHING RETURNING answers the new profile, and never fails
+        // on a concurrent insert: the transaction stays usable and the other user can be read right after
+        List<UserProfileResponse> inserted = userProfileWriter.insertIfAbsent(List.of(keycloakId));
+        return inserted.isEmpty() ? mapToUserProfileResponse(loadUser(keycloakId)) : publishProfileChanged(inserted.get(0));
+    }
+
+    // Get user profiles for a set of keycloak IDs in a single query
+    // Missing users are created when createMissing is true, otherwise they are left out of the result
+    @Transactional
+    public Map<String, UserProfileResponse> getUserProfiles(Collection<UUID> keycloakIds, boolean createMissing) {
+        Map<String, UserProfileResponse> profiles = new LinkedHashMap<>();
+        if (keycloakIds.isEmpty()) {
+            return profiles;
+        }
+
+        Map<UUID, UserProfileResponse> cachedProfiles = new HashMap<>();
+        for (UUID keycloakId : keycloakIds) {
+            userProfileCache.getByKeycloakId(keycloakId).ifPresent(profile -> cachedProfiles.put(keycloakId, profile));
+        }
+
+        long loadToken = userProfileCache.beginLoad();
+        List<UUID> uncachedIds = keycloakIds.stream()
+                .filter(keycloakId -> !cachedProfiles.containsKey(keycloakId))
+                .toList();
+        Map<UUID, User> existingUsers = uncachedIds.isEmpty() ? Map.of()
+                : userRepository.findAllByKeycloakIdInWithProfessions(uncachedIds).stream()
+                        .collect(Collectors.toMap(User::getKeycloakId, Function.identity()));
+
+        for (UUID keycloakId : keycloakIds) {
+            UserProfileResponse cached = cachedProfiles.get(keycloakId);
+            User user = existingUsers.get(keycloakId);
+            if (cached != null) {
+                profiles.put(keycloakId.toString(), cached);
+            } else if (user != null) {
+                UserProfileResponse profile = mapToUserProfileResponse(user);
+                userProfileCache.put(profile, loadToken);
+                profiles.put(keycloakId.toString(), profile);
+            }
+        }
+
+        if (createMissing) {
+            List<UUID> missingIds = uncachedIds.stream()
+                    .filter(keycloakId -> !existingUsers.containsKey(keycloakId))
+                    .toList();
+            if (!missingIds.isEmpty()) {
+                // One multi-row insert; users created concurrently meanwhile are read afterwards
+                Set<UUID> insertedIds = new HashSet<>();
+                for (UserProfileResponse profile : userProfileWriter.insertIfAbsent(missingIds)) {
+                    insertedIds.add(UUID.fromString(profile.getKeycloakId()));
+                    profiles.put(profile.getKeycloakId(), publishProfileChanged(profile));
+                }
+                List<UUID> concurrentIds = missingIds.stream().filter(id -> !insertedIds.contains(id)).toList();
+                if (!concurrentIds.isEmpty()) {
+                    for (User user : userRepository.findAllByKeycloakIdInWithProfessions(concurrentIds)) {
+                        profiles.put(user.getKeycloakId().toString(), mapToUserProfileResponse(user));
+                    }
+                }
+            }
+        }
+        return profiles;
+    }
+
+    // Requested fields of the profiles of existing users, keyed by keycloak ID in the given order; missing users
+    // are left out. Cached profiles are projected, the others are read with only the requested columns.
+    @Transactional(readOnly = true)
+    public Map<UUID, Map<String, Object>> getUserProfileFields(Collection<UUID> keycloakIds, ProfileFields fields) {
+        Map<UUID, Map<String, Object>> found = new HashMap<>();
+        List<UUID> uncachedIds = new ArrayList<>();
+        for (UUID keycloakId : keycloakIds) {
+            userProfileCache.getByKeycloakId(keycloakId).ifPresentOrElse(
+                    profile -> found.put(keycloakId, fields.project(profile)),
+                    () -> uncachedIds.add(keycloakId));
+        }
+        List<Tuple> rows = uncachedIds.isEmpty() ? List.of() : selectProfileFields(uncachedIds, fields);
+
+        Map<Long, List<ProfessionDto>> professions = new HashMap<>();
+        if (fields.includesProfessions() && !rows.isEmpty()) {
+            List<Long> userIds = rows.stream().map(row -> row.get(ProfileFields.Field.ID.property, Long.class)).toList();
+            for (UserProfessionView row : userRepository.findProfessionIdsByUserIdIn(userIds)) {
+                professionCatalog.findById(row.getProfessionId()).ifPresent(profession ->
+                        professions.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(profession));
+            }
+        }
+
+        for (Tuple row : rows) {
+            Long id = row.get(ProfileFields.Field.ID.property, Long.class);
+            UUID keycloakId = row.get(ProfileFields.Field.KEYCLOAK_ID.property, UUID.class);
+            Map<String, Object> profile = new LinkedHashMap<>();
+            for (ProfileFields.Field field : fields.fields()) {
+                Object value = switch (field) {
+                    case KEYCLOAK_ID -> keycloakId.toString();
+                    case PROFESSIONS -> professions.getOrDefault(id, List.of());
+                    default -> row.get(field.property);
+                };
+                profile.put(field.property, value);
+            }
+            found.put(keycloakId, profile);
+        }
+
+        Map<UUID, Map<String, Object>> profiles = new LinkedHashMap<>();
+        for (UUID keycloakId : keycloakIds) {
+            Map<String, Object> profile = found.get(keycloakId);
+            if (profile != null) {
+                profiles.put(keycloakId, profile);
+            }
+        }
+        return profiles;
+    }
+
+    // Columns of the requested fields; id and keycloakId are always read, they key the result and the professions
+    private List<Tuple> selectProfileFields(Collection<UUID> keycloakIds, ProfileFields fields) {
+        CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+        Root<User> user = query.from(User.class);
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(user.get("id").alias(ProfileFields.Field.ID.property));
+        selections.add(user.get("keycloakId").alias(ProfileFields.Field.KEYCLOAK_ID.property));
+        for (ProfileFields.Field field : fields.fields()) {
+            if (field.attribute != null && field != ProfileFields.Field.ID && field != ProfileFields.Field.KEYCLOAK_ID) {
+                selections.add(user.get(field.attribute).alias(field.property));
             }
-            User savedUser = userRepository.save(newUser);
-            return mapToUserProfileResponse(savedUser);
-        } catch (Exception e) {
-            // Handle race condition: another thread created the user between our check and insert
-            // This catches DataIntegrityViolationException from unique constraint
-            User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User not found after creation race condition"));
-            return mapToUserProfileResponse(user);
         }
+        query.multiselect(selections).where(user.get("keycloakId").in(keycloakIds));
+        return entityManager.createQuery(query).getResultList();
     }
 
     // Get user profile by keycloak ID
     public UserProfileResponse getUserProfile(UUID keycloakId) {
+        Optional<UserProfileResponse> cached = userProfileCache.getByKeycloakId(keycloakId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        long loadToken = userProfileCache.beginLoad();
         User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
         
-        return mapToUserProfileResponse(user);
+        UserProfileResponse profile = mapToUserProfileResponse(user);
+        userProfileCache.put(profile, loadToken);
+        return profile;
+    }
+
+    // Get user profile by internal user ID (served from the profile cache when possible)
+    private Optional<UserProfileResponse> findUserProfileById(Long id) {
+        Optional<UserProfileResponse> cached = userProfileCache.getById(id)
+                .or(() -> userIdIndex.keycloakIdOf(id).flatMap(userProfileCache::getByKeycloakId));
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        long loadToken = userProfileCache.beginLoad();
+        Optional<UserProfileResponse> profile = userRepository.findByIdWithProfessions(id)
+                .map(this::mapToUserProfileResponse);
+        profile.ifPresent(p -> userProfileCache.put(p, loadToken));
+        return profile;
     }
 
     // Update personal information
-    public UserProfileResponse updatePersonalInfo(UUID keycloakId, UpdatePersonalInfoRequest request) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId).orElse(null);
-        
-        // If user doesn't exist, create it first to avoid race conditions
-        if (user == null) {
-            try {
-                User newUser = User.builder()
-                        .keycloakId(keycloakId)
-                        .professions(new HashSet<>())
-                        .build();
-                user = userRepository.save(newUser);
-            } catch (Exception e) {
-                // Handle race condition: another thread created the user
-                user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found after creation race condition"));
-            }
+    // Creates the user or sets its fields in one statement answering the written row (nothing is written when
+    // nothing changed); expected is the If-Match (id, version), or null
+    public UserProfileResponse updatePersonalInfo(UUID keycloakId, UpdatePersonalInfoRequest request,
+                                                  ProfileVersionView expected) {
+        return userProfileWriter.writePersonalInfo(keycloakId, request, expected)
+                .map(this::publishProfileChanged)
+                .orElseGet(() -> unchanged(keycloakId, expected));
+    }
+
+    // JSON Merge Patch of the personal information of an existing user
+    // Only the columns that change are written; a patch that changes nothing writes nothing
+    public UserProfileResponse patchPersonalInfo(UUID keycloakId, ProfileMergePatch patch, ProfileVersionView expected) {
+        User user = loadUser(keycloakId, expected);
+        if (!patchCommonFields(user, patch)) {
+            return mapToUserProfileResponse(user);
         }
-        
-        updateCommonFields(user, request.getBiography(), request.getWebsite(), 
-                          request.getFacebook(), request.getInstagram(), request.getLinkedin());
-        
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        flushPatch(user, expected);
+        return publishProfileChanged(user);
     }
 
     // Get restaurant profile by ID
+    // Served from the profile cache when possible, otherwise only the public restaurant columns are read
+    @Transactional(readOnly = true)
     public RestaurantPublicProfileResponse getRestaurantProfile(Long id) {
-        User user = userRepository.findById(id)
+        Optional<UserProfileResponse> cached = userProfileCache.getById(id)
+                .or(() -> userIdIndex.keycloakIdOf(id).flatMap(userProfileCache::getByKeycloakId));
+        if (cached.isPresent()) {
+            UserProfileResponse profile = cached.get();
+            if (profile.getAccountType() != AccountType.RESTAURANT) {
+                throw new BadRequestException("User with ID " + id + " is not a restaurant");
+            }
+            return mapToRestaurantPublicProfile(profile);
+        }
+        
+        RestaurantPublicProfileView view = userRepository.findRestaurantPublicProfileById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + id));
         
-        if (user.getServiceType() == null && user.getCuisineType() == null) {
+        if (view.getAccountType() != AccountType.RESTAURANT) {
             throw new BadRequestException("User with ID " + id + " is not a restaurant");
         }
         
-        return mapToRestaurantPublicProfile(user);
+        return mapToRestaurantPublicProfile(view);
     }
 
     // Create or update restaurant profile
-    public UserProfileResponse createOrUpdateRestaurantProfile(UUID keycloakId, RestaurantProfileRequest request) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId).orElse(null);
-        
-        // If user doesn't exist, create it first to avoid race conditions
-        if (user == null) {
-            try {
-                User newUser = User.builder()
-                        .keycloakId(keycloakId)
-                        .professions(new HashSet<>())
-                        .build();
-                user = userRepository.save(newUser);
-            } catch (Exception e) {
-                // Handle race condition: another thread created the user
-                user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found after creation race condition"));
-            }
-        }
-        
-        updateCommonFields(user, request.getBiography(), request.getWebsite(), 
-                          request.getFacebook(), request.getInstagram(), request.getLinkedin());
-        
-        // Update restaurant-specific fields
-        user.setServiceType(request.getServiceType());
-        user.setCuisineType(request.getCuisineType());
-        user.setHygieneCertifications(request.getHygieneCertifications());
-        user.setAwards(request.getAwards());
+    // Sets the restaurant fields and clears producer fields in one statement answering the written row (creating
+    // the user if needed), then clears the professions of a former producer. Nothing is written when nothing changed.
+    public UserProfileResponse createOrUpdateRestaurantProfile(UUID keycloakId, RestaurantProfileRequest request,
+                                                               ProfileVersionView expected) {
+        String accountType = AccountType.of(null, request.getServiceType(), request.getCuisineType()).name();
+        Optional<UserProfileResponse> written =
+                userProfileWriter.writeRestaurantProfile(keycloakId, request, accountType, expected);
+        UserProfileResponse profile = written.orElseGet(() -> {
+            checkUnchanged(keycloakId, expected);
+            return mapToUserProfileResponse(loadUser(keycloakId));
+        });
+
+        // A restaurant has no professions
+        Optional<UserProfileResponse> replaced = replaceProfessions(profile, Map.of(), expected != null);
         
-        // Clear producer fields if any
-        clearProducerFields(user);
+        return replaced.or(() -> written).map(this::publishProfileChanged).orElse(profile);
+    }
+
+    // JSON Merge Patch of the restaurant profile of an existing restaurant
+    public UserProfileResponse patchRestaurantProfile(UUID keycloakId, ProfileMergePatch patch,
+                                                      ProfileVersionView expected) {
+        User user = loadUser(keycloakId, expected);
+        if (user.getAccountType() != AccountType.RESTAURANT) {
+            throw new BadRequestException("User with keycloak ID " + keycloakId + " is not a restaurant");
+        }
         
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        boolean changed = patchCommonFields(user, patch);
+        changed |= patch.text("serviceType", user::getServiceType, user::setServiceType);
+        changed |= patch.text("cuisineType", user::getCuisineType, user::setCuisineType);
+        changed |= patch.text("hygieneCertifications", user::getHygieneCertifications, user::setHygieneCertifications);
+        changed |= patch.text("awards", user::getAwards, user::setAwards);
+        if (!changed) {
+            return mapToUserProfileResponse(user);
+        }
+        user.setAccountType(AccountType.of(user.getSiret(), user.getServiceType(), user.getCuisineType()));
+        flushPatch(user, expected);
+        return publishProfileChanged(user);
     }
 
     // Update restaurant profile by ID
     public UserProfileResponse updateRestaurantProfile(Long id, RestaurantProfileRequest request) {
-        User user = userRepository.findById(id)
+        User user = userRepository.findByIdWithProfessions(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + id));
         
         updateCommonFields(user, request.getBiography(), request.getWebsite(), 
@@ -170,80 +387,134 @@ public class UserService {
         user.setCuisineType(request.getCuisineType());
         user.setHygieneCertifications(request.getHygieneCertifications());
         user.setAwards(request.getAwards());
+        user.setAccountType(AccountType.of(user.getSiret(), user.getServiceType(), user.getCuisineType()));
         
         User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        return publishProfileChanged(savedUser);
     }
 
     // Delete restaurant profile
     public void deleteRestaurantProfile(Long id) {
-        User user = userRepository.findById(id)
+        UUID keycloakId = userIdIndex.keycloakIdOf(id)
+                .or(() -> userRepository.findKeycloakIdById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with ID: " + id));
         
-        userRepository.delete(user);
+        if (!deleteAndPublish(id, keycloakId, null)) {
+            throw new ResourceNotFoundException("Restaurant not found with ID: " + id);
+        }
     }
 
     // Delete restaurant profile by keycloak ID
-    public void deleteRestaurantProfileByKeycloakId(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("Restaurant not found with keycloak ID: " + keycloakId));
-        
-        userRepository.delete(user);
+    public void deleteRestaurantProfileByKeycloakId(UUID keycloakId, ProfileVersionView expected) {
+        OptionalLong indexed = userIdIndex.idOf(keycloakId);
+        Long id = indexed.isPresent() ? Long.valueOf(indexed.getAsLong()) : userRepository.findIdByKeycloakId(keycloakId)
+                .orElseThrow(() -> expected != null ? preconditionFailed()
+                        : new ResourceNotFoundException("Restaurant not found with keycloak ID: " + keycloakId));
+        
+        if (!deleteAndPublish(id, keycloakId, expected)) {
+            throw new ResourceNotFoundException("Restaurant not found with keycloak ID: " + keycloakId);
+        }
+    }
+
+    // (id, version) of a profile for a conditional request: from the near cache, else an index-only lookup
+    @Transactional(readOnly = true)
+    public Optional<ProfileVersionView> getProfileVersion(UUID keycloakId) {
+        Optional<UserProfileResponse> cached = userProfileCache.getByKeycloakId(keycloakId);
+        if (cached.isPresent()) {
+            return Optional.of(new ProfileVersionView(cached.get().getId(), cached.get().getVersion()));
+        }
+        return userRepository.findVersionByKeycloakId(keycloakId);
     }
 
     // Get producer profile by ID
     public ProducerPublicProfileResponse getProducerProfile(Long id) {
-        User user = userRepository.findById(id)
+        UserProfileResponse profile = findUserProfileById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producer not found with ID: " + id));
         
-        if (user.getSiret() == null) {
+        if (profile.getAccountType() != AccountType.PRODUCER) {
             throw new BadRequestException("User with ID " + id + " is not a producer");
         }
         
-        return mapToProducerPublicProfile(user);
+        return mapToProducerPublicProfile(profile);
     }
 
-    // Create or update producer profile
-    public UserProfileResponse createOrUpdateProducerProfile(UUID keycloakId, ProducerProfileRequest request) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId).orElse(null);
-        
-        // If user doesn't exist, create it first to avoid race conditions
-        if (user == null) {
-            try {
-                User newUser = User.builder()
-                        .keycloakId(keycloakId)
-                        .professions(new HashSet<>())
-                        .build();
-                user = userRepository.save(newUser);
-            } catch (Exception e) {
-                // Handle race condition: another thread created the user
-                user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found after creation race condition"));
-            }
+    // List producers having a profession, one keyset page at a time (ids greater than the after cursor)
+    // Professions of the whole page are read with a single query on user_professions
+    @Transactional(readOnly = true)
+    public ProducerPageResponse getProducersByProfession(Long professionId, Long after, int limit) {
+        findProfession(professionId);
+        
+        // One extra row tells whether there is a next page
+        List<ProducerPublicProfileView> rows = userRepository.findProducersByProfession(
+                professionId, after != null ? after : 0L, Limit.of(limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<ProducerPublicProfileView> page = hasMore ? rows.subList(0, limit) : rows;
+        if (page.isEmpty()) {
+            return ProducerPageResponse.builder().items(List.of()).build();
         }
         
-        updateCommonFields(user, request.getBiography(), request.getWebsite(), 
-                          request.getFacebook(), request.getInstagram(), request.getLinkedin());
+        Map<Long, List<ProfessionDto>> professionsByUser = new HashMap<>();
+        List<Long> userIds = page.stream().map(ProducerPublicProfileView::getId).toList();
+        for (UserProfessionView row : userRepository.findProfessionIdsByUserIdIn(userIds)) {
+            professionCatalog.findById(row.getProfessionId()).ifPresent(profession ->
+                    professionsByUser.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(profession));
+        }
         
-        // Update producer-specific fields
-        user.setSiret(request.getSiret());
-        user.setOrganizationType(request.getOrganizationType());
-        user.setInstallationYear(request.getInstallationYear());
-        user.setEmployeesCount(request.getEmployeesCount());
+        List<ProducerPublicProfileResponse> items = page.stream()
+                .map(view -> mapToProducerPublicProfile(view, professionsByUser.getOrDefault(view.getId(), List.of())))
+                .toList();
+        return ProducerPageResponse.builder()
+                .items(items)
+                .nextCursor(hasMore ? page.get(page.size() - 1).getId() : null)
+                .build();
+    }
+
+    // Create or update producer profile
+    // Sets the producer fields and clears restaurant fields in one statement (creating the user if needed),
+    // then applies the professions
+    public UserProfileResponse createOrUpdateProducerProfile(UUID keycloakId, ProducerProfileRequest request,
+                                                             ProfileVersionView expected) {
+        Map<Long, ProfessionDto> professions = resolveProfessions(request.getProfessionIds());
+        String accountType = AccountType.of(request.getSiret(), null, null).name();
+        Optional<UserProfileResponse> written =
+                userProfileWriter.writeProducerProfile(keycloakId, request, accountType, expected);
+        UserProfileResponse profile = written.orElseGet(() -> {
+            checkUnchanged(keycloakId, expected);
+            return mapToUserProfileResponse(loadUser(keycloakId));
+        });
 
         // Handle professions (many-to-many)
-        updateProfessions(user, request.getProfessionIds());
+        Optional<UserProfileResponse> replaced = replaceProfessions(profile, professions, expected != null);
         
-        // Clear restaurant fields if any
-        clearRestaurantFields(user);
+        return replaced.or(() -> written).map(this::publishProfileChanged).orElse(profile);
+    }
+
+    // JSON Merge Patch of the producer profile of an existing producer (professionIds replaces the professions)
+    public UserProfileResponse patchProducerProfile(UUID keycloakId, ProfileMergePatch patch,
+                                                    ProfileVersionView expected) {
+        Map<Long, ProfessionDto> professions = resolveProfessions(patch.ids("professionIds"));
+        User user = loadUser(keycloakId, expected);
+        if (user.getAccountType() != AccountType.PRODUCER) {
+            throw new BadRequestException("User with keycloak ID " + keycloakId + " is not a producer");
+        }
         
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        boolean changed = patchCommonFields(user, patch);
+        changed |= patch.text("siret", user::getSiret, user::setSiret);
+        changed |= patch.text("organizationType", user::getOrganizationType, user::setOrganizationType);
+        changed |= patch.integer("installationYear", user::getInstallationYear, user::setInstallationYear);
+        changed |= patch.integer("employeesCount", user::getEmployeesCount, user::setEmployeesCount);
+        if (changed) {
+            user.setAccountType(AccountType.of(user.getSiret(), user.getServiceType(), user.getCuisineType()));
+            flushPatch(user, expected);
+        }
+        
+        changed |= updateProfessions(user, professions, expected);
+        return changed ? publishProfileChanged(user) : mapToUserProfileResponse(user);
     }
 
     // Update producer profile by ID
     public UserProfileResponse updateProducerProfile(Long id, ProducerProfileRequest request) {
-        User user = userRepository.findById(id)
+        User user = userRepository.findByIdWithProfessions(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producer not found with ID: " + id));
         
         updateCommonFields(user, request.getBiography(), request.getWebsite(), 
@@ -254,61 +525,79 @@ public class UserService {
         user.setOrganizationType(request.getOrganizationType());
         user.setInstallationYear(request.getInstallationYear());
         user.setEmployeesCount(request.getEmployeesCount());
+        user.setAccountType(AccountType.of(user.getSiret(), user.getServiceType(), user.getCuisineType()));
 
         // Handle professions (many-to-many)
-        updateProfessions(user, request.getProfessionIds());
+        updateProfessions(user, resolveProfessions(request.getProfessionIds()), null);
         
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        // Field changes are flushed by dirty checking (or before the profession statements)
+        return publishProfileChanged(user);
     }
 
     // Delete producer profile
     public void deleteProducerProfile(Long id) {
-        User user = userRepository.findById(id)
+        UUID keycloakId = userIdIndex.keycloakIdOf(id)
+                .or(() -> userRepository.findKeycloakIdById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("Producer not found with ID: " + id));
         
-        userRepository.delete(user);
+        if (!deleteAndPublish(id, keycloakId, null)) {
+            throw new ResourceNotFoundException("Producer not found with ID: " + id);
+        }
     }
 
     // Delete producer profile by keycloak ID
-    public void deleteProducerProfileByKeycloakId(UUID keycloakId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("Producer not found with keycloak ID: " + keycloakId));
-        
-        userRepository.delete(user);
+    public void deleteProducerProfileByKeycloakId(UUID keycloakId, ProfileVersionView expected) {
+        OptionalLong indexed = userIdIndex.idOf(keycloakId);
+        Long id = indexed.isPresent() ? Long.valueOf(indexed.getAsLong()) : userRepository.findIdByKeycloakId(keycloakId)
+                .orElseThrow(() -> expected != null ? preconditionFailed()
+                        : new ResourceNotFoundException("Producer not found with keycloak ID: " + keycloakId));
+        
+        if (!deleteAndPublish(id, keycloakId, expected)) {
+            throw new ResourceNotFoundException("Producer not found with keycloak ID: " + keycloakId);
+        }
     }
 
     // Add profession to producer
     @Transactional
-    public UserProfileResponse addProfessionToProducer(UUID keycloakId, Long professionId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+    public UserProfileResponse addProfessionToProducer(UUID keycloakId, Long professionId, ProfileVersionView expected) {
+        User user = loadUser(keycloakId, expected);
         
-        if (user.getSiret() == null) {
+        if (user.getAccountType() != AccountType.PRODUCER) {
             throw new BadRequestException("User is not a producer. Create a producer profile first.");
         }
         
-        Profession profession = professionRepository.findById(professionId)
-                .orElseThrow(() -> new BadRequestException("Profession not found with ID: " + professionId));
+        ProfessionDto profession = findProfession(professionId);
         
-        user.getProfessions().add(profession);
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        if (user.getProfessions().stream().anyMatch(p -> p.getId().equals(professionId))) {
+            return mapToUserProfileResponse(user);
+        }
+        
+        claimVersion(user, expected);
+        userRepository.addProfessions(user.getId(), List.of(professionId));
+        detachWithCurrentVersion(user);
+        user.getProfessions().add(toProfession(profession));
+        return publishProfileChanged(user);
     }
 
     // Remove profession from producer
     @Transactional
-    public UserProfileResponse removeProfessionFromProducer(UUID keycloakId, Long professionId) {
-        User user = userRepository.findByKeycloakIdWithProfessions(keycloakId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
+    public UserProfileResponse removeProfessionFromProducer(UUID keycloakId, Long professionId,
+                                                            ProfileVersionView expected) {
+        User user = loadUser(keycloakId, expected);
         
-        if (user.getSiret() == null) {
+        if (user.getAccountType() != AccountType.PRODUCER) {
             throw new BadRequestException("User is not a producer");
         }
         
+        if (user.getProfessions().stream().noneMatch(p -> p.getId().equals(professionId))) {
+            return mapToUserProfileResponse(user);
+        }
+        
+        claimVersion(user, expected);
+        userRepository.removeProfessions(user.getId(), List.of(professionId));
+        detachWithCurrentVersion(user);
         user.getProfessions().removeIf(p -> p.getId().equals(professionId));
-        User savedUser = userRepository.save(user);
-        return mapToUserProfileResponse(savedUser);
+        return publishProfileChanged(user);
     }
 
     // Helper methods for mapping
@@ -321,17 +610,61 @@ public class UserService {
         
         // Create a defensive copy to avoid ConcurrentModificationException
         // when Hibernate is initializing the collection
+        // DTOs are the shared instances of the profession catalog snapshot
         return new java.util.ArrayList<>(professions).stream()
-                .map(p -> ProfessionDto.builder()
-                        .id(p.getId())
-                        .code(p.getCode())
-                        .nameEn(p.getNameEn())
-                        .nameFr(p.getNameFr())
-                        .build()
-                )
+                .map(professionCatalog::toDto)
                 .collect(Collectors.toList());
     }
     
+    // A profile write answered no row: the stored profile already had these values (without If-Match, the upsert
+    // always writes a user that does not exist). With an If-Match, the stored version tells such a no-op (the ETag
+    // stays valid) from a profile that moved on or is gone (412).
+    private UserProfileResponse unchanged(UUID keycloakId, ProfileVersionView expected) {
+        checkUnchanged(keycloakId, expected);
+        return getUserProfile(keycloakId);
+    }
+
+    private void checkUnchanged(UUID keycloakId, ProfileVersionView expected) {
+        if (expected != null && !userRepository.findVersionByKeycloakId(keycloakId).map(expected::equals).orElse(false)) {
+            throw preconditionFailed();
+        }
+    }
+    
+    // Write the patched columns now (one UPDATE of the changed columns), so that the response has the new version.
+    // The UPDATE is conditional on the loaded version (@Version): a concurrent write fails it.
+    private void flushPatch(User user, ProfileVersionView expected) {
+        try {
+            entityManager.flush();
+        } catch (OptimisticLockException e) {
+            if (expected != null) {
+                throw preconditionFailed();
+            }
+            throw new ObjectOptimisticLockingFailureException(User.class, user.getId(), e);
+        }
+    }
+    
+    // Before user_professions statements covered by an If-Match: bump the version only if it is still the loaded
+    // one (the loaded one was checked against If-Match, or is the version this transaction just wrote)
+    private void claimVersion(User user, ProfileVersionView expected) {
+        if (expected != null && userRepository.claimVersion(user.getId(), user.getVersion()) == 0) {
+            throw preconditionFailed();
+        }
+    }
+    
+    private static PreconditionFailedException preconditionFailed() {
+        return new PreconditionFailedException("The profile has been modified (or does not exist): fetch it again");
+    }
+    
+    // Merge-patch the common fields; true when at least one changed
+    private boolean patchCommonFields(User user, ProfileMergePatch patch) {
+        boolean changed = patch.text("biography", user::getBiography, user::setBiography);
+        changed |= patch.text("website", user::getWebsite, user::setWebsite);
+        changed |= patch.text("facebook", user::getFacebook, user::setFacebook);
+        changed |= patch.text("instagram", user::getInstagram, user::setInstagram);
+        changed |= patch.text("linkedin", user::getLinkedin, user::setLinkedin);
+        return changed;
+    }
+    
     // Update common fields shared across all profile types
     private void updateCommonFields(User user, String biography, String website, 
                                     String facebook, String instagram, String linkedin) {
@@ -342,58 +675,192 @@ public class UserService {
         user.setLinkedin(linkedin);
     }
     
-    // Update user's professions from profession IDs
-    private void updateProfessions(User user, List<Long> professionIds) {
-        // ONLY update professions if professionIds is explicitly provided (not null)
-        // If null, it means the client didn't send this field, so we should preserve existing professions
+    // Find a profession in the catalog snapshot (re-read once if the ID is unknown)
+    private ProfessionDto findProfession(Long professionId) {
+        return professionCatalog.findById(professionId)
+                .or(() -> Optional.ofNullable(professionCatalog.reload().byId().get(professionId)))
+                .orElseThrow(() -> new BadRequestException("Profession not found with ID: " + professionId));
+    }
+    
+    // Validate profession IDs against the catalog snapshot (re-read once if some IDs are unknown)
+    // Returns null when professionIds is null, meaning the client didn't send the field
+    private Map<Long, ProfessionDto> resolveProfessions(List<Long> professionIds) {
         if (professionIds == null) {
-            return; // Don't touch professions if not provided
+            return null;
         }
         
-        Set<Profession> professions = new HashSet<>();
-        if (!professionIds.isEmpty()) {
-            // Validate all profession IDs exist
-            List<Long> invalidIds = professionIds.stream()
-                .filter(id -> professionRepository.findById(id).isEmpty())
-                .toList();
-            
-            if (!invalidIds.isEmpty()) {
-                throw new BadRequestException(
-                    "Invalid profession IDs: " + invalidIds + ". Please provide valid profession IDs."
-                );
+        Set<Long> requestedIds = new LinkedHashSet<>(professionIds);
+        Map<Long, ProfessionDto> catalog = professionCatalog.snapshot().byId();
+        if (!catalog.keySet().containsAll(requestedIds)) {
+            catalog = professionCatalog.reload().byId();
+        }
+        
+        List<Long> invalidIds = new ArrayList<>();
+        Map<Long, ProfessionDto> professions = new LinkedHashMap<>();
+        for (Long id : requestedIds) {
+            ProfessionDto profession = id != null ? catalog.get(id) : null;
+            if (profession == null) {
+                invalidIds.add(id);
+            } else {
+                professions.put(id, profession);
             }
-            
-            professions = professionIds.stream()
-                .map(professionRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
         }
+        
+        if (!invalidIds.isEmpty()) {
+            throw new BadRequestException(
+                "Invalid profession IDs: " + invalidIds + ". Please provide valid profession IDs."
+            );
+        }
+        return professions;
+    }
+    
+    // Update user's professions by writing only the difference to user_professions; true when they changed
+    private boolean updateProfessions(User user, Map<Long, ProfessionDto> professions, ProfileVersionView expected) {
+        // ONLY update professions if professionIds is explicitly provided (not null)
+        // If null, it means the client didn't send this field, so we should preserve existing professions
         // If professionIds is empty list [], clear professions (intentional)
-        user.setProfessions(professions);
+        if (professions == null) {
+            return false; // Don't touch professions if not provided
+        }
+        
+        Set<Long> currentIds = user.getProfessions().stream()
+                .map(Profession::getId)
+                .collect(Collectors.toSet());
+        List<Long> toRemove = currentIds.stream()
+                .filter(id -> !professions.containsKey(id))
+                .toList();
+        List<Long> toAdd = professions.keySet().stream()
+                .filter(id -> !currentIds.contains(id))
+                .toList();
+        if (toRemove.isEmpty() && toAdd.isEmpty()) {
+            return false;
+        }
+        
+        claimVersion(user, expected);
+        if (!toRemove.isEmpty()) {
+            userRepository.removeProfessions(user.getId(), toRemove);
+        }
+        if (!toAdd.isEmpty()) {
+            userRepository.addProfessions(user.getId(), toAdd);
+        }
+        
+        // The join table is up to date: detach the user so that Hibernate does not rewrite it,
+        // then bring the in-memory collection in line for the response
+        detachWithCurrentVersion(user);
+        user.getProfessions().removeIf(p -> toRemove.contains(p.getId()));
+        toAdd.forEach(id -> user.getProfessions().add(toProfession(professions.get(id))));
+        return true;
+    }
+
+    // Replace the professions of a profile just written (or read unchanged) in this transaction by writing only the
+    // difference to user_professions; empty when they did not change, else a copy of the profile with the new
+    // professions and the version and updated_at the profession statements moved it to. Under an If-Match the
+    // profile's version is claimed first: it is the one just written, or the stored one that matched the If-Match.
+    private Optional<UserProfileResponse> replaceProfessions(UserProfileResponse profile,
+                                                             Map<Long, ProfessionDto> professions,
+                                                             boolean conditional) {
+        if (professions == null) {
+            return Optional.empty();
+        }
+        Set<Long> currentIds = profile.getProfessions().stream().map(ProfessionDto::getId).collect(Collectors.toSet());
+        List<Long> toRemove = currentIds.stream().filter(id -> !professions.containsKey(id)).toList();
+        List<Long> toAdd = professions.keySet().stream().filter(id -> !currentIds.contains(id)).toList();
+        if (toRemove.isEmpty() && toAdd.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (conditional && userRepository.claimVersion(profile.getId(), profile.getVersion()) == 0) {
+            throw preconditionFailed();
+        }
+        if (!toRemove.isEmpty()) {
+            userRepository.removeProfessions(profile.getId(), toRemove);
+        }
+        if (!toAdd.isEmpty()) {
+            userRepository.addProfessions(profile.getId(), toAdd);
+        }
+        ProfileStampView stamp = userRepository.findStampById(profile.getId()).orElseThrow();
+        return Optional.of(profile.toBuilder()
+                .professions(professions.values().stream()
+                        .sorted(Comparator.comparing(ProfessionDto::getId))
+                        .collect(Collectors.toCollection(ArrayList::new)))
+                .version(stamp.getVersion())
+                .updatedAt(stamp.getUpdatedAt())
+                .build());
+    }
+
+    // Profession statements bump the version in the database (V5/V6 triggers): read it back for the response
+    private void detachWithCurrentVersion(User user) {
+        entityManager.detach(user);
+        userRepository.findVersionById(user.getId()).ifPresent(user::setVersion);
     }
     
-    // Clear producer-specific fields (when converting to restaurant)
-    private void clearProducerFields(User user) {
-        user.setSiret(null);
-        user.setOrganizationType(null);
-        user.setInstallationYear(null);
-        user.setEmployeesCount(null);
-        user.setProfessions(new HashSet<>());
+    private Profession toProfession(ProfessionDto profession) {
+        return Profession.builder()
+                .id(profession.getId())
+                .code(profession.getCode())
+                .nameEn(profession.getNameEn())
+                .nameFr(profession.getNameFr())
+                .build();
     }
     
-    // Clear restaurant-specific fields (when converting to producer)
-    private void clearRestaurantFields(User user) {
-        user.setServiceType(null);
-        user.setCuisineType(null);
-        user.setHygieneCertifications(null);
-        user.setAwards(null);
+    // Load a user that is known to exist (e.g. right after an upsert)
+    private User loadUser(UUID keycloakId) {
+        return loadUser(keycloakId, null);
+    }
+    
+    // Load a user to modify; with an If-Match, it must still have the expected (id, version)
+    private User loadUser(UUID keycloakId, ProfileVersionView expected) {
+        Optional<User> user = userRepository.findByKeycloakIdWithProfessions(keycloakId);
+        if (expected != null && !user.map(u -> expected.equals(new ProfileVersionView(u.getId(), u.getVersion())))
+                .orElse(false)) {
+            throw preconditionFailed();
+        }
+        return user.orElseThrow(() -> new ResourceNotFoundException("User not found with keycloak ID: " + keycloakId));
     }
     
+    // Map the saved user and notify listeners (profile cache, ...) that it changed
+    UserProfileResponse publishProfileChanged(User user) {
+        UserProfileResponse profile = mapToUserProfileResponse(user);
+        eventPublisher.publishEvent(new UserProfileChangedEvent(user.getId(), user.getKeycloakId(), profile));
+        return profile;
+    }
+
+    // Notify listeners of a profile written by a statement that answered it
+    UserProfileResponse publishProfileChanged(UserProfileResponse profile) {
+        eventPublisher.publishEvent(new UserProfileChangedEvent(profile.getId(), UUID.fromString(profile.getKeycloakId()),
+                profile));
+        return profile;
+    }
+
+    // Reload the user after a direct column update and notify listeners
+    UserProfileResponse publishProfileChanged(UUID keycloakId) {
+        return publishProfileChanged(loadUser(keycloakId));
+    }
+
+    // Delete by primary key (no entity load) and notify listeners; false if the row was already gone
+    // With an If-Match, only that version is deleted: 412 if the profile changed since
+    private boolean deleteAndPublish(Long id, UUID keycloakId, ProfileVersionView expected) {
+        if (expected != null && !expected.id().equals(id)) {
+            throw preconditionFailed();
+        }
+        int deleted = expected != null
+                ? userRepository.deleteUserByIdAndVersion(id, expected.version())
+                : userRepository.deleteUserById(id);
+        if (deleted == 0) {
+            if (expected != null) {
+                throw preconditionFailed();
+            }
+            return false;
+        }
+        eventPublisher.publishEvent(new UserProfileChangedEvent(id, keycloakId, null));
+        return true;
+    }
+
     private UserProfileResponse mapToUserProfileResponse(User user) {
         return UserProfileResponse.builder()
                 .id(user.getId())
                 .keycloakId(user.getKeycloakId() != null ? user.getKeycloakId().toString() : null)
+                .accountType(user.getAccountType())
                 .biography(user.getBiography())
                 .website(user.getWebsite())
                 .facebook(user.getFacebook())
@@ -413,37 +880,74 @@ public class UserService {
                 .stripeOnboardingComplete(user.getStripeOnboardingComplete())
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
+                .version(user.getVersion())
                 .build();
     }
 
-    private RestaurantPublicProfileResponse mapToRestaurantPublicProfile(User user) {
+    private RestaurantPublicProfileResponse mapToRestaurantPublicProfile(UserProfileResponse profile) {
         return RestaurantPublicProfileResponse.builder()
-                .id(user.getId())
-                .biography(user.getBiography())
-                .website(user.getWebsite())
-                .facebook(user.getFacebook())
-                .instagram(user.getInstagram())
-                .linkedin(user.getLinkedin())
-                .serviceType(user.getServiceType())
-                .cuisineType(user.getCuisineType())
-                .hygieneCertifications(user.getHygieneCertifications())
-                .awards(user.getAwards())
+                .id(profile.getId())
+                .biography(profile.getBiography())
+                .website(profile.getWebsite())
+                .facebook(profile.getFacebook())
+                .instagram(profile.getInstagram())
+                .linkedin(profile.getLinkedin())
+                .serviceType(profile.getServiceType())
+                .cuisineType(profile.getCuisineType())
+                .hygieneCertifications(profile.getHygieneCertifications())
+                .awards(profile.getAwards())
+                .version(profile.getVersion())
                 .build();
     }
 
-    private ProducerPublicProfileResponse mapToProducerPublicProfile(User user) {
+    private RestaurantPublicProfileResponse mapToRestaurantPublicProfile(RestaurantPublicProfileView view) {
+        return RestaurantPublicProfileResponse.builder()
+                .id(view.getId())
+                .biography(view.getBiography())
+                .website(view.getWebsite())
+                .facebook(view.getFacebook())
+                .instagram(view.getInstagram())
+                .linkedin(view.getLinkedin())
+                .serviceType(view.getServiceType())
+                .cuisineType(view.getCuisineType())
+                .hygieneCertifications(view.getHygieneCertifications())
+                .awards(view.getAwards())
+                .version(view.getVersion())
+                .build();
+    }
+
+    private ProducerPublicProfileResponse mapToProducerPublicProfile(ProducerPublicProfileView view,
+                                                                     List<ProfessionDto> professions) {
         return ProducerPublicProfileResponse.builder()
-                .id(user.getId())
-                .biography(user.getBiography())
-                .website(user.getWebsite())
-                .facebook(user.getFacebook())
-                .instagram(user.getInstagram())
-                .linkedin(user.getLinkedin())
-                .siret(user.getSiret())
-                .organizationType(user.getOrganizationType())
-                .installationYear(user.getInstallationYear())
-                .employeesCount(user.getEmployeesCount())
-                .professions(mapProfessionsToDtos(user.getProfessions()))
-        .build();
+                .id(view.getId())
+                .biography(view.getBiography())
+                .website(view.getWebsite())
+                .facebook(view.getFacebook())
+                .instagram(view.getInstagram())
+                .linkedin(view.getLinkedin())
+                .siret(view.getSiret())
+                .organizationType(view.getOrganizationType())
+                .installationYear(view.getInstallationYear())
+                .employeesCount(view.getEmployeesCount())
+                .professions(professions)
+                .version(view.getVersion())
+                .build();
+    }
+
+    private ProducerPublicProfileResponse mapToProducerPublicProfile(UserProfileResponse profile) {
+        return ProducerPublicProfileResponse.builder()
+                .id(profile.getId())
+                .biography(profile.getBiography())
+                .website(profile.getWebsite())
+                .facebook(profile.getFacebook())
+                .instagram(profile.getInstagram())
+                .linkedin(profile.getLinkedin())
+                .siret(profile.getSiret())
+                .organizationType(profile.getOrganizationType())
+                .installationYear(profile.getInstallationYear())
+                .employeesCount(profile.getEmployeesCount())
+                .professions(profile.getProfessions())
+                .version(profile.getVersion())
+                .build();
     }
 }
\ No newline at end of file
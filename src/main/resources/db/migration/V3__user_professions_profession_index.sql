@@ -0,0 +1,3 @@
+-- Serve "producers with profession X" listings by keyset (profession_id, user_id > cursor)
+-- straight from the index, in user_id order, without touching the primary key (user_id, profession_id)
+CREATE INDEX idx_user_professions_profession_user ON user_professions (profession_id, user_id);
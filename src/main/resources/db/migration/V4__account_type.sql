@@ -0,0 +1,24 @@
+-- Persisted account type, maintained by the application on every write
+-- (a producer has a SIRET, a restaurant a service or cuisine type, anyone else is a consumer)
+
+ALTER TABLE users
+ADD COLUMN account_type VARCHAR(20) NOT NULL DEFAULT 'CONSUMER'
+    CONSTRAINT chk_users_account_type CHECK (account_type IN ('CONSUMER', 'PRODUCER', 'RESTAURANT'));
+
+UPDATE users SET account_type = CASE
+    WHEN siret IS NOT NULL THEN 'PRODUCER'
+    WHEN service_type IS NOT NULL OR cuisine_type IS NOT NULL THEN 'RESTAURANT'
+    ELSE 'CONSUMER'
+END;
+
+-- Directory pages (keyset on id, optionally filtered) are index-only scans on these partial indexes
+CREATE INDEX idx_users_restaurant_directory ON users (id)
+    INCLUDE (service_type, cuisine_type) WHERE account_type = 'RESTAURANT';
+CREATE INDEX idx_users_restaurant_cuisine ON users (cuisine_type, id)
+    INCLUDE (service_type) WHERE account_type = 'RESTAURANT';
+CREATE INDEX idx_users_restaurant_service ON users (service_type, id)
+    INCLUDE (cuisine_type) WHERE account_type = 'RESTAURANT';
+CREATE INDEX idx_users_producer_directory ON users (id)
+    INCLUDE (organization_type) WHERE account_type = 'PRODUCER';
+CREATE INDEX idx_users_producer_organization ON users (organization_type, id)
+    WHERE account_type = 'PRODUCER';
@@ -0,0 +1,58 @@
+-- Change feed (GET /internal/changes): keyset on (updated_at, id) over users and (deleted_at, user_id) over tombstones
+
+UPDATE users SET updated_at = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE updated_at IS NULL;
+ALTER TABLE users ALTER COLUMN updated_at SET NOT NULL;
+
+CREATE INDEX idx_users_updated_at_id ON users (updated_at, id);
+
+-- Stamp inserts with the database clock too (the application and the upserts used to disagree)
+DROP TRIGGER set_updated_at ON users;
+CREATE TRIGGER set_updated_at
+    BEFORE INSERT OR UPDATE ON users
+    FOR EACH ROW
+EXECUTE FUNCTION update_updated_at_column();
+
+-- A change of professions is a change of the profile
+CREATE OR REPLACE FUNCTION touch_users_of_changed_professions()
+    RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE users SET updated_at = CURRENT_TIMESTAMP
+    WHERE id IN (SELECT user_id FROM changed_professions);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER touch_users_on_professions_insert
+    AFTER INSERT ON user_professions
+    REFERENCING NEW TABLE AS changed_professions
+    FOR EACH STATEMENT
+EXECUTE FUNCTION touch_users_of_changed_professions();
+
+CREATE TRIGGER touch_users_on_professions_delete
+    AFTER DELETE ON user_professions
+    REFERENCING OLD TABLE AS changed_professions
+    FOR EACH STATEMENT
+EXECUTE FUNCTION touch_users_of_changed_professions();
+
+-- One row per deleted user, whatever deleted it; purged after account.changes.tombstone-retention
+CREATE TABLE user_tombstones (
+    user_id BIGINT PRIMARY KEY,
+    keycloak_id UUID NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_user_tombstones_deleted_at_user ON user_tombstones (deleted_at, user_id);
+
+CREATE OR REPLACE FUNCTION record_user_tombstone()
+    RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO user_tombstones (user_id, keycloak_id) VALUES (OLD.id, OLD.keycloak_id)
+    ON CONFLICT (user_id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER record_user_tombstone
+    AFTER DELETE ON users
+    FOR EACH ROW
+EXECUTE FUNCTION record_user_tombstone();
@@ -0,0 +1,42 @@
+-- Optimistic versioning of profiles, exposed as ETags (If-None-Match / If-Match)
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- When a linked Stripe account was last checked with Stripe (StripeAccountReconciler, see V8): written for every
+-- account polled, changed or not, and not a change of the profile
+ALTER TABLE users ADD COLUMN stripe_checked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- Version checks of conditional requests by keycloak ID are index-only scans on the unique index itself
+-- (rebuilt with the INCLUDE rather than adding a second index on keycloak_id). By id they use the primary key
+-- and one heap fetch: an index carrying version would be one more entry to maintain on every profile update.
+ALTER TABLE users DROP CONSTRAINT users_keycloak_id_key;
+ALTER TABLE users ADD CONSTRAINT users_keycloak_id_key UNIQUE (keycloak_id) INCLUDE (id, version);
+
+-- Hibernate increments the version itself; any other update (native upserts, Stripe status,
+-- profession changes touching the row) gets it incremented here.
+-- A Stripe check alone is not a change of the profile: neither updated_at nor the version moves.
+CREATE OR REPLACE FUNCTION update_updated_at_column()
+    RETURNS TRIGGER AS $$
+DECLARE
+    checked_at TIMESTAMP;
+BEGIN
+    IF TG_OP = 'UPDATE' AND NEW.stripe_checked_at IS DISTINCT FROM OLD.stripe_checked_at THEN
+        checked_at = NEW.stripe_checked_at;
+        NEW.stripe_checked_at = OLD.stripe_checked_at;
+        IF NEW IS NOT DISTINCT FROM OLD THEN
+            NEW.stripe_checked_at = checked_at;
+            RETURN NEW;
+        END IF;
+        NEW.stripe_checked_at = checked_at;
+    END IF;
+
+    NEW.updated_at = CURRENT_TIMESTAMP;
+    IF TG_OP = 'UPDATE' AND NEW.version = OLD.version THEN
+        NEW.version = OLD.version + 1;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Accounts linked before are taken as checked when last updated
+UPDATE users SET stripe_checked_at = updated_at WHERE stripe_account_id IS NOT NULL;
@@ -0,0 +1,23 @@
+-- Stripe webhook events (POST /stripe/webhook), stored before they are acknowledged and applied from here:
+-- pending until applied, retried with backoff, failed after account.stripe.webhook.max-attempts.
+-- A redelivered event is skipped, and an account.updated older than the last event applied to its account
+-- is ignored (only applied events count).
+-- Purged after account.stripe.webhook.event-retention (Stripe stops retrying after 3 days).
+CREATE TABLE stripe_processed_events (
+    event_id VARCHAR(255) PRIMARY KEY,
+    event_type VARCHAR(100) NOT NULL,
+    account_id VARCHAR(255) NOT NULL,
+    event_created BIGINT NOT NULL, -- Stripe's creation time of the event, in epoch seconds
+    state VARCHAR(20) NOT NULL DEFAULT 'pending', -- pending, applied or failed
+    payload TEXT,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP,
+    last_error TEXT,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP -- set once the event is applied
+);
+
+CREATE INDEX idx_stripe_processed_events_account_created ON stripe_processed_events (account_id, event_created);
+CREATE INDEX idx_stripe_processed_events_received_at ON stripe_processed_events (received_at);
+CREATE INDEX idx_stripe_processed_events_pending ON stripe_processed_events (next_attempt_at)
+    WHERE state = 'pending';
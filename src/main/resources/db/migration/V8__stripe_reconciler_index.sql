@@ -0,0 +1,5 @@
+-- Background Stripe reconciliation (StripeAccountReconciler): keyset by (stripe_checked_at, id) over the linked
+-- accounts of one status. stripe_checked_at (V6) is written for every account polled, so an unchanged account
+-- moves to the end of the keyset too and the next passes (on any replica) skip it until it is stale again.
+CREATE INDEX idx_users_stripe_status_checked_at ON users (stripe_account_status, stripe_checked_at, id)
+    WHERE stripe_account_id IS NOT NULL;
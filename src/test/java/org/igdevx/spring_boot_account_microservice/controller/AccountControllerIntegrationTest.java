@@ -1,20 +1,40 @@
 package org.igdevx.spring_boot_account_microservice.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.igdevx.spring_boot_account_microservice.dto.*;
+import org.igdevx.spring_boot_account_microservice.model.Profession;
 import org.igdevx.spring_boot_account_microservice.model.User;
+import org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository;
 import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.service.ProfessionCatalog;
+import org.igdevx.spring_boot_account_microservice.service.UserProfileCache;
+import org.igdevx.spring_boot_account_microservice.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.*;
@@ -34,7 +54,19 @@ public class AccountControllerIntegrationTest {
     private UserRepository userRepository;
 
         @Autowired
-        private org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository professionRepository;
+        private ProfessionRepository professionRepository;
+
+    @Autowired
+    private ProfessionCatalog professionCatalog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private UserService userService;
 
     private String testKeycloakId;
     private User testUser;
@@ -127,14 +159,14 @@ public class AccountControllerIntegrationTest {
     void testCreateProducerProfile() throws Exception {
         String newKeycloakId = UUID.randomUUID().toString();
         // create sample professions and use their ids in the request
-        org.igdevx.spring_boot_account_microservice.model.Profession prof1 = org.igdevx.spring_boot_account_microservice.model.Profession.builder()
+        Profession prof1 = Profession.builder()
                 .code("FARMER")
                 .nameEn("Farmer")
                 .nameFr("Agriculteur")
                 .build();
         prof1 = professionRepository.save(prof1);
         
-        org.igdevx.spring_boot_account_microservice.model.Profession prof2 = org.igdevx.spring_boot_account_microservice.model.Profession.builder()
+        Profession prof2 = Profession.builder()
                 .code("CHEESEMAKER")
                 .nameEn("Cheesemaker")
                 .nameFr("Fromager")
@@ -148,7 +180,7 @@ public class AccountControllerIntegrationTest {
                 .organizationType("Family Farm")
                 .installationYear(2015)
                 .employeesCount(5)
-                .professionIds(java.util.Arrays.asList(prof1.getId(), prof2.getId()))
+                .professionIds(Arrays.asList(prof1.getId(), prof2.getId()))
                 .build();
 
         mockMvc.perform(post("/api/v1/account/producer")
@@ -180,6 +212,44 @@ public class AccountControllerIntegrationTest {
                 .andExpect(jsonPath("$.siret", is("98765432109876")));
     }
 
+    @Test
+    void testGetProducersByProfession_KeysetPages() throws Exception {
+        Profession cheesemaker = professionRepository.save(
+                Profession.builder()
+                        .code("CHEESEMAKER")
+                        .nameEn("Cheesemaker")
+                        .nameFr("Fromager")
+                        .build());
+        
+        User[] producers = new User[3];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = userRepository.save(User.builder()
+                    .keycloakId(UUID.randomUUID())
+                    .biography("Cheese producer " + i)
+                    .siret("1234567890123" + i)
+                    .professions(new HashSet<>(Set.of(cheesemaker)))
+                    .build());
+        }
+
+        mockMvc.perform(get("/api/v1/account/producer")
+                        .param("professionId", cheesemaker.getId().toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", is(producers[0].getId().intValue())))
+                .andExpect(jsonPath("$.items[0].professions[0].code", is("CHEESEMAKER")))
+                .andExpect(jsonPath("$.nextCursor", is(producers[1].getId().intValue())));
+
+        mockMvc.perform(get("/api/v1/account/producer")
+                        .param("professionId", cheesemaker.getId().toString())
+                        .param("after", producers[1].getId().toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(producers[2].getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
     @Test
     void testDeleteRestaurantProfile() throws Exception {
         User restaurant = User.builder()
@@ -221,6 +291,237 @@ public class AccountControllerIntegrationTest {
                 .andExpect(jsonPath("$.biography", is("Test bio")));
     }
 
+    @Test
+    void testProfileCache_WriteThenReadIsFresh() throws Exception {
+        User producer = userRepository.saveAndFlush(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .biography("Old bio")
+                .siret("12345678901234")
+                .build());
+        // cached profiles are only stored once the reading transaction commits
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            String keycloakId = producer.getKeycloakId().toString();
+            mockMvc.perform(get("/api/v1/account/me").header("X-Keycloak-Id", keycloakId))
+                    .andExpect(jsonPath("$.biography", is("Old bio")));
+            mockMvc.perform(get("/api/v1/account/producer/" + producer.getId()))
+                    .andExpect(jsonPath("$.biography", is("Old bio")));
+            assertTrue(userProfileCache.getByKeycloakId(producer.getKeycloakId()).isPresent());
+
+            UpdatePersonalInfoRequest request = UpdatePersonalInfoRequest.builder()
+                    .biography("New bio")
+                    .build();
+            mockMvc.perform(put("/api/v1/account/me")
+                            .header("X-Keycloak-Id", keycloakId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk());
+
+            // by keycloak ID (GET /me) and by id (GET /producer/{id})
+            mockMvc.perform(get("/api/v1/account/me").header("X-Keycloak-Id", keycloakId))
+                    .andExpect(jsonPath("$.biography", is("New bio")));
+            mockMvc.perform(get("/api/v1/account/producer/" + producer.getId()))
+                    .andExpect(jsonPath("$.biography", is("New bio")));
+            assertEquals("New bio",
+                    userService.getProducerProfile(producer.getId()).getBiography());
+        } finally {
+            deleteCommittedData();
+        }
+    }
+
+    @Test
+    void testStripeCheck_KeepsTheProfileVersion() throws Exception {
+        userRepository.flush();
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, testUser.getId());
+
+        // written by the Stripe reconciler for every account it polled
+        jdbcTemplate.update("UPDATE users SET stripe_checked_at = LOCALTIMESTAMP + INTERVAL '1 minute' WHERE id = ?",
+                testUser.getId());
+        assertEquals(version,
+                jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, testUser.getId()));
+
+        // along with a change of the profile, the version still moves
+        jdbcTemplate.update("UPDATE users SET stripe_checked_at = LOCALTIMESTAMP + INTERVAL '2 minutes', "
+                + "biography = 'Checked bio' WHERE id = ?", testUser.getId());
+        assertEquals(version + 1,
+                jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, testUser.getId()));
+    }
+
+    @Test
+    void testExportProfiles_Ndjson() throws Exception {
+        Profession farmer = professionRepository.saveAndFlush(
+                Profession.builder()
+                        .code("FARMER")
+                        .nameEn("Farmer")
+                        .nameFr("Agriculteur")
+                        .build());
+        professionCatalog.reload();
+        User producer = User.builder()
+                .keycloakId(UUID.randomUUID())
+                .siret("12345678901234")
+                .stripeAccountId("acct_export")
+                .stripeAccountStatus("active")
+                .stripeOnboardingComplete(true)
+                .professions(new HashSet<>(Set.of(farmer)))
+                .build();
+        producer = userRepository.saveAndFlush(producer);
+        // the body is streamed from another thread: it only sees committed rows
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            List<JsonNode> rows = parseNdjson(export(null, null));
+            assertEquals(2, rows.size());
+            assertEquals(testUser.getId(), rows.get(0).get("id").asLong());
+            JsonNode exported = rows.get(1);
+            assertEquals(producer.getKeycloakId().toString(), exported.get("keycloakId").asText());
+            assertEquals("FARMER", exported.get("professions").get(0).get("code").asText());
+            assertEquals("acct_export", exported.get("stripeAccountId").asText());
+            assertEquals("active", exported.get("stripeAccountStatus").asText());
+            assertTrue(exported.get("stripeOnboardingComplete").asBoolean());
+
+            // same lines, compressed
+            MvcResult gzip = exportResult(null, "gzip");
+            assertEquals("gzip", gzip.getResponse().getHeader("Content-Encoding"));
+            try (GZIPInputStream in = new GZIPInputStream(
+                    new ByteArrayInputStream(gzip.getResponse().getContentAsByteArray()))) {
+                assertEquals(rows, parseNdjson(new String(in.readAllBytes(),
+                        StandardCharsets.UTF_8)));
+            }
+            assertNull(exportResult(null, "gzip;q=0").getResponse()
+                    .getHeader("Content-Encoding"));
+        } finally {
+            deleteCommittedData();
+        }
+    }
+
+    @Test
+    void testExportProfiles_UpdatedSince() throws Exception {
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            // testUser was written before this instant, the next user after it
+            LocalDateTime since = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", LocalDateTime.class);
+            User recent = userRepository.save(User.builder().keycloakId(UUID.randomUUID()).build());
+
+            List<JsonNode> rows = parseNdjson(export(since.toString(), null));
+            assertEquals(1, rows.size());
+            assertEquals(recent.getId(), rows.get(0).get("id").asLong());
+            assertEquals(2, parseNdjson(export(null, null)).size());
+        } finally {
+            deleteCommittedData();
+        }
+    }
+
+    private MvcResult exportResult(String updatedSince, String acceptEncoding) throws Exception {
+        MockHttpServletRequestBuilder exportRequest = get("/api/v1/internal/export.ndjson");
+        if (updatedSince != null) {
+            exportRequest.param("updatedSince", updatedSince);
+        }
+        if (acceptEncoding != null) {
+            exportRequest.header("Accept-Encoding", acceptEncoding);
+        }
+        MvcResult started = mockMvc.perform(exportRequest)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn();
+    }
+
+    private String export(String updatedSince, String acceptEncoding) throws Exception {
+        return exportResult(updatedSince, acceptEncoding).getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    // One JSON object per line, each line terminated by a newline
+    private List<JsonNode> parseNdjson(String body) throws Exception {
+        assertTrue(body.isEmpty() || body.endsWith("\n"));
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                rows.add(objectMapper.readTree(line));
+            }
+        }
+        return rows;
+    }
+
+    // Tests that commit their fixtures clean up after themselves
+    private void deleteCommittedData() {
+        userRepository.deleteAll();
+        professionRepository.deleteAll();
+        professionCatalog.reload();
+    }
+
+    @Test
+    void testGetUsersByKeycloakIds_Internal() throws Exception {
+        String missingKeycloakId = UUID.randomUUID().toString();
+        BatchUserLookupRequest request = BatchUserLookupRequest.builder()
+                .keycloakIds(List.of(testKeycloakId, missingKeycloakId))
+                .createMissing(false)
+                .build();
+
+        mockMvc.perform(post("/api/v1/internal/users:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + testKeycloakId + "'].biography", is("Test bio")))
+                .andExpect(jsonPath("$['" + missingKeycloakId + "']").doesNotExist());
+
+        request.setCreateMissing(true);
+        mockMvc.perform(post("/api/v1/internal/users:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + missingKeycloakId + "'].keycloakId", is(missingKeycloakId)));
+    }
+
+    @Test
+    void testGetKeycloakIdsByUserIds_Internal() throws Exception {
+        long unknownUserId = testUser.getId() + 1_000_000;
+        KeycloakIdBatchRequest request = KeycloakIdBatchRequest.builder()
+                .userIds(List.of(testUser.getId(), unknownUserId))
+                .build();
+
+        // unknown ids are left out of the result
+        mockMvc.perform(post("/api/v1/internal/users/keycloak-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userId", is(testUser.getId().intValue())))
+                .andExpect(jsonPath("$[0].keycloakId", is(testKeycloakId)));
+
+        request.setUserIds(List.of(unknownUserId));
+        mockMvc.perform(post("/api/v1/internal/users/keycloak-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testGetKeycloakIdsByUserIds_RejectsEmptyAndOversizedBatches() throws Exception {
+        mockMvc.perform(post("/api/v1/internal/users/keycloak-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new KeycloakIdBatchRequest(List.of()))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("at least one ID")));
+
+        // one more than account.internal.keycloak-id-batch-max-size
+        List<Long> userIds = new ArrayList<>();
+        for (long userId = 1; userId <= 1001; userId++) {
+            userIds.add(userId);
+        }
+        mockMvc.perform(post("/api/v1/internal/users/keycloak-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new KeycloakIdBatchRequest(userIds))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("Too many userIds")));
+    }
+
     @Test
     void testGetNonExistentUser() throws Exception {
         String nonExistentId = UUID.randomUUID().toString();
@@ -244,4 +545,294 @@ public class AccountControllerIntegrationTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message", containsString("is not a restaurant")));
     }
+
+    @Test
+    void testImportProfilesCsv_ReportsInvalidRows() throws Exception {
+        professionRepository.saveAndFlush(Profession.builder()
+                .code("FARMER")
+                .nameEn("Farmer")
+                .nameFr("Agriculteur")
+                .build());
+        String producerKeycloakId = UUID.randomUUID().toString();
+        String restaurantKeycloakId = UUID.randomUUID().toString();
+        String csv = "keycloakId,biography,siret,professions,cuisineType\n"
+                + producerKeycloakId + ",\"Bio, local\",12345678901234,FARMER,\n"
+                + restaurantKeycloakId + ",,,,French\n"
+                + UUID.randomUUID() + ",,12345678901234,UNKNOWN,\n"
+                + "not-a-uuid,,12345678901234,,\n";
+
+        mockMvc.perform(post("/api/v1/internal/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(4)))
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.failed", is(2)))
+                .andExpect(jsonPath("$.errors[0].line", is(4)))
+                .andExpect(jsonPath("$.errors[0].message", containsString("UNKNOWN")))
+                .andExpect(jsonPath("$.errors[1].line", is(5)));
+
+        mockMvc.perform(get("/api/v1/internal/" + producerKeycloakId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.biography", is("Bio, local")))
+                .andExpect(jsonPath("$.accountType", is("PRODUCER")))
+                .andExpect(jsonPath("$.professions[0].code", is("FARMER")));
+        mockMvc.perform(get("/api/v1/internal/" + restaurantKeycloakId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountType", is("RESTAURANT")))
+                .andExpect(jsonPath("$.cuisineType", is("French")));
+    }
+
+    @Test
+    void testGetMyProfile_NotModifiedWhenETagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testGetProfessions_NotModifiedWhenETagMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/professions"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", professionCatalog.snapshot().etag()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/professions")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/v1/professions")
+                        .header("If-None-Match", "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void testUpdatePersonalInfo_IfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId))
+                .andReturn().getResponse().getHeader("ETag");
+        UpdatePersonalInfoRequest request = UpdatePersonalInfoRequest.builder()
+                .biography("First writer")
+                .build();
+
+        String newETag = mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.biography", is("First writer")))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, newETag);
+
+        // a second writer holding the old ETag must not overwrite the first one
+        request.setBiography("Second writer");
+        mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testPatchAndDelete_StaleIfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(patch("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"biography\": \"First writer\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"biography\": \"Second writer\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/api/v1/account/restaurant")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void testGetRestaurantProfile_ServedFromCachedBody() throws Exception {
+        User restaurant = userRepository.saveAndFlush(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .biography("Restaurant bio")
+                .serviceType("Dine-in")
+                .cuisineType("French")
+                .build());
+        String url = "/api/v1/account/restaurant/" + restaurant.getId();
+
+        byte[] json = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("public")))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.biography", is("Restaurant bio")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        byte[] gzip = mockMvc.perform(get(url).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+
+        // a write evicts the cached body
+        UpdatePersonalInfoRequest request = UpdatePersonalInfoRequest.builder()
+                .biography("New restaurant bio")
+                .build();
+        mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", restaurant.getKeycloakId().toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.biography", is("New restaurant bio")));
+    }
+
+    @Test
+    void testGetRestaurantProfile_ETagPerEncoding() throws Exception {
+        User restaurant = userRepository.saveAndFlush(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .serviceType("Dine-in")
+                .build());
+        String url = "/api/v1/account/restaurant/" + restaurant.getId();
+
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String gzipETag = mockMvc.perform(get(url).header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertEquals(etag.substring(0, etag.length() - 1) + ".gz\"", gzipETag);
+
+        // gzip;q=0 refuses gzip
+        mockMvc.perform(get(url).header("Accept-Encoding", "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("ETag", etag));
+
+        // a copy in either encoding is still current
+        mockMvc.perform(get(url).header("Accept-Encoding", "gzip").header("If-None-Match", gzipETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header("Accept-Encoding", "gzip").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void testGetProducerProfile_IfNoneMatchChecksTheAccountType() throws Exception {
+        User restaurant = userRepository.saveAndFlush(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .serviceType("Dine-in")
+                .build());
+        String etag = mockMvc.perform(get("/api/v1/account/restaurant/" + restaurant.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // the restaurant's ETag does not make it a producer
+        mockMvc.perform(get("/api/v1/account/producer/" + restaurant.getId()).header("If-None-Match", etag))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetUsersByKeycloakIds_Fields() throws Exception {
+        String missingKeycloakId = UUID.randomUUID().toString();
+        BatchUserLookupRequest request = BatchUserLookupRequest.builder()
+                .keycloakIds(List.of(testKeycloakId, missingKeycloakId))
+                .createMissing(true)
+                .build();
+
+        mockMvc.perform(post("/api/v1/internal/users:batch")
+                        .param("fields", "keycloakId,professions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + testKeycloakId + "'].keycloakId", is(testKeycloakId)))
+                .andExpect(jsonPath("$['" + testKeycloakId + "'].professions", hasSize(0)))
+                .andExpect(jsonPath("$['" + testKeycloakId + "'].id").doesNotExist())
+                .andExpect(jsonPath("$['" + missingKeycloakId + "'].keycloakId", is(missingKeycloakId)))
+                .andExpect(jsonPath("$['" + missingKeycloakId + "'].biography").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/internal/" + testKeycloakId).param("fields", "id,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUpdatePersonalInfo_IdenticalSubmissionKeepsVersion() throws Exception {
+        UpdatePersonalInfoRequest request = UpdatePersonalInfoRequest.builder()
+                .biography("Same bio")
+                .website("https://example.com")
+                .build();
+        String etag = mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    void testPatchPersonalInfo_MergePatch() throws Exception {
+        UpdatePersonalInfoRequest request = UpdatePersonalInfoRequest.builder()
+                .biography("Bio")
+                .website("https://example.com")
+                .build();
+        mockMvc.perform(put("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        String etag = mockMvc.perform(patch("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"website\": null, \"instagram\": \"@farm\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.biography", is("Bio")))
+                .andExpect(jsonPath("$.website").value(nullValue()))
+                .andExpect(jsonPath("$.instagram", is("@farm")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // nothing changes: nothing is written
+        mockMvc.perform(patch("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"instagram\": \"@farm\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag));
+
+        mockMvc.perform(patch("/api/v1/account/me")
+                        .header("X-Keycloak-Id", testKeycloakId)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"siret\": \"123\"}"))
+                .andExpect(status().isBadRequest());
+    }
 }
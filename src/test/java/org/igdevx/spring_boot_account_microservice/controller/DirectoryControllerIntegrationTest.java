@@ -0,0 +1,95 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import org.igdevx.spring_boot_account_microservice.model.User;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class DirectoryControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User frenchRestaurant;
+    private User italianRestaurant;
+    private User producer;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        frenchRestaurant = userRepository.save(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .serviceType("Fine Dining")
+                .cuisineType("French")
+                .build());
+        italianRestaurant = userRepository.save(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .serviceType("Casual")
+                .cuisineType("Italian")
+                .build());
+        producer = userRepository.save(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .siret("12345678901234")
+                .organizationType("Cooperative")
+                .build());
+        userRepository.save(User.builder().keycloakId(UUID.randomUUID()).biography("Consumer").build());
+    }
+
+    @Test
+    void testListRestaurants_Paginated() throws Exception {
+        mockMvc.perform(get("/api/v1/account/directory/restaurants").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(frenchRestaurant.getId().intValue())))
+                .andExpect(jsonPath("$.items[0].accountType", is("RESTAURANT")))
+                .andExpect(jsonPath("$.nextCursor", is(frenchRestaurant.getId().intValue())));
+
+        mockMvc.perform(get("/api/v1/account/directory/restaurants")
+                        .param("after", frenchRestaurant.getId().toString())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(italianRestaurant.getId().intValue())))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    void testListRestaurants_FilteredByCuisineType() throws Exception {
+        mockMvc.perform(get("/api/v1/account/directory/restaurants").param("cuisineType", "Italian"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].cuisineType", is("Italian")));
+    }
+
+    @Test
+    void testListProducers() throws Exception {
+        mockMvc.perform(get("/api/v1/account/directory/producers").param("organizationType", "Cooperative"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(producer.getId().intValue())))
+                .andExpect(jsonPath("$.items[0].accountType", is("PRODUCER")));
+    }
+
+    @Test
+    void testListRestaurants_InvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/v1/account/directory/restaurants").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
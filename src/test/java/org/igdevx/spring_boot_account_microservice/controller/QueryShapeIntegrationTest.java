@@ -0,0 +1,149 @@
+package org.igdevx.spring_boot_account_microservice.controller;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.igdevx.spring_boot_account_microservice.model.User;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Asserts the SQL issued by endpoints that read through a projection instead of the full User entity
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.igdevx.spring_boot_account_microservice.controller.QueryShapeIntegrationTest$SqlCapture",
+        "account.user-id-index.enabled=false"
+})
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles({"test", "no-profile-cache"})
+public class QueryShapeIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User restaurant;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        restaurant = userRepository.save(User.builder()
+                .keycloakId(UUID.randomUUID())
+                .biography("Restaurant bio")
+                .serviceType("Fine Dining")
+                .cuisineType("French")
+                .build());
+        SqlCapture.STATEMENTS.clear();
+    }
+
+    @Test
+    void restaurantPublicProfile_readsOnlyPublicColumns() throws Exception {
+        mockMvc.perform(get("/api/v1/account/restaurant/" + restaurant.getId()))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(
+                "select u1_0.id,u1_0.account_type,u1_0.biography,u1_0.website,u1_0.facebook,u1_0.instagram,u1_0.linkedin,"
+                        + "u1_0.service_type,u1_0.cuisine_type,u1_0.hygiene_certifications,u1_0.awards,u1_0.version "
+                        + "from users u1_0 where u1_0.id=?"
+        ), SqlCapture.STATEMENTS);
+    }
+
+    @Test
+    void restaurantPublicProfile_readFromTheDatabaseEveryTimeWithoutCache() throws Exception {
+        // spring.cache.type=none (no-profile-cache): no body nor profile is kept between requests
+        mockMvc.perform(get("/api/v1/account/restaurant/" + restaurant.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/account/restaurant/" + restaurant.getId()))
+                .andExpect(status().isOk());
+
+        assertEquals(2, SqlCapture.STATEMENTS.size());
+        assertEquals(SqlCapture.STATEMENTS.get(0), SqlCapture.STATEMENTS.get(1));
+    }
+
+    @Test
+    void keycloakIdLookup_readsOnlyKeycloakId() throws Exception {
+        mockMvc.perform(get("/api/v1/internal/user/" + restaurant.getId() + "/keycloak-id"))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(
+                "select u1_0.keycloak_id from users u1_0 where u1_0.id=?"
+        ), SqlCapture.STATEMENTS);
+    }
+
+    @Test
+    void stripeAccountInfo_readsOnlyStripeColumns() throws Exception {
+        mockMvc.perform(get("/api/v1/account/stripe/connected-account")
+                        .header("X-Keycloak-Id", restaurant.getKeycloakId().toString()))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(List.of(
+                "select u1_0.id,u1_0.keycloak_id,u1_0.account_type,u1_0.stripe_account_id,"
+                        + "u1_0.stripe_account_status,u1_0.stripe_onboarding_complete "
+                        + "from users u1_0 where u1_0.keycloak_id=?"
+        ), SqlCapture.STATEMENTS);
+    }
+
+    @Test
+    void restaurantDirectory_filtersOnLiteralAccountType() throws Exception {
+        mockMvc.perform(get("/api/v1/account/directory/restaurants").param("cuisineType", "French"))
+                .andExpect(status().isOk());
+
+        // the row limit clause is dialect-specific
+        assertEquals(1, SqlCapture.STATEMENTS.size());
+        assertTrue(SqlCapture.STATEMENTS.get(0).startsWith(
+                "select u1_0.id,u1_0.service_type,u1_0.cuisine_type from users u1_0 "
+                        + "where u1_0.account_type='RESTAURANT' and u1_0.id>? and u1_0.cuisine_type=? "
+                        + "order by u1_0.id"), SqlCapture.STATEMENTS::toString);
+    }
+
+    @Test
+    void deleteRestaurant_doesNotLoadTheEntity() throws Exception {
+        mockMvc.perform(delete("/api/v1/account/restaurant")
+                        .header("X-Keycloak-Id", restaurant.getKeycloakId().toString()))
+                .andExpect(status().isNoContent());
+
+        assertEquals("select u1_0.id from users u1_0 where u1_0.keycloak_id=?", SqlCapture.STATEMENTS.get(0));
+        assertTrue(SqlCapture.STATEMENTS.stream().noneMatch(sql -> sql.contains("join")), SqlCapture.STATEMENTS::toString);
+        assertTrue(SqlCapture.STATEMENTS.get(SqlCapture.STATEMENTS.size() - 1).startsWith("delete from users"));
+    }
+
+    @Test
+    void internalProfileFields_readsOnlyRequestedColumns() throws Exception {
+        mockMvc.perform(get("/api/v1/internal/" + restaurant.getKeycloakId())
+                        .param("fields", "id,keycloakId,stripeOnboardingComplete"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stripeOnboardingComplete").hasJsonPath())
+                .andExpect(jsonPath("$.biography").doesNotHaveJsonPath());
+
+        assertEquals(1, SqlCapture.STATEMENTS.size());
+        assertTrue(SqlCapture.STATEMENTS.get(0).startsWith(
+                "select u1_0.id,u1_0.keycloak_id,u1_0.stripe_onboarding_complete from users u1_0 "
+                        + "where u1_0.keycloak_id in "), SqlCapture.STATEMENTS::toString);
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -114,6 +114,16 @@ public class StripeConnectControllerIntegrationTest {
                 .andExpect(jsonPath("$.accountStatus", is("pending_onboarding")));
     }
 
+    @Test
+    void testWebhook_NotEnabled() throws Exception {
+        mockMvc.perform(post("/api/v1/account/stripe/webhook")
+                        .header("Stripe-Signature", "t=1,v1=invalid")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": \"evt_1\", \"type\": \"account.updated\"}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message", containsString("not enabled")));
+    }
+
     // Note: The actual Stripe API calls would be mocked in a real test environment
     // For integration testing with real Stripe API, you would need:
     // 1. Test API keys
@@ -0,0 +1,47 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void next_splitsFieldsAndRecords() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a,b,c\r\n1,,3\n"));
+        assertEquals(List.of("a", "b", "c"), csv.next());
+        assertEquals(1, csv.recordLine());
+        assertEquals(List.of("1", "", "3"), csv.next());
+        assertEquals(2, csv.recordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_handlesQuotedFieldsSpanningLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("\"Ferme, \"\"bio\"\"\",\"line 1\nline 2\"\nlast,x"));
+        assertEquals(List.of("Ferme, \"bio\"", "line 1\nline 2"), csv.next());
+        assertEquals(List.of("last", "x"), csv.next());
+        assertEquals(3, csv.recordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_returnsEmptyLinesAsOneEmptyField() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a\n\nb\n"));
+        assertEquals(List.of("a"), csv.next());
+        assertEquals(List.of(""), csv.next());
+        assertEquals(List.of("b"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void next_rejectsUnterminatedQuote() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("ok\n\"never closed\n"));
+        assertEquals(List.of("ok"), csv.next());
+        assertThrows(CsvReader.MalformedCsvException.class, csv::next);
+    }
+}
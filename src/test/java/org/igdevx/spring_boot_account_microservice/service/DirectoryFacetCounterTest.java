@@ -0,0 +1,108 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.FacetProfileView;
+import org.igdevx.spring_boot_account_microservice.repository.projection.UserProfessionView;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DirectoryFacetCounterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DirectoryFacetCounter counter = new DirectoryFacetCounter(
+            userRepository, mock(PlatformTransactionManager.class), meterRegistry, true);
+
+    @Test
+    void testReconcileLoadsCountsFromTheDatabase() {
+        givenDatabase(
+                List.of(facetRow(1L, AccountType.RESTAURANT, "French", "Fine Dining", null, null),
+                        facetRow(2L, AccountType.PRODUCER, null, null, "Cooperative", 2015)),
+                List.of(professionRow(2L, 7L)));
+
+        counter.reconcile();
+
+        assertEquals(Map.of("French", 1L), counter.facets().getCuisineType());
+        assertEquals(Map.of("Cooperative", 1L), counter.facets().getOrganizationType());
+        assertEquals(Map.of("7", 1L), counter.facets().getProfession());
+        assertEquals(Map.of("2010-2019", 1L), counter.facets().getInstallationYear());
+    }
+
+    @Test
+    void testProfileChangesAreAppliedAsDeltas() {
+        counter.onProfileChanged(changed(1L, restaurant("French")));
+        counter.onProfileChanged(changed(2L, restaurant("French")));
+        counter.onProfileChanged(changed(2L, restaurant("Italian")));
+        counter.onProfileChanged(changed(2L, restaurant("Italian")));
+        assertEquals(Map.of("French", 1L, "Italian", 1L), counter.facets().getCuisineType());
+
+        counter.onProfileChanged(new UserProfileChangedEvent(1L, UUID.randomUUID(), null));
+        assertEquals(Map.of("Italian", 1L), counter.facets().getCuisineType());
+
+        // a restaurant turned producer leaves the restaurant facets
+        counter.onProfileChanged(changed(2L, UserProfileResponse.builder()
+                .accountType(AccountType.PRODUCER)
+                .organizationType("Family Farm")
+                .professions(List.of(ProfessionDto.builder().id(3L).build()))
+                .build()));
+        assertEquals(Map.of(), counter.facets().getCuisineType());
+        assertEquals(Map.of("3", 1L), counter.facets().getProfession());
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        counter.onProfileChanged(changed(1L, restaurant("French")));
+        counter.onProfileChanged(changed(2L, restaurant("French")));
+        givenDatabase(List.of(facetRow(1L, AccountType.RESTAURANT, "French", null, null, null)), List.of());
+
+        counter.reconcile();
+
+        assertEquals(Map.of("French", 1L), counter.facets().getCuisineType());
+        assertEquals(1.0, meterRegistry.get("account.directory_facets.reconcile_drift").counter().count());
+    }
+
+    private void givenDatabase(List<FacetProfileView> profiles, List<UserProfessionView> professions) {
+        when(userRepository.streamFacetProfiles()).thenReturn(profiles.stream());
+        when(userRepository.streamAllUserProfessions()).thenReturn(professions.stream());
+    }
+
+    private static UserProfileResponse restaurant(String cuisineType) {
+        return UserProfileResponse.builder().accountType(AccountType.RESTAURANT).cuisineType(cuisineType).build();
+    }
+
+    private static UserProfileChangedEvent changed(Long userId, UserProfileResponse profile) {
+        profile.setId(userId);
+        return new UserProfileChangedEvent(userId, UUID.randomUUID(), profile);
+    }
+
+    private static FacetProfileView facetRow(Long id, AccountType accountType, String cuisineType, String serviceType,
+                                             String organizationType, Integer installationYear) {
+        FacetProfileView row = mock(FacetProfileView.class);
+        when(row.getId()).thenReturn(id);
+        when(row.getAccountType()).thenReturn(accountType);
+        when(row.getCuisineType()).thenReturn(cuisineType);
+        when(row.getServiceType()).thenReturn(serviceType);
+        when(row.getOrganizationType()).thenReturn(organizationType);
+        when(row.getInstallationYear()).thenReturn(installationYear);
+        return row;
+    }
+
+    private static UserProfessionView professionRow(Long userId, Long professionId) {
+        UserProfessionView row = mock(UserProfessionView.class);
+        when(row.getUserId()).thenReturn(userId);
+        when(row.getProfessionId()).thenReturn(professionId);
+        return row;
+    }
+}
@@ -0,0 +1,55 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.model.AccountType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvertedIndexTest {
+
+    @Test
+    void search_matchesAcrossAccentsAndPlurals() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, AccountType.PRODUCER, SearchAnalyzer.analyze("Fromagère passionnée, chèvres élevées en plein air"));
+        index.put(2L, AccountType.RESTAURANT, SearchAnalyzer.analyze("Bistrot de quartier", "French"));
+
+        assertEquals(List.of(1L), userIds(index.search(SearchAnalyzer.analyze("fromagere chevre"), null, 10)));
+        assertEquals(List.of(2L), userIds(index.search(SearchAnalyzer.analyze("bistrots"), null, 10)));
+        assertEquals(List.of(), index.search(SearchAnalyzer.analyze("le la les"), null, 10));
+    }
+
+    @Test
+    void search_ranksByBm25AndFiltersByType() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1L, AccountType.PRODUCER, SearchAnalyzer.analyze("organic cheese, cheese cave, aged cheese"));
+        index.put(2L, AccountType.PRODUCER, SearchAnalyzer.analyze("vegetables and a little cheese among many other products"));
+        index.put(3L, AccountType.RESTAURANT, SearchAnalyzer.analyze("cheese platter"));
+
+        assertEquals(List.of(1L, 3L, 2L), userIds(index.search(SearchAnalyzer.analyze("cheeses"), null, 10)));
+        assertEquals(List.of(1L, 2L), userIds(index.search(SearchAnalyzer.analyze("cheese"), AccountType.PRODUCER, 10)));
+        assertEquals(List.of(1L), userIds(index.search(SearchAnalyzer.analyze("cheese"), null, 1)));
+    }
+
+    @Test
+    void putAndRemove_replaceDocumentsAndCompact() {
+        InvertedIndex index = new InvertedIndex();
+        for (long userId = 1; userId <= 2000; userId++) {
+            index.put(userId, AccountType.PRODUCER, SearchAnalyzer.analyze("honey producer " + userId));
+        }
+        index.put(5L, AccountType.PRODUCER, SearchAnalyzer.analyze("olive oil"));
+        for (long userId = 6; userId <= 2000; userId++) {
+            assertTrue(index.remove(userId));
+        }
+
+        assertEquals(5, index.size());
+        assertEquals(List.of(5L), userIds(index.search(SearchAnalyzer.analyze("olive"), null, 10)));
+        assertEquals(List.of(1L, 2L, 3L, 4L), userIds(index.search(SearchAnalyzer.analyze("honey"), null, 10)));
+        assertFalse(index.remove(2000L));
+    }
+
+    private static List<Long> userIds(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::userId).toList();
+    }
+}
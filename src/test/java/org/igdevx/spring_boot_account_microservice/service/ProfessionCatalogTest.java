@@ -0,0 +1,97 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.igdevx.spring_boot_account_microservice.model.Profession;
+import org.igdevx.spring_boot_account_microservice.repository.ProfessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProfessionCatalogTest {
+
+    private static final Profession FARMER = profession(1L, "FARMER", "Farmer", "Agriculteur");
+    private static final Profession BAKER = profession(2L, "BAKER", "Baker", "Boulanger");
+
+    private ProfessionRepository professionRepository;
+    private ProfessionCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        professionRepository = mock(ProfessionRepository.class);
+        catalog = new ProfessionCatalog(professionRepository);
+    }
+
+    @Test
+    void testSnapshotIsLoadedOnceAndShared() {
+        when(professionRepository.findAll(any(Sort.class))).thenReturn(List.of(FARMER, BAKER));
+
+        ProfessionCatalog.Snapshot snapshot = catalog.snapshot();
+
+        assertSame(snapshot, catalog.snapshot());
+        verify(professionRepository, times(1)).findAll(any(Sort.class));
+        assertEquals(1, snapshot.version());
+        assertEquals(List.of(1L, 2L), snapshot.professions().stream().map(ProfessionDto::getId).toList());
+        assertSame(snapshot.professions().get(0), catalog.findById(1L).orElseThrow());
+        assertSame(snapshot.professions().get(0), catalog.toDto(FARMER));
+    }
+
+    @Test
+    void testETagIsTheSha256OfTheContent() throws Exception {
+        when(professionRepository.findAll(any(Sort.class))).thenReturn(List.of(FARMER, BAKER));
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update("1\u0000FARMER\u0000Farmer\u0000Agriculteur\n".getBytes(StandardCharsets.UTF_8));
+        digest.update("2\u0000BAKER\u0000Baker\u0000Boulanger\n".getBytes(StandardCharsets.UTF_8));
+        String expected = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+
+        assertEquals(expected, catalog.snapshot().etag());
+    }
+
+    @Test
+    void testReloadPublishesOnlyChangedContent() {
+        Profession renamed = profession(2L, "BAKER", "Bread baker", "Boulanger");
+        when(professionRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(FARMER, BAKER), List.of(FARMER, BAKER), List.of(FARMER, renamed));
+
+        ProfessionCatalog.Snapshot first = catalog.snapshot();
+        assertSame(first, catalog.reload());
+
+        ProfessionCatalog.Snapshot next = catalog.reload();
+        assertEquals(2, next.version());
+        assertNotEquals(first.etag(), next.etag());
+        assertEquals("Bread baker", next.byId().get(2L).getNameEn());
+        // unchanged professions keep their instance
+        assertSame(first.byId().get(1L), next.byId().get(1L));
+    }
+
+    @Test
+    void testUnknownProfessionIsFoundAfterReload() {
+        Profession cheesemaker = profession(3L, "CHEESEMAKER", "Cheesemaker", "Fromager");
+        when(professionRepository.findAll(any(Sort.class)))
+                .thenReturn(List.of(FARMER), List.of(FARMER, cheesemaker));
+        catalog.snapshot();
+
+        assertEquals(Optional.empty(), catalog.findById(3L));
+        ProfessionDto dto = catalog.toDto(cheesemaker);
+        assertEquals("CHEESEMAKER", dto.getCode());
+        assertNotSame(dto, catalog.toDto(cheesemaker));
+
+        // callers re-read the catalog once when an id is missing
+        assertEquals("Fromager", catalog.reload().byId().get(3L).getNameFr());
+        assertSame(catalog.findById(3L).orElseThrow(), catalog.toDto(cheesemaker));
+    }
+
+    private static Profession profession(Long id, String code, String nameEn, String nameFr) {
+        return Profession.builder().id(id).code(code).nameEn(nameEn).nameFr(nameFr).build();
+    }
+}
@@ -0,0 +1,43 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.ProfessionDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfessionSuggestIndexTest {
+
+    private static final ProfessionDto OLIVE = profession(1L, "Olive grower", "Oléiculteur");
+    private static final ProfessionDto FARMER = profession(2L, "Farmer", "Agriculteur");
+    private static final ProfessionDto CHEESE = profession(3L, "Cheese maker", "Fromager");
+    private static final ProfessionDto GOAT = profession(4L, "Goat cheese maker", "Éleveur de chèvres");
+
+    private final ProfessionSuggestIndex index = new ProfessionSuggestIndex(List.of(OLIVE, FARMER, CHEESE, GOAT));
+
+    @Test
+    void suggest_foldsAccentsAndCase() {
+        assertEquals(List.of(OLIVE), index.suggest("olé", ProfessionSuggestIndex.Lang.FR, 10));
+        assertEquals(List.of(OLIVE), index.suggest("OLEI", ProfessionSuggestIndex.Lang.FR, 10));
+        assertEquals(List.of(GOAT), index.suggest("eleveur", ProfessionSuggestIndex.Lang.FR, 10));
+    }
+
+    @Test
+    void suggest_ranksNameStartBeforeWordStart() {
+        assertEquals(List.of(CHEESE, GOAT), index.suggest("chee", ProfessionSuggestIndex.Lang.EN, 10));
+        assertEquals(List.of(GOAT), index.suggest("chev", ProfessionSuggestIndex.Lang.FR, 10));
+    }
+
+    @Test
+    void suggest_respectsLanguageAndLimit() {
+        assertEquals(List.of(), index.suggest("agri", ProfessionSuggestIndex.Lang.EN, 10));
+        assertEquals(List.of(FARMER), index.suggest("agri", ProfessionSuggestIndex.Lang.ALL, 10));
+        assertEquals(1, index.suggest("c", ProfessionSuggestIndex.Lang.EN, 1).size());
+        assertEquals(List.of(), index.suggest("  ", ProfessionSuggestIndex.Lang.ALL, 10));
+    }
+
+    private static ProfessionDto profession(Long id, String nameEn, String nameFr) {
+        return ProfessionDto.builder().id(id).nameEn(nameEn).nameFr(nameFr).build();
+    }
+}
@@ -0,0 +1,30 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileChangeFeedServiceTest {
+
+    @Test
+    void cursor_roundTripsWithMicroseconds() {
+        ProfileChangeFeedService.ChangeCursor cursor = new ProfileChangeFeedService.ChangeCursor(
+                LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_793_000), 42);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("|"));
+        assertEquals(cursor, ProfileChangeFeedService.ChangeCursor.decode(encoded));
+        assertEquals(ProfileChangeFeedService.ChangeCursor.START,
+                ProfileChangeFeedService.ChangeCursor.decode(ProfileChangeFeedService.ChangeCursor.START.encode()));
+    }
+
+    @Test
+    void cursor_rejectsGarbage() {
+        assertThrows(BadRequestException.class, () -> ProfileChangeFeedService.ChangeCursor.decode("not a cursor"));
+        assertThrows(BadRequestException.class, () -> ProfileChangeFeedService.ChangeCursor.decode("MjAyNQ"));
+    }
+}
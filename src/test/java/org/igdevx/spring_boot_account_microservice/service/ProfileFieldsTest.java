@@ -0,0 +1,47 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileFieldsTest {
+
+    @Test
+    void testAbsentOrBlankMeansFullProfile() {
+        assertNull(ProfileFields.parse(null));
+        assertNull(ProfileFields.parse("  "));
+    }
+
+    @Test
+    void testProjectKeepsResponseOrder() {
+        UserProfileResponse profile = UserProfileResponse.builder()
+                .id(7L)
+                .keycloakId("kc")
+                .biography("long text")
+                .stripeOnboardingComplete(true)
+                .build();
+
+        Map<String, Object> projected = ProfileFields.parse(" stripeOnboardingComplete, id ,keycloakId,id").project(profile);
+
+        assertEquals(List.of("id", "keycloakId", "stripeOnboardingComplete"), List.copyOf(projected.keySet()));
+        assertEquals(7L, projected.get("id"));
+        assertEquals(true, projected.get("stripeOnboardingComplete"));
+    }
+
+    @Test
+    void testProfessionsOnlyWhenRequested() {
+        assertFalse(ProfileFields.parse("id,siret").includesProfessions());
+        assertTrue(ProfileFields.parse("professions").includesProfessions());
+    }
+
+    @Test
+    void testUnknownOrEmptyFieldsAreRejected() {
+        assertThrows(BadRequestException.class, () -> ProfileFields.parse("id,password"));
+        assertThrows(BadRequestException.class, () -> ProfileFields.parse(",,"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.igdevx.spring_boot_account_microservice.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileMergePatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ProfileMergePatch producer(String json) throws Exception {
+        return ProfileMergePatch.producer(objectMapper.readTree(json));
+    }
+
+    @Test
+    void testOnlyChangedPropertiesAreSet() throws Exception {
+        User user = User.builder().biography("Bio").website("https://example.com").installationYear(2001).build();
+        ProfileMergePatch patch = producer("{\"biography\": \"Bio\", \"website\": null, \"installationYear\": 2010}");
+
+        assertFalse(patch.text("biography", user::getBiography, user::setBiography));
+        assertTrue(patch.text("website", user::getWebsite, user::setWebsite));
+        assertTrue(patch.integer("installationYear", user::getInstallationYear, user::setInstallationYear));
+        // absent: left as is
+        assertFalse(patch.text("siret", user::getSiret, value -> fail("siret is not in the patch")));
+
+        assertEquals("Bio", user.getBiography());
+        assertNull(user.getWebsite());
+        assertEquals(2010, user.getInstallationYear());
+    }
+
+    @Test
+    void testIds() throws Exception {
+        assertNull(producer("{}").ids("professionIds"));
+        assertEquals(List.of(), producer("{\"professionIds\": null}").ids("professionIds"));
+        assertEquals(List.of(3L, 1L), producer("{\"professionIds\": [3, 1]}").ids("professionIds"));
+        assertThrows(BadRequestException.class, () -> producer("{\"professionIds\": [\"x\"]}").ids("professionIds"));
+    }
+
+    @Test
+    void testRejectsPropertiesOfOtherProfiles() throws Exception {
+        assertThrows(BadRequestException.class,
+                () -> ProfileMergePatch.restaurant(objectMapper.readTree("{\"siret\": \"123\"}")));
+        assertThrows(BadRequestException.class,
+                () -> ProfileMergePatch.personalInfo(objectMapper.readTree("{\"id\": 1}")));
+        assertThrows(BadRequestException.class,
+                () -> ProfileMergePatch.personalInfo(objectMapper.readTree("[]")));
+    }
+
+    @Test
+    void testRejectsWrongTypes() throws Exception {
+        User user = new User();
+        assertThrows(BadRequestException.class,
+                () -> producer("{\"employeesCount\": \"ten\"}").integer("employeesCount", user::getEmployeesCount, user::setEmployeesCount));
+        assertThrows(BadRequestException.class,
+                () -> producer("{\"biography\": 12}").text("biography", user::getBiography, user::setBiography));
+    }
+}
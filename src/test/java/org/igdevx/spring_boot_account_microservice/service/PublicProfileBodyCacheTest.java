@@ -0,0 +1,71 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.igdevx.spring_boot_account_microservice.service.PublicProfileBodyCache.Kind;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicProfileBodyCacheTest {
+
+    private final AtomicReference<Runnable> onPut = new AtomicReference<>();
+
+    // Runs the hook set in onPut right after the next put, as if it happened concurrently
+    private PublicProfileBodyCache cache() {
+        return new PublicProfileBodyCache(new ConcurrentMapCacheManager(PublicProfileBodyCache.CACHE_NAME) {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public void put(Object key, Object value) {
+                        super.put(key, value);
+                        Runnable hook = onPut.getAndSet(null);
+                        if (hook != null) {
+                            hook.run();
+                        }
+                    }
+                };
+            }
+        }, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testLoadedBodyIsCached() {
+        PublicProfileBodyCache cache = cache();
+
+        PublicProfileBodyCache.Body body = cache.put(Kind.PRODUCER, 1L, "\"1.0\"", Map.of("id", 1), cache.beginLoad());
+
+        assertEquals(Optional.of(body), cache.get(Kind.PRODUCER, 1L));
+        assertEquals("{\"id\":1}", new String(body.json()));
+    }
+
+    @Test
+    void testLoadStartedBeforeAWriteIsNotCached() {
+        PublicProfileBodyCache cache = cache();
+        long token = cache.beginLoad();
+        cache.evict(1L);
+
+        cache.put(Kind.PRODUCER, 1L, "\"1.0\"", Map.of("id", 1), token);
+
+        assertEquals(Optional.empty(), cache.get(Kind.PRODUCER, 1L));
+    }
+
+    @Test
+    void testEvictionDuringAStoreIsNotUndone() {
+        PublicProfileBodyCache cache = cache();
+        // the write commits between the epoch check of the store and its put
+        onPut.set(() -> cache.evict(1L));
+
+        cache.put(Kind.PRODUCER, 1L, "\"1.0\"", Map.of("id", 1), cache.beginLoad());
+
+        assertEquals(Optional.empty(), cache.get(Kind.PRODUCER, 1L));
+    }
+}
@@ -0,0 +1,78 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.stripe.exception.RateLimitException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StripeAccountReconcilerTest {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final List<Duration> waits = new ArrayList<>();
+    private StripeService stripeService;
+    private StripeAccountSnapshotCache snapshots;
+    private StripeAccountReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        stripeService = mock(StripeService.class);
+        snapshots = mock(StripeAccountSnapshotCache.class);
+        TokenBucket rateLimit = new TokenBucket(10, 1, nanos::get, wait -> {
+            waits.add(Duration.ofNanos(wait));
+            nanos.addAndGet(wait);
+        });
+        reconciler = new StripeAccountReconciler(stripeService, snapshots, mock(UserService.class),
+                mock(DataSource.class), null, rateLimit, 1, true, Duration.ofMinutes(30), Duration.ofDays(30),
+                100, 2, Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    @Test
+    void testRetrievalIsRateLimited() throws Exception {
+        StripeAccountSnapshot pending = new StripeAccountSnapshot("acct_1", "pending", false);
+        when(stripeService.retrieveAccountSnapshot("acct_1")).thenReturn(pending);
+
+        assertEquals(pending, reconciler.retrieve("acct_1"));
+        assertEquals(pending, reconciler.retrieve("acct_1"));
+        assertEquals(List.of(Duration.ofMillis(100)), waits);
+        verify(snapshots, times(2)).put(pending);
+    }
+
+    @Test
+    void testRateLimitedRetrievalIsRetriedAfterBackoff() throws Exception {
+        StripeAccountSnapshot active = new StripeAccountSnapshot("acct_1", "active", true);
+        when(stripeService.retrieveAccountSnapshot("acct_1"))
+                .thenThrow(mock(RateLimitException.class))
+                .thenThrow(mock(RateLimitException.class))
+                .thenReturn(active);
+
+        assertEquals(active, reconciler.retrieve("acct_1"));
+        // 1s then 2s, plus up to 50% jitter
+        assertEquals(2, waits.size());
+        assertTrue(waits.get(0).compareTo(Duration.ofSeconds(1)) >= 0 && waits.get(0).compareTo(Duration.ofMillis(1500)) <= 0);
+        assertTrue(waits.get(1).compareTo(Duration.ofSeconds(2)) >= 0 && waits.get(1).compareTo(Duration.ofSeconds(3)) <= 0);
+    }
+
+    @Test
+    void testRateLimitIsThrownAfterMaxRetries() throws Exception {
+        when(stripeService.retrieveAccountSnapshot("acct_1")).thenThrow(mock(RateLimitException.class));
+
+        assertThrows(RateLimitException.class, () -> reconciler.retrieve("acct_1"));
+        verify(stripeService, times(3)).retrieveAccountSnapshot("acct_1");
+        verify(snapshots, never()).put(any());
+    }
+}
@@ -0,0 +1,134 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.stripe.model.Account;
+import org.igdevx.spring_boot_account_microservice.exception.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StripeAccountSnapshotCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    // Background refreshes, run when the test says so
+    private final Queue<Runnable> refreshes = new ArrayDeque<>();
+    private StripeService stripeService;
+    private StripeAccountSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        stripeService = mock(StripeService.class);
+        Ticker ticker = nanos::get;
+        cache = new StripeAccountSnapshotCache(stripeService, Duration.ofMinutes(1), Duration.ofMinutes(30),
+                100, ticker, refreshes::add);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private void runRefreshes() {
+        while (!refreshes.isEmpty()) {
+            refreshes.poll().run();
+        }
+    }
+
+    // Stripe models have no public setters
+    private static Account account(boolean detailsSubmitted, boolean chargesEnabled, String disabledReason) {
+        Account account = mock(Account.class);
+        when(account.getId()).thenReturn("acct_1");
+        when(account.getDetailsSubmitted()).thenReturn(detailsSubmitted);
+        when(account.getChargesEnabled()).thenReturn(chargesEnabled);
+        if (disabledReason != null) {
+            Account.Requirements requirements = mock(Account.Requirements.class);
+            when(requirements.getDisabledReason()).thenReturn(disabledReason);
+            when(account.getRequirements()).thenReturn(requirements);
+        }
+        return account;
+    }
+
+    @Test
+    void testSnapshotFromOneAccount() {
+        assertEquals(new StripeAccountSnapshot("acct_1", "incomplete", false),
+                StripeAccountSnapshot.of(account(false, false, null)));
+        assertEquals(new StripeAccountSnapshot("acct_1", "pending", false),
+                StripeAccountSnapshot.of(account(true, false, null)));
+        assertEquals(new StripeAccountSnapshot("acct_1", "active", true),
+                StripeAccountSnapshot.of(account(true, true, null)));
+        assertEquals("rejected", StripeAccountSnapshot.of(account(true, true, "rejected.fraud")).status());
+        assertEquals("incomplete", StripeAccountSnapshot.of(new Account()).status());
+    }
+
+    @Test
+    void testServesStaleSnapshotWhileRefreshing() throws Exception {
+        StripeAccountSnapshot pending = new StripeAccountSnapshot("acct_1", "pending", false);
+        StripeAccountSnapshot active = new StripeAccountSnapshot("acct_1", "active", true);
+        when(stripeService.retrieveAccountSnapshot("acct_1")).thenReturn(pending, active);
+
+        assertEquals(pending, cache.get("acct_1"));
+        assertEquals(pending, cache.get("acct_1"));
+        verify(stripeService, times(1)).retrieveAccountSnapshot("acct_1");
+
+        // stale: the read gets the previous snapshot at once and triggers a single refresh
+        advance(Duration.ofMinutes(2));
+        assertEquals(pending, cache.get("acct_1"));
+        assertEquals(pending, cache.get("acct_1"));
+        runRefreshes();
+        assertEquals(active, cache.get("acct_1"));
+        verify(stripeService, times(2)).retrieveAccountSnapshot("acct_1");
+    }
+
+    @Test
+    void testFailedRefreshKeepsSnapshot() throws Exception {
+        StripeAccountSnapshot pending = new StripeAccountSnapshot("acct_1", "pending", false);
+        when(stripeService.retrieveAccountSnapshot("acct_1"))
+                .thenReturn(pending)
+                .thenThrow(new BadRequestException("Failed to retrieve Stripe account"));
+
+        cache.get("acct_1");
+        advance(Duration.ofMinutes(2));
+        assertEquals(pending, cache.get("acct_1"));
+        runRefreshes();
+        assertEquals(pending, cache.get("acct_1"));
+    }
+
+    @Test
+    void testRejectedRefreshKeepsSnapshotAndIsRetried() throws Exception {
+        // refresh pool saturated once, then free again
+        AtomicBoolean saturated = new AtomicBoolean(true);
+        StripeAccountSnapshotCache bounded = new StripeAccountSnapshotCache(stripeService, Duration.ofMinutes(1),
+                Duration.ofMinutes(30), 100, nanos::get, task -> {
+                    if (saturated.getAndSet(false)) {
+                        throw new RejectedExecutionException("refresh pool saturated");
+                    }
+                    refreshes.add(task);
+                });
+        StripeAccountSnapshot pending = new StripeAccountSnapshot("acct_1", "pending", false);
+        StripeAccountSnapshot active = new StripeAccountSnapshot("acct_1", "active", true);
+        when(stripeService.retrieveAccountSnapshot("acct_1")).thenReturn(pending, active);
+
+        bounded.get("acct_1");
+        advance(Duration.ofMinutes(2));
+        assertEquals(pending, bounded.get("acct_1"));
+        assertEquals(pending, bounded.get("acct_1"));
+        runRefreshes();
+        assertEquals(active, bounded.get("acct_1"));
+    }
+
+    @Test
+    void testFirstRetrievalFailureIsThrown() throws Exception {
+        when(stripeService.retrieveAccountSnapshot("acct_1"))
+                .thenThrow(new BadRequestException("Failed to retrieve Stripe account"));
+
+        assertThrows(BadRequestException.class, () -> cache.get("acct_1"));
+    }
+}
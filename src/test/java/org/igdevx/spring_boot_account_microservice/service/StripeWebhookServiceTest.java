@@ -0,0 +1,248 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import com.stripe.model.Account;
+import com.stripe.model.Event;
+import com.stripe.model.EventDataObjectDeserializer;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import org.igdevx.spring_boot_account_microservice.exception.ResourceNotFoundException;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.igdevx.spring_boot_account_microservice.repository.projection.StripeAccountView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StripeWebhookServiceTest {
+
+    private static final UUID KEYCLOAK_ID = UUID.randomUUID();
+
+    private StripeAccountSnapshotCache snapshots;
+    private UserRepository userRepository;
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+    private StripeWebhookService service;
+
+    @BeforeEach
+    void setUp() {
+        snapshots = mock(StripeAccountSnapshotCache.class);
+        userRepository = mock(UserRepository.class);
+        userService = mock(UserService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new StripeWebhookService(snapshots, userRepository, userService, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Runnable::run,
+                true, "whsec_test", Duration.ofDays(7), StripeWebhookService.Retry.DEFAULTS);
+
+        StripeAccountView user = mock(StripeAccountView.class);
+        when(user.getId()).thenReturn(1L);
+        when(user.getKeycloakId()).thenReturn(KEYCLOAK_ID);
+        when(userRepository.findStripeAccountsByStripeAccountId("acct_1")).thenReturn(List.of(user));
+        when(userRepository.updateStripeAccount(eq(1L), eq("acct_1"), anyString(), anyBoolean())).thenReturn(1);
+    }
+
+    // Stripe models have no public setters
+    private static Event event(String id, String type, long created, StripeObject object) {
+        EventDataObjectDeserializer deserializer = mock(EventDataObjectDeserializer.class);
+        when(deserializer.getObject()).thenReturn(Optional.ofNullable(object));
+        Event event = mock(Event.class);
+        when(event.getId()).thenReturn(id);
+        when(event.getType()).thenReturn(type);
+        when(event.getAccount()).thenReturn("acct_1");
+        when(event.getCreated()).thenReturn(created);
+        when(event.getDataObjectDeserializer()).thenReturn(deserializer);
+        return event;
+    }
+
+    private static Account activeAccount() {
+        Account account = mock(Account.class);
+        when(account.getId()).thenReturn("acct_1");
+        when(account.getDetailsSubmitted()).thenReturn(true);
+        when(account.getChargesEnabled()).thenReturn(true);
+        return account;
+    }
+
+    private static StripeWebhookService.StoredEvent stored(String id, String type) {
+        return new StripeWebhookService.StoredEvent(id, type, "acct_1", 100);
+    }
+
+    private void received(boolean firstDelivery) {
+        when(jdbcTemplate.update(contains("INSERT INTO stripe_processed_events"), any(), any(), any(), any(), any(), any()))
+                .thenReturn(firstDelivery ? 1 : 0);
+    }
+
+    private void claimed(boolean pending) {
+        when(jdbcTemplate.update(contains("SET state = 'applied'"), eq("evt_1"))).thenReturn(pending ? 1 : 0);
+        when(jdbcTemplate.update(contains("SET state = 'applied'"), eq("evt_2"))).thenReturn(pending ? 1 : 0);
+    }
+
+    // Webhook.constructEvent checks the signature
+    private void receive(Event event) {
+        try (MockedStatic<Webhook> webhook = mockStatic(Webhook.class)) {
+            webhook.when(() -> Webhook.constructEvent("{}", "t=1,v1=x", "whsec_test")).thenReturn(event);
+            service.receive("{}", "t=1,v1=x");
+        }
+    }
+
+    private void newerEventApplied(boolean newer) {
+        when(jdbcTemplate.queryForObject(contains("SELECT EXISTS"), eq(Boolean.class), any(), any())).thenReturn(newer);
+    }
+
+    @Test
+    void testAccountUpdatedIsApplied() {
+        claimed(true);
+        newerEventApplied(false);
+
+        service.process(stored("evt_1", StripeWebhookService.ACCOUNT_UPDATED), activeAccount());
+
+        verify(userRepository).updateStripeAccount(1L, "acct_1", "active", true);
+        verify(userService).publishProfileChanged(KEYCLOAK_ID);
+        verify(snapshots).put(new StripeAccountSnapshot("acct_1", "active", true));
+    }
+
+    @Test
+    void testRedeliveredEventIsSkipped() {
+        claimed(false);
+
+        service.process(stored("evt_1", StripeWebhookService.ACCOUNT_UPDATED), activeAccount());
+
+        verify(userRepository, never()).updateStripeAccount(any(), any(), any(), any());
+        verify(snapshots, never()).put(any());
+    }
+
+    @Test
+    void testOutOfOrderAccountUpdateIsIgnored() {
+        claimed(true);
+        newerEventApplied(true);
+
+        service.process(stored("evt_1", StripeWebhookService.ACCOUNT_UPDATED), activeAccount());
+
+        verify(userRepository, never()).updateStripeAccount(any(), any(), any(), any());
+        verify(snapshots, never()).put(any());
+    }
+
+    @Test
+    void testCapabilityUpdateRetrievesTheAccount() throws Exception {
+        claimed(true);
+        StripeAccountSnapshot pending = new StripeAccountSnapshot("acct_1", "pending", false);
+        when(snapshots.retrieve("acct_1")).thenReturn(pending);
+
+        service.process(stored("evt_2", StripeWebhookService.CAPABILITY_UPDATED), null);
+
+        verify(userRepository).updateStripeAccount(1L, "acct_1", "pending", false);
+        // retrieved now: applied whatever the age of the event
+        verify(jdbcTemplate, never()).queryForObject(contains("SELECT EXISTS"), eq(Boolean.class), any(), any());
+    }
+
+    @Test
+    void testUnchangedStatusIsNotPublished() {
+        claimed(true);
+        newerEventApplied(false);
+        when(userRepository.updateStripeAccount(eq(1L), eq("acct_1"), anyString(), anyBoolean())).thenReturn(0);
+
+        service.process(stored("evt_1", StripeWebhookService.ACCOUNT_UPDATED), activeAccount());
+
+        verify(userService, never()).publishProfileChanged(any(UUID.class));
+    }
+
+    @Test
+    void testReceivedEventIsStoredBeforeItIsApplied() {
+        received(true);
+        claimed(true);
+        newerEventApplied(false);
+
+        receive(event("evt_1", StripeWebhookService.ACCOUNT_UPDATED, 100, activeAccount()));
+
+        InOrder inOrder = inOrder(jdbcTemplate, userRepository);
+        inOrder.verify(jdbcTemplate).update(contains("INSERT INTO stripe_processed_events"),
+                eq("evt_1"), eq(StripeWebhookService.ACCOUNT_UPDATED), eq("acct_1"), eq(100L), eq("{}"), any());
+        inOrder.verify(userRepository).updateStripeAccount(1L, "acct_1", "active", true);
+    }
+
+    @Test
+    void testRedeliveryOfAStoredEventIsNotQueued() {
+        received(false);
+        Executor executor = mock(Executor.class);
+        service = new StripeWebhookService(snapshots, userRepository, userService, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), executor,
+                true, "whsec_test", Duration.ofDays(7), StripeWebhookService.Retry.DEFAULTS);
+
+        receive(event("evt_1", StripeWebhookService.ACCOUNT_UPDATED, 100, activeAccount()));
+
+        verify(executor, never()).execute(any());
+    }
+
+    @Test
+    void testEventNotStoredIsNotAcknowledged() {
+        when(jdbcTemplate.update(contains("INSERT INTO stripe_processed_events"), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        assertThrows(CannotGetJdbcConnectionException.class,
+                () -> receive(event("evt_1", StripeWebhookService.ACCOUNT_UPDATED, 100, activeAccount())));
+        verify(userRepository, never()).updateStripeAccount(any(), any(), any(), any());
+    }
+
+    @Test
+    void testFullQueueLeavesTheEventToTheRetry() {
+        received(true);
+        service = new StripeWebhookService(snapshots, userRepository, userService, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                command -> { throw new RejectedExecutionException("full"); },
+                true, "whsec_test", Duration.ofDays(7), StripeWebhookService.Retry.DEFAULTS);
+
+        // acknowledged: the event is stored
+        assertDoesNotThrow(() -> receive(event("evt_1", StripeWebhookService.ACCOUNT_UPDATED, 100, activeAccount())));
+        verify(userRepository, never()).updateStripeAccount(any(), any(), any(), any());
+    }
+
+    @Test
+    void testFailedEventIsLeftPendingWithBackoff() throws Exception {
+        when(snapshots.retrieve("acct_1")).thenThrow(new RuntimeException("Stripe unavailable"));
+
+        service.process(stored("evt_2", StripeWebhookService.CAPABILITY_UPDATED), null);
+
+        verify(jdbcTemplate).queryForList(contains("SET attempts = attempts + 1"), eq(String.class),
+                eq("Stripe unavailable"), eq(30.0), eq(3600.0), eq(12), eq("evt_2"));
+        verify(userRepository, never()).updateStripeAccount(any(), any(), any(), any());
+    }
+
+    @Test
+    void testRetryAppliesTheDueEventsWithARetrievedAccount() throws Exception {
+        when(jdbcTemplate.query(contains("FOR UPDATE SKIP LOCKED"), any(RowMapper.class), any(), any()))
+                .thenReturn(List.of(stored("evt_1", StripeWebhookService.ACCOUNT_UPDATED)));
+        claimed(true);
+        when(snapshots.retrieve("acct_1")).thenReturn(new StripeAccountSnapshot("acct_1", "active", true));
+
+        service.retryPendingEvents();
+
+        verify(userRepository).updateStripeAccount(1L, "acct_1", "active", true);
+        // retrieved now: applied whatever the age of the event
+        verify(jdbcTemplate, never()).queryForObject(contains("SELECT EXISTS"), eq(Boolean.class), any(), any());
+    }
+
+    @Test
+    void testDisabled() {
+        StripeWebhookService disabled = new StripeWebhookService(snapshots, userRepository, userService, jdbcTemplate,
+                null, Runnable::run, false, "", Duration.ofDays(7), StripeWebhookService.Retry.DEFAULTS);
+
+        assertThrows(ResourceNotFoundException.class, () -> disabled.receive("{}", "t=1,v1=x"));
+        assertThrows(IllegalStateException.class, () -> new StripeWebhookService(snapshots, userRepository,
+                userService, jdbcTemplate, null, Runnable::run, true, " ", Duration.ofDays(7),
+                StripeWebhookService.Retry.DEFAULTS));
+    }
+}
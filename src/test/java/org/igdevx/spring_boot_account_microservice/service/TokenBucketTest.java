@@ -0,0 +1,69 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    // Waits of the callers; sleeping moves the clock
+    private final List<Duration> waits = new ArrayList<>();
+
+    private TokenBucket bucket(double permitsPerSecond, int burst) {
+        return new TokenBucket(permitsPerSecond, burst, nanos::get, wait -> {
+            waits.add(Duration.ofNanos(wait));
+            nanos.addAndGet(wait);
+        });
+    }
+
+    @Test
+    void testBurstThenSteadyRate() throws Exception {
+        TokenBucket bucket = bucket(10, 3);
+
+        for (int i = 0; i < 3; i++) {
+            bucket.acquire();
+        }
+        assertEquals(List.of(), waits);
+
+        bucket.acquire();
+        bucket.acquire();
+        assertEquals(List.of(Duration.ofMillis(100), Duration.ofMillis(100)), waits);
+    }
+
+    @Test
+    void testIdleTimeRefillsUpToTheBurst() throws Exception {
+        TokenBucket bucket = bucket(10, 2);
+        bucket.acquire();
+        bucket.acquire();
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        bucket.acquire();
+        bucket.acquire();
+        assertEquals(List.of(), waits);
+        bucket.acquire();
+        assertEquals(List.of(Duration.ofMillis(100)), waits);
+    }
+
+    @Test
+    void testPauseHoldsBackEveryCaller() throws Exception {
+        TokenBucket bucket = bucket(10, 5);
+
+        bucket.pause(Duration.ofSeconds(2));
+        bucket.acquire();
+        bucket.acquire();
+        assertEquals(List.of(Duration.ofSeconds(2), Duration.ofMillis(100)), waits);
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> bucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> bucket(10, 0));
+    }
+}
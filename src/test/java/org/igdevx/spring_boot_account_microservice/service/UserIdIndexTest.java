@@ -0,0 +1,99 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.igdevx.spring_boot_account_microservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UserIdIndexTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserIdIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new UserIdIndex(mock(UserRepository.class), mock(DataSource.class),
+                mock(PlatformTransactionManager.class), meterRegistry, true, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testLookupInBothDirections() {
+        UUID keycloakId = UUID.randomUUID();
+        index.put(42L, keycloakId);
+
+        assertEquals(Optional.of(keycloakId), index.keycloakIdOf(42L));
+        assertEquals(OptionalLong.of(42L), index.idOf(keycloakId));
+        assertEquals(Optional.empty(), index.keycloakIdOf(43L));
+        assertEquals(OptionalLong.empty(), index.idOf(UUID.randomUUID()));
+    }
+
+    @Test
+    void testSparseIdsAreIndexed() {
+        UUID keycloakId = UUID.randomUUID();
+        index.put(2_000_000_000L, keycloakId);
+        index.put(Long.MAX_VALUE, UUID.randomUUID());
+
+        assertEquals(2, index.size());
+        assertEquals(Optional.of(keycloakId), index.keycloakIdOf(2_000_000_000L));
+        assertEquals(OptionalLong.of(2_000_000_000L), index.idOf(keycloakId));
+    }
+
+    @Test
+    void testTablesShrinkBackAfterRemoves() {
+        for (long id = 1; id <= 10_000; id++) {
+            index.put(id, UUID.randomUUID());
+        }
+        UUID kept = UUID.randomUUID();
+        index.put(20_000L, kept);
+        for (long id = 1; id <= 10_000; id++) {
+            index.remove(id);
+        }
+
+        assertEquals(1, index.size());
+        assertEquals(Optional.of(kept), index.keycloakIdOf(20_000L));
+        assertEquals(OptionalLong.of(20_000L), index.idOf(kept));
+    }
+
+    @Test
+    void testRandomPutsAndRemovesMatchAHashMap() {
+        Random random = new Random(7);
+        Map<Long, UUID> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            // sparse ids: the index must not depend on how dense they are
+            long id = 1 + random.nextInt(20_000) * 1_000_003L;
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else if (!expected.containsKey(id)) {
+                UUID keycloakId = UUID.randomUUID();
+                index.put(id, keycloakId);
+                expected.put(id, keycloakId);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + i * 1_000_003L;
+            UUID keycloakId = expected.get(id);
+            assertEquals(Optional.ofNullable(keycloakId), index.keycloakIdOf(id));
+            if (keycloakId != null) {
+                assertEquals(OptionalLong.of(id), index.idOf(keycloakId));
+            }
+        }
+    }
+}
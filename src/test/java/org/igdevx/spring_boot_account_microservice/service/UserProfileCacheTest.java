@@ -0,0 +1,138 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.igdevx.spring_boot_account_microservice.event.UserProfileChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserProfileCacheTest {
+
+    private static final UUID KEYCLOAK_ID = UUID.randomUUID();
+
+    private UserProfileCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserProfileCache(
+                new ConcurrentMapCacheManager(UserProfileCache.BY_KEYCLOAK_ID, UserProfileCache.BY_ID),
+                new SimpleMeterRegistry());
+    }
+
+    private static UserProfileResponse profile(String biography, long version) {
+        return UserProfileResponse.builder()
+                .id(1L)
+                .keycloakId(KEYCLOAK_ID.toString())
+                .biography(biography)
+                .version(version)
+                .build();
+    }
+
+    @Test
+    void testLoadedProfileIsServedByBothKeys() {
+        UserProfileResponse profile = profile("Bio", 0);
+        cache.put(profile, cache.beginLoad());
+
+        assertEquals(Optional.of(profile), cache.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.of(profile), cache.getById(1L));
+    }
+
+    @Test
+    void testWriteEvictsBothKeys() {
+        cache.put(profile("Old bio", 0), cache.beginLoad());
+
+        UserProfileResponse written = profile("New bio", 1);
+        cache.onProfileChanged(new UserProfileChangedEvent(1L, KEYCLOAK_ID, written));
+
+        assertEquals(Optional.empty(), cache.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.empty(), cache.getById(1L));
+
+        // the next read loads and caches the written profile
+        cache.put(written, cache.beginLoad());
+        assertEquals("New bio", cache.getByKeycloakId(KEYCLOAK_ID).orElseThrow().getBiography());
+        assertEquals("New bio", cache.getById(1L).orElseThrow().getBiography());
+    }
+
+    @Test
+    void testLoadStartedBeforeAWriteIsNotCached() {
+        long token = cache.beginLoad();
+        // a write commits while the old row is being read
+        cache.onProfileChangeCommitted(new UserProfileChangedEvent(1L, KEYCLOAK_ID, profile("New bio", 1)));
+        cache.put(profile("Old bio", 0), token);
+
+        assertEquals(Optional.empty(), cache.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.empty(), cache.getById(1L));
+    }
+
+    @Test
+    void testEvictionDuringAStoreIsNotUndone() {
+        // the write commits between the epoch check of the store and its puts
+        AtomicReference<Runnable> onPut = new AtomicReference<>();
+        UserProfileCache racing = new UserProfileCache(new ConcurrentMapCacheManager(
+                UserProfileCache.BY_KEYCLOAK_ID, UserProfileCache.BY_ID) {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public void put(Object key, Object value) {
+                        super.put(key, value);
+                        Runnable hook = onPut.getAndSet(null);
+                        if (hook != null) {
+                            hook.run();
+                        }
+                    }
+                };
+            }
+        }, new SimpleMeterRegistry());
+        onPut.set(() -> racing.onProfileChangeCommitted(
+                new UserProfileChangedEvent(1L, KEYCLOAK_ID, profile("New bio", 1))));
+
+        racing.put(profile("Old bio", 0), racing.beginLoad());
+
+        assertEquals(Optional.empty(), racing.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.empty(), racing.getById(1L));
+    }
+
+    @Test
+    void testCallersCannotChangeTheCachedProfile() {
+        UserProfileResponse loaded = profile("Bio", 0);
+        cache.put(loaded, cache.beginLoad());
+
+        loaded.setBiography("Changed by the loader");
+        cache.getByKeycloakId(KEYCLOAK_ID).orElseThrow().setBiography("Changed by a reader");
+
+        assertEquals("Bio", cache.getByKeycloakId(KEYCLOAK_ID).orElseThrow().getBiography());
+        assertEquals("Bio", cache.getById(1L).orElseThrow().getBiography());
+    }
+
+    @Test
+    void testDeletionEvictsBothKeys() {
+        cache.put(profile("Bio", 0), cache.beginLoad());
+
+        cache.onProfileChanged(new UserProfileChangedEvent(1L, KEYCLOAK_ID, null));
+
+        assertEquals(Optional.empty(), cache.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.empty(), cache.getById(1L));
+    }
+
+    @Test
+    void testCacheTypeNoneStoresNothing() {
+        // spring.cache.type=none (profile no-profile-cache) backs the caches with a NoOpCacheManager
+        UserProfileCache disabled = new UserProfileCache(new NoOpCacheManager(), new SimpleMeterRegistry());
+
+        disabled.put(profile("Bio", 0), disabled.beginLoad());
+
+        assertEquals(Optional.empty(), disabled.getByKeycloakId(KEYCLOAK_ID));
+        assertEquals(Optional.empty(), disabled.getById(1L));
+    }
+}
@@ -0,0 +1,141 @@
+package org.igdevx.spring_boot_account_microservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.igdevx.spring_boot_account_microservice.dto.UserProfileResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserProfileCoalescerTest {
+
+    @Test
+    void testConcurrentCallsForTheSameKeyShareOneLoad() throws Exception {
+        UUID keycloakId = UUID.randomUUID();
+        UserProfileResponse profile = UserProfileResponse.builder().id(1L).keycloakId(keycloakId.toString()).build();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        UserService userService = mock(UserService.class);
+        when(userService.getOrCreateUserProfile(any())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            return profile;
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserProfileCoalescer coalescer = new UserProfileCoalescer(userService, meterRegistry, Duration.ofSeconds(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UserProfileResponse>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.getOrCreateUserProfile(keycloakId)));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> coalescer.getOrCreateUserProfile(keycloakId)));
+            }
+            while (meterRegistry.counter("account.user_profile.coalesced_requests").count() < 3) {
+                Thread.sleep(5);
+            }
+            releaseLoad.countDown();
+
+            for (Future<UserProfileResponse> result : results) {
+                assertSame(profile, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(userService, times(1)).getOrCreateUserProfile(keycloakId);
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        UUID keycloakId = UUID.randomUUID();
+        UserService userService = mock(UserService.class);
+        when(userService.getOrCreateUserProfile(keycloakId))
+                .thenThrow(new IllegalStateException("boom"))
+                .thenReturn(UserProfileResponse.builder().id(1L).build());
+        UserProfileCoalescer coalescer = new UserProfileCoalescer(userService, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+
+        assertThrows(IllegalStateException.class, () -> coalescer.getOrCreateUserProfile(keycloakId));
+        assertEquals(1L, coalescer.getOrCreateUserProfile(keycloakId).getId());
+    }
+
+    @Test
+    void testErrorsReachTheWaitingCallers() throws Exception {
+        UUID keycloakId = UUID.randomUUID();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        UserService userService = mock(UserService.class);
+        when(userService.getOrCreateUserProfile(keycloakId)).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserProfileCoalescer coalescer = new UserProfileCoalescer(userService, meterRegistry, Duration.ofSeconds(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<UserProfileResponse> leader = executor.submit(() -> coalescer.getOrCreateUserProfile(keycloakId));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+            Future<UserProfileResponse> follower = executor.submit(() -> coalescer.getOrCreateUserProfile(keycloakId));
+            while (meterRegistry.counter("account.user_profile.coalesced_requests").count() < 1) {
+                Thread.sleep(5);
+            }
+            releaseLoad.countDown();
+
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, leaderFailure.getCause());
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, followerFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWaitingCallersStopWaitingForAStuckCall() throws Exception {
+        UUID keycloakId = UUID.randomUUID();
+        UserProfileResponse profile = UserProfileResponse.builder().id(1L).keycloakId(keycloakId.toString()).build();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        UserService userService = mock(UserService.class);
+        when(userService.getOrCreateUserProfile(keycloakId))
+                .thenAnswer(invocation -> {
+                    loadStarted.countDown();
+                    releaseLoad.await(5, TimeUnit.SECONDS);
+                    return profile;
+                })
+                .thenReturn(profile);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserProfileCoalescer coalescer = new UserProfileCoalescer(userService, meterRegistry, Duration.ofMillis(50));
+
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<UserProfileResponse> leader = executor.submit(() -> coalescer.getOrCreateUserProfile(keycloakId));
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+            assertSame(profile, coalescer.getOrCreateUserProfile(keycloakId));
+            assertEquals(1.0, meterRegistry.counter("account.user_profile.coalesce_timeouts").count());
+
+            releaseLoad.countDown();
+            assertSame(profile, leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userService, times(2)).getOrCreateUserProfile(keycloakId);
+    }
+}